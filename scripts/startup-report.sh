@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# 启动耗时对比：普通 fat jar 与 -Pstartup 产物（Spring AOT + 懒加载，及再叠加 AppCDS 归档）。
+# 计时口径：从启动 JVM 到 /api/subway/status 首次返回 200（即路网数据已加载、可以接受查询）。
+#
+# 用法：
+#   mvn -B -Pstartup package -DskipTests
+#   scripts/startup-report.sh [每种方式的启动次数，默认 5] [端口，默认 18180]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+PORT=${2:-18180}
+FAT_JAR=$(ls target/subway-backend-*.jar | grep -v -- '-startup' | head -1)
+STARTUP_DIR=target/startup
+STARTUP_JAR=$(cd "$STARTUP_DIR" && ls subway-backend-*-startup.jar | head -1)
+[ -f "$STARTUP_DIR/app.jsa" ] || { echo "缺少 $STARTUP_DIR/app.jsa，请先执行 mvn -Pstartup package" >&2; exit 1; }
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+APP_ARGS=(--server.port="$PORT" --subway.journal.dir="$WORK/journal")
+
+# 取中位数
+median() { sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2]+a[NR/2+1])/2)}'; }
+
+# measure <名称> <工作目录> <java 参数...>
+measure() {
+  local label=$1 dir=$2; shift 2
+  local ready=() started=() rss=()
+  for _ in $(seq 1 "$RUNS"); do
+    local log="$WORK/app.log" begin end pid
+    begin=$(date +%s%N)
+    (cd "$dir" && exec java "$@" "${APP_ARGS[@]}" > "$log" 2>&1) &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/api/subway/status"; do
+      kill -0 "$pid" 2>/dev/null || { echo "$label 启动失败，日志：" >&2; tail -20 "$log" >&2; exit 1; }
+      sleep 0.02
+    done
+    end=$(date +%s%N)
+    ready+=($(( (end - begin) / 1000000 )))
+    started+=($(grep -o 'Started SubwayApplication in [0-9.]* seconds' "$log" | grep -o '[0-9.]*' | awk '{print int($1 * 1000)}'))
+    rss+=($(( $(ps -o rss= -p "$pid") / 1024 )))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+  done
+  printf '| %s | %s | %s | %s |\n' "$label" \
+    "$(printf '%s\n' "${ready[@]}" | median)" \
+    "$(printf '%s\n' "${started[@]}" | median)" \
+    "$(printf '%s\n' "${rss[@]}" | median)"
+}
+
+echo "java: $(java -version 2>&1 | head -1)，每种方式启动 $RUNS 次取中位数"
+echo
+echo "| 启动方式 | 可接受查询 (ms) | Spring 报告的启动耗时 (ms) | 就绪时 RSS (MB) |"
+echo "|---|---:|---:|---:|"
+measure "fat jar（现状）" . -jar "$FAT_JAR"
+measure "AOT + 懒加载" "$STARTUP_DIR" \
+  -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar "$STARTUP_JAR"
+measure "AOT + 懒加载 + AppCDS" "$STARTUP_DIR" \
+  -XX:SharedArchiveFile=app.jsa -Xlog:cds=error -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar "$STARTUP_JAR"
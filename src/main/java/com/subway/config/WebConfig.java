@@ -1,8 +1,18 @@
 package com.subway.config;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.subway.service.cache.HeavyHitters;
+import com.subway.service.cache.HotPairRecordingInterceptor;
+import com.subway.traffic.TrafficRecorder;
+import com.subway.traffic.TrafficRecordingInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -21,4 +31,40 @@ public class WebConfig {
             }
         };
     }
-}
\ No newline at end of file
+
+    @Bean
+    public WebMvcConfigurer trafficRecordingConfigurer(TrafficRecorder trafficRecorder) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                if (!trafficRecorder.isEnabled()) return;
+                registry.addInterceptor(new TrafficRecordingInterceptor(trafficRecorder))
+                        .addPathPatterns("/api/subway/path/**"); // 只录制路径查询接口
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer hotPairsConfigurer(HeavyHitters hitters) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                if (!hitters.isEnabled()) return;
+                registry.addInterceptor(new HotPairRecordingInterceptor(hitters))
+                        .addPathPatterns("/api/subway/path/*"); // 只统计路径查询接口
+            }
+        };
+    }
+
+    // 二进制响应格式：Accept: application/x-jackson-smile 或 application/cbor 时使用，
+    // 未指定时仍返回 JSON；沿用 Spring Boot 的 Jackson 配置（时间格式、模块），字段与 JSON 完全一致
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
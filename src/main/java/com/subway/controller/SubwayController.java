@@ -1,32 +1,77 @@
 // SubwayController.java
 package com.subway.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subway.dto.LegCostRequestDTO;
 import com.subway.dto.LineEditDTO;
+import com.subway.dto.TravelMatrixRequestDTO;
+import com.subway.model.Itinerary;
 import com.subway.model.Line;
 import com.subway.model.PathResult;
+import com.subway.model.RouteOptions;
 import com.subway.model.Station;
 import com.subway.service.SubwayService;
+import com.subway.service.TravelMatrixJob;
+import com.subway.service.cache.HeavyHitters;
+import com.subway.service.cache.RoutePrewarmer;
+import com.subway.service.partition.PartitionCoordinator;
+import com.subway.service.registry.NetworkRegistry;
+import com.subway.service.warmup.WarmUp;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@Lazy(false)
 @RequestMapping("/api/subway")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class SubwayController {
 
+    private static final ObjectMapper MATRIX_MAPPER = new ObjectMapper();
+
+    // 路径查询结果的两种视图
+    private static final String VIEW_SEGMENTS = "segments";
+    private static final String VIEW_LEGS = "legs";
+
     private final SubwayService subwayService;
+    private final HeavyHitters heavyHitters;
+    private final RoutePrewarmer routePrewarmer;
+    private final NetworkRegistry networkRegistry;
+    private final WarmUp warmUp;
+    private final ApplicationAvailability availability;
+    private final PartitionCoordinator partitionCoordinator;
 
     @Autowired
-    public SubwayController(SubwayService subwayService) {
+    public SubwayController(SubwayService subwayService, HeavyHitters heavyHitters, RoutePrewarmer routePrewarmer,
+                            NetworkRegistry networkRegistry, WarmUp warmUp, ApplicationAvailability availability,
+                            PartitionCoordinator partitionCoordinator) {
         this.subwayService = subwayService;
+        this.heavyHitters = heavyHitters;
+        this.routePrewarmer = routePrewarmer;
+        this.networkRegistry = networkRegistry;
+        this.warmUp = warmUp;
+        this.availability = availability;
+        this.partitionCoordinator = partitionCoordinator;
     }
 
     @GetMapping("/lines")
@@ -41,6 +86,35 @@ public class SubwayController {
         return ResponseEntity.ok(stations);
     }
 
+    // GET：当前路网数据版本与规模，供负载均衡后的多个实例核对是否已收敛到同一版本
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(subwayService.getStatus());
+    }
+
+    // GET：就绪探针。启动预热结束（或未启用）后 Spring 才发布 ACCEPTING_TRAFFIC，此前返回 503；附预热进度
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> getReadiness() {
+        ReadinessState state = availability.getReadinessState();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("readiness", state);
+        body.put("warmUp", warmUp.report());
+        if (state != ReadinessState.ACCEPTING_TRAFFIC) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    // GET：近期热门的 (起点, 终点, 日期类型) 组合，按衰减后的请求数估计降序，附统计与预热情况
+    @GetMapping("/hot-pairs")
+    public ResponseEntity<Map<String, Object>> getHotPairs(@RequestParam(required = false, defaultValue = "20") int limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("pairs", heavyHitters.top(Math.max(0, limit)));
+        body.put("tracker", heavyHitters.stats());
+        body.put("prewarm", routePrewarmer.stats());
+        return ResponseEntity.ok(body);
+    }
+
     // ---------- 新增线路编辑接口 ----------
 
     // POST：添加线路
@@ -108,8 +182,36 @@ public class SubwayController {
             @RequestParam String start,
             @RequestParam String end,
             @RequestParam(required = false, defaultValue = "weekday") String dayType,
-            @RequestParam(required = false) String queryTime
+            @RequestParam(required = false) String queryTime,
+            @RequestParam(required = false) List<String> closedStations,
+            @RequestParam(required = false) List<String> closedLines,
+            @RequestParam(required = false) List<String> closedSegments,
+            @RequestParam(required = false, defaultValue = VIEW_SEGMENTS) String view,
+            @RequestParam(required = false, defaultValue = "false") boolean arriveBy
+    ) {
+        return shortestPath(subwayService, start, end, dayType, queryTime, closedStations, closedLines, closedSegments,
+                view, arriveBy);
+    }
+
+    @GetMapping("/path/least-transfer")
+    public ResponseEntity<?> getLeastTransferPath(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false, defaultValue = "weekday") String dayType,
+            @RequestParam(required = false) String queryTime,
+            @RequestParam(required = false) List<String> closedStations,
+            @RequestParam(required = false) List<String> closedLines,
+            @RequestParam(required = false) List<String> closedSegments,
+            @RequestParam(required = false, defaultValue = VIEW_SEGMENTS) String view,
+            @RequestParam(required = false, defaultValue = "false") boolean arriveBy
     ) {
+        return leastTransferPath(subwayService, start, end, dayType, queryTime, closedStations, closedLines,
+                closedSegments, view, arriveBy);
+    }
+
+    private static ResponseEntity<?> shortestPath(SubwayService service, String start, String end, String dayType,
+                                                  String queryTime, List<String> closedStations, List<String> closedLines,
+                                                  List<String> closedSegments, String view, boolean arriveBy) {
         System.out.println("Shortest Path Request - Start: " + start + ", End: " + end +
                 ", DayType: " + dayType + ", QueryTime: " + queryTime);
         if (start.trim().isEmpty() || end.trim().isEmpty()) {
@@ -133,22 +235,27 @@ public class SubwayController {
             errorResponse.put("error", "查询时间格式错误，应为 HH:mm");
             return ResponseEntity.badRequest().body(errorResponse);
         }
-        PathResult result = subwayService.findShortestTimePath(start, end, dayType, time);
+        PathResult result;
+        try {
+            result = service.findShortestTimePath(start, end, dayType, time,
+                    routeOptions(closedStations, closedLines, closedSegments, arriveBy));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
         if (result == null) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("error", "无法找到路径：站点不存在或无有效路线");
             return ResponseEntity.badRequest().body(errorResponse);
         }
-        return ResponseEntity.ok(result);
+        return pathResponse(result, view);
     }
 
-    @GetMapping("/path/least-transfer")
-    public ResponseEntity<?> getLeastTransferPath(
-            @RequestParam String start,
-            @RequestParam String end,
-            @RequestParam(required = false, defaultValue = "weekday") String dayType,
-            @RequestParam(required = false) String queryTime
-    ) {
+    private static ResponseEntity<?> leastTransferPath(SubwayService service, String start, String end, String dayType,
+                                                       String queryTime, List<String> closedStations,
+                                                       List<String> closedLines, List<String> closedSegments,
+                                                       String view, boolean arriveBy) {
         System.out.println("Least Transfer Path Request - Start: " + start + ", End: " + end + ", DayType: " + dayType + ", QueryTime: " + queryTime);
         if (start.trim().isEmpty() || end.trim().isEmpty()) {
             Map<String, String> errorResponse = new HashMap<>();
@@ -170,7 +277,244 @@ public class SubwayController {
             errorResponse.put("error", "查询时间格式错误，应为 HH:mm");
             return ResponseEntity.badRequest().body(errorResponse);
         }
-        PathResult result = subwayService.findLeastTransferPath(start, end, dayType, time);
+        PathResult result;
+        try {
+            result = service.findLeastTransferPath(start, end, dayType, time,
+                    routeOptions(closedStations, closedLines, closedSegments, arriveBy));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        if (result == null) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "无法找到路径：站点不存在或无有效路线");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        return pathResponse(result, view);
+    }
+
+    // view=segments（默认）返回逐站的 PathResult；view=legs 返回按线路合并的紧凑行程
+    private static ResponseEntity<?> pathResponse(PathResult result, String view) {
+        if (VIEW_LEGS.equalsIgnoreCase(view)) return ResponseEntity.ok(Itinerary.of(result));
+        if (!VIEW_SEGMENTS.equalsIgnoreCase(view)) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "view 只能为 " + VIEW_SEGMENTS + " 或 " + VIEW_LEGS);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    // 路径查询的临时关闭条件（逗号分隔或重复参数），如 closedStations=西直门&closedSegments=知春路-西土城；
+    // arriveBy=true 时 queryTime 为最晚到达时刻，返回最晚出发的方案
+    private static RouteOptions routeOptions(List<String> closedStations, List<String> closedLines,
+                                             List<String> closedSegments, boolean arriveBy) {
+        RouteOptions options = new RouteOptions();
+        options.setArriveBy(arriveBy);
+        if (closedStations != null) options.setClosedStations(closedStations);
+        if (closedLines != null) options.setClosedLines(closedLines);
+        if (closedSegments != null) options.setClosedSegments(closedSegments);
+        return options;
+    }
+
+    // ---------- 多路网接口：/networks/{networkId}/...，default 为本进程的主路网 ----------
+
+    // GET：可用路网及加载状态、内存预算与淘汰统计
+    @GetMapping("/networks")
+    public ResponseEntity<Map<String, Object>> getNetworks() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("networks", networkRegistry.list());
+        body.put("registry", networkRegistry.stats());
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/networks/{networkId}/status")
+    public ResponseEntity<?> getNetworkStatus(@PathVariable String networkId) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        return ResponseEntity.ok(service.getStatus());
+    }
+
+    @GetMapping("/networks/{networkId}/lines")
+    public ResponseEntity<?> getNetworkLines(@PathVariable String networkId) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        return ResponseEntity.ok(service.getAllLines());
+    }
+
+    @GetMapping("/networks/{networkId}/stations")
+    public ResponseEntity<?> getNetworkStations(@PathVariable String networkId) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        return ResponseEntity.ok(service.getAllStations());
+    }
+
+    @GetMapping("/networks/{networkId}/path/shortest")
+    public ResponseEntity<?> getNetworkShortestPath(
+            @PathVariable String networkId,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false, defaultValue = "weekday") String dayType,
+            @RequestParam(required = false) String queryTime,
+            @RequestParam(required = false) List<String> closedStations,
+            @RequestParam(required = false) List<String> closedLines,
+            @RequestParam(required = false) List<String> closedSegments,
+            @RequestParam(required = false, defaultValue = VIEW_SEGMENTS) String view,
+            @RequestParam(required = false, defaultValue = "false") boolean arriveBy
+    ) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        return shortestPath(service, start, end, dayType, queryTime, closedStations, closedLines, closedSegments,
+                view, arriveBy);
+    }
+
+    @GetMapping("/networks/{networkId}/path/least-transfer")
+    public ResponseEntity<?> getNetworkLeastTransferPath(
+            @PathVariable String networkId,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false, defaultValue = "weekday") String dayType,
+            @RequestParam(required = false) String queryTime,
+            @RequestParam(required = false) List<String> closedStations,
+            @RequestParam(required = false) List<String> closedLines,
+            @RequestParam(required = false) List<String> closedSegments,
+            @RequestParam(required = false, defaultValue = VIEW_SEGMENTS) String view,
+            @RequestParam(required = false, defaultValue = "false") boolean arriveBy
+    ) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        return leastTransferPath(service, start, end, dayType, queryTime, closedStations, closedLines, closedSegments,
+                view, arriveBy);
+    }
+
+    @PostMapping("/networks/{networkId}/matrix")
+    public ResponseEntity<StreamingResponseBody> getNetworkTravelMatrix(@PathVariable String networkId,
+                                                                        @RequestBody TravelMatrixRequestDTO request) {
+        SubwayService service;
+        try {
+            service = networkRegistry.get(networkId);
+        } catch (IllegalArgumentException e) {
+            return streamingError(e.getMessage());
+        }
+        return travelMatrix(service, request);
+    }
+
+    // POST：分区节点接口，返回本路网内 sources × targets 的最短时间代价摘要（不可达为 null），供分区路由协调器调用
+    @PostMapping("/networks/{networkId}/partition/costs")
+    public ResponseEntity<?> getNetworkLegCosts(@PathVariable String networkId, @RequestBody LegCostRequestDTO request) {
+        if (request.getSources() == null || request.getTargets() == null) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "sources 与 targets 不能为空");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        try {
+            SubwayService service = networkRegistry.get(networkId);
+            return ResponseEntity.ok(service.legCosts(request.getSources(), request.getTargets()));
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+    }
+
+    // GET：分区节点接口，返回本路网内一个区域段的最短时间路径（线路展开图搜索，与 partition/costs 的代价一致）
+    // 及起点等车时间（默认 JSON 不含按线路合并的行程段，协调器据此按单机口径统一取整总时间）
+    @GetMapping("/networks/{networkId}/partition/path")
+    public ResponseEntity<?> getNetworkPartitionPath(
+            @PathVariable String networkId,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false, defaultValue = "weekday") String dayType,
+            @RequestParam(required = false) String queryTime) {
+        LocalDateTime time;
+        try {
+            time = parseQueryTime(queryTime);
+        } catch (Exception e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "查询时间格式错误，应为 HH:mm");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        PathResult result;
+        try {
+            SubwayService service = networkRegistry.get(networkId);
+            result = service.findPartitionLegPath(start.trim(), end.trim(), dayType, time);
+        } catch (IllegalArgumentException e) {
+            return networkError(e);
+        }
+        if (result == null) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "无法找到路径：站点不存在或无有效路线");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("path", result);
+        response.put("waitingTime", result.getLegs() == null || result.getLegs().isEmpty()
+                ? 0 : result.getLegs().get(0).getDepartOffset());
+        return ResponseEntity.ok(response);
+    }
+
+    // 路网不存在或查询参数错误；路网加载失败等其他异常按服务端错误返回 500
+    private static ResponseEntity<Map<String, String>> networkError(IllegalArgumentException e) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+    // ---------- 分区路由接口：协调器在边界站覆盖图上拼接各分区节点的结果 ----------
+
+    // GET：分区方案、各区域节点与覆盖图加载情况
+    @GetMapping("/partition/status")
+    public ResponseEntity<Map<String, Object>> getPartitionStatus() {
+        return ResponseEntity.ok(partitionCoordinator.status());
+    }
+
+    // POST：丢弃协调器的边界站覆盖图，下次查询时重新拉取（分区节点更新数据后调用，否则等待 overlay-ttl-ms 过期）
+    @PostMapping("/partition/overlay/refresh")
+    public ResponseEntity<Map<String, Object>> refreshPartitionOverlay() {
+        partitionCoordinator.invalidateOverlay();
+        return ResponseEntity.ok(partitionCoordinator.status());
+    }
+
+    // GET：跨分区最短时间路径，参数与 /path/shortest 相同（不支持关闭条件与按到达时刻查询）
+    @GetMapping("/partition/path/shortest")
+    public ResponseEntity<?> getPartitionShortestPath(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false, defaultValue = "weekday") String dayType,
+            @RequestParam(required = false) String queryTime) {
+        try {
+            parseQueryTime(queryTime);
+        } catch (Exception e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "查询时间格式错误，应为 HH:mm");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        PathResult result;
+        try {
+            result = partitionCoordinator.shortestPath(start.trim(), end.trim(), dayType, queryTime);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
         if (result == null) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("error", "无法找到路径：站点不存在或无有效路线");
@@ -178,4 +522,106 @@ public class SubwayController {
         }
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    // ---------- 出行矩阵接口 ----------
+
+    // POST：按 dayType 与出发时刻计算起点集 × 终点集的耗时与换乘矩阵，逐行流式返回（NDJSON 或 CSV）
+    @PostMapping("/matrix")
+    public ResponseEntity<StreamingResponseBody> getTravelMatrix(@RequestBody TravelMatrixRequestDTO request) {
+        return travelMatrix(subwayService, request);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> travelMatrix(SubwayService service, TravelMatrixRequestDTO request) {
+        boolean csv = "csv".equalsIgnoreCase(request.getFormat());
+        if (!csv && request.getFormat() != null && !"ndjson".equalsIgnoreCase(request.getFormat())) {
+            return streamingError("不支持的格式：" + request.getFormat() + "，应为 ndjson 或 csv");
+        }
+        LocalDateTime time;
+        try {
+            time = parseQueryTime(request.getQueryTime());
+        } catch (Exception e) {
+            return streamingError("查询时间格式错误，应为 HH:mm");
+        }
+        TravelMatrixJob job;
+        try {
+            job = service.prepareTravelMatrix(request.getOrigins(), request.getDestinations(),
+                    request.getDayType(), time);
+        } catch (IllegalArgumentException e) {
+            return streamingError("出行矩阵参数错误：" + e.getMessage());
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            if (csv) {
+                writer.write("origin,metric");
+                for (String destination : job.getDestinations()) {
+                    writer.write(',');
+                    writer.write(csvField(destination));
+                }
+                writer.write('\n');
+            } else {
+                Map<String, Object> header = new HashMap<>();
+                header.put("dayType", request.getDayType());
+                header.put("departureTime", time.toLocalTime().toString());
+                header.put("destinations", job.getDestinations());
+                writer.write(MATRIX_MAPPER.writeValueAsString(header));
+                writer.write('\n');
+            }
+            writer.flush();
+            // 各行由并行线程算完即写出，写出时串行化
+            job.run(row -> {
+                synchronized (writer) {
+                    try {
+                        if (csv) {
+                            writeCsvRow(writer, row.getOrigin(), "time", row.getTimes());
+                            writeCsvRow(writer, row.getOrigin(), "transfers", row.getTransfers());
+                        } else {
+                            writer.write(MATRIX_MAPPER.writeValueAsString(row));
+                            writer.write('\n');
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            writer.flush();
+        };
+        MediaType mediaType = csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    // 流式接口的错误响应：与其他接口相同的 {"error": ...} JSON
+    private static ResponseEntity<StreamingResponseBody> streamingError(String message) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> MATRIX_MAPPER.writeValue(out, errorResponse));
+    }
+
+    private static void writeCsvRow(Writer writer, String origin, String metric, int[] values) throws IOException {
+        writer.write(csvField(origin));
+        writer.write(',');
+        writer.write(metric);
+        for (int value : values) {
+            writer.write(',');
+            writer.write(Integer.toString(value));
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // 将 HH:mm 转换为当天的查询时刻，为空时取当前时间
+    private static LocalDateTime parseQueryTime(String queryTime) {
+        if (queryTime != null && !queryTime.trim().isEmpty()) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+            LocalTime lt = LocalTime.parse(queryTime, formatter);
+            return LocalDateTime.now().withHour(lt.getHour()).withMinute(lt.getMinute()).withSecond(0).withNano(0);
+        }
+        return LocalDateTime.now();
+    }
+}
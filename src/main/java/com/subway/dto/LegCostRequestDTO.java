@@ -0,0 +1,22 @@
+// LegCostRequestDTO.java
+package com.subway.dto;
+
+import java.util.List;
+
+public class LegCostRequestDTO {
+    private List<String> sources;
+    private List<String> targets;
+
+    public List<String> getSources() {
+        return sources;
+    }
+    public void setSources(List<String> sources) {
+        this.sources = sources;
+    }
+    public List<String> getTargets() {
+        return targets;
+    }
+    public void setTargets(List<String> targets) {
+        this.targets = targets;
+    }
+}
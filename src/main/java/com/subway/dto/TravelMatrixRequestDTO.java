@@ -0,0 +1,43 @@
+// TravelMatrixRequestDTO.java
+package com.subway.dto;
+
+import java.util.List;
+
+public class TravelMatrixRequestDTO {
+    private List<String> origins;       // 为空表示全部站点
+    private List<String> destinations;  // 为空表示全部站点
+    private String dayType = "weekday";
+    private String queryTime;           // HH:mm，为空表示当前时间
+    private String format = "ndjson";   // ndjson 或 csv
+
+    public List<String> getOrigins() {
+        return origins;
+    }
+    public void setOrigins(List<String> origins) {
+        this.origins = origins;
+    }
+    public List<String> getDestinations() {
+        return destinations;
+    }
+    public void setDestinations(List<String> destinations) {
+        this.destinations = destinations;
+    }
+    public String getDayType() {
+        return dayType;
+    }
+    public void setDayType(String dayType) {
+        this.dayType = dayType;
+    }
+    public String getQueryTime() {
+        return queryTime;
+    }
+    public void setQueryTime(String queryTime) {
+        this.queryTime = queryTime;
+    }
+    public String getFormat() {
+        return format;
+    }
+    public void setFormat(String format) {
+        this.format = format;
+    }
+}
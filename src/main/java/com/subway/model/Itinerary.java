@@ -0,0 +1,52 @@
+package com.subway.model;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// 紧凑形式的行程（view=legs）：同一线路的连续区间合并为一段，代替逐站的 segments
+@Data
+public class Itinerary {
+    private List<PathLeg> legs = new ArrayList<>();
+    private double totalDistance;
+    private int totalTime; // 单位：分钟
+    private int fare;      // 票价（元）
+    private int transferCount;
+    private LocalTime departureTime;
+    private LocalTime arrivalTime;
+
+    public static Itinerary of(PathResult result) {
+        Itinerary itinerary = new Itinerary();
+        itinerary.setLegs(result.getLegs() != null ? result.getLegs() : legsFromSegments(result));
+        itinerary.setTotalDistance(result.getTotalDistance());
+        itinerary.setTotalTime(result.getTotalTime());
+        itinerary.setFare(result.getFare());
+        itinerary.setTransferCount(result.getTransferCount());
+        itinerary.setDepartureTime(result.getDepartureTime());
+        itinerary.setArrivalTime(result.getArrivalTime());
+        return itinerary;
+    }
+
+    // 未携带合并结果时（如硬编码方案）按 segments 逐段合并，偏移按各段耗时累加
+    private static List<PathLeg> legsFromSegments(PathResult result) {
+        List<PathLeg> legs = new ArrayList<>();
+        PathLeg current = null;
+        int offset = 0;
+        for (PathSegment segment : result.getSegments()) {
+            if (current == null || !current.getLineId().equals(segment.getLineId())) {
+                current = new PathLeg();
+                current.setLineId(segment.getLineId());
+                current.setDirection(segment.getDirection());
+                current.getStations().add(segment.getStartStation());
+                current.setDepartOffset(offset);
+                legs.add(current);
+            }
+            offset += segment.getTime();
+            current.getStations().add(segment.getEndStation());
+            current.setArriveOffset(offset);
+        }
+        return legs;
+    }
+}
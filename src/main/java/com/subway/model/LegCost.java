@@ -0,0 +1,15 @@
+package com.subway.model;
+
+import lombok.Data;
+
+// 分区节点上两站之间最短时间路径的摘要（供分区路由协调器拼接）：cost 为运行时间与途中换乘时间之和（不含停站与等车）
+@Data
+public class LegCost {
+    private String from;
+    private String to;
+    private double cost;
+    private int hops;          // 区间数，用于计停站时间
+    private double distance;   // 公里
+    private String firstLine;  // 首个区间所属线路，起终点相同时为 null
+    private String lastLine;   // 末个区间所属线路
+}
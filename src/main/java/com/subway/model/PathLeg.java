@@ -0,0 +1,16 @@
+package com.subway.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 一段连续乘坐同一线路的行程：上车站到下车站的途经站列表，时刻以相对出发时刻的整分钟偏移表示
+@Data
+public class PathLeg {
+    private String lineId;
+    private String direction;
+    private List<String> stations = new ArrayList<>(); // 含上车站与下车站
+    private int departOffset; // 上车（列车开出）时刻，距出发时刻的分钟数
+    private int arriveOffset; // 到达下车站的时刻，距出发时刻的分钟数
+}
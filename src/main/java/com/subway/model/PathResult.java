@@ -1,5 +1,6 @@
 package com.subway.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -14,4 +15,7 @@ public class PathResult {
     private int transferCount;
     private LocalTime departureTime;
     private LocalTime arrivalTime;
+    // 按线路合并后的行程段，供 view=legs 使用，不随默认 JSON 输出
+    @JsonIgnore
+    private List<PathLeg> legs;
 }
\ No newline at end of file
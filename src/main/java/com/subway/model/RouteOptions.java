@@ -0,0 +1,31 @@
+package com.subway.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 单次路径查询的附加条件：临时关闭的站点、线路与区间（区间写作 "起点站-终点站"），只作用于本次查询
+@Data
+public class RouteOptions {
+    private List<String> closedStations = new ArrayList<>();
+    private List<String> closedLines = new ArrayList<>();
+    private List<String> closedSegments = new ArrayList<>();
+    // 为 true 时查询时刻表示"最晚到达时刻"，返回最晚出发的方案
+    private boolean arriveBy;
+    // 为 true 时不读写路径缓存，每次都实际搜索；只供进程内调用（启动预热）设置
+    private boolean bypassCache;
+
+    public boolean hasClosures() {
+        return notEmpty(closedStations) || notEmpty(closedLines) || notEmpty(closedSegments);
+    }
+
+    // 带关闭条件或要求绕过缓存的查询不走路径缓存
+    public boolean uncached() {
+        return bypassCache || hasClosures();
+    }
+
+    private static boolean notEmpty(List<String> list) {
+        return list != null && !list.isEmpty();
+    }
+}
@@ -0,0 +1,11 @@
+package com.subway.model;
+
+import lombok.Data;
+
+// 出行矩阵的一行：从 origin 到各目的站的总耗时（分钟）与换乘次数，不可达为 -1
+@Data
+public class TravelMatrixRow {
+    private String origin;
+    private int[] times;
+    private int[] transfers;
+}
@@ -0,0 +1,150 @@
+package com.subway.service;
+
+import com.subway.service.routing.RoutingGraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 根据线路方向信息（各方向的始发站、终到站）判断一段乘车 A→B 的行车方向。
+ * 线路可能是单线、环线或带支线，区间数据的书写顺序也不可靠，因此不依赖站序：
+ * 预先在每条线路自己的子图上求各站到每个方向始发站/终到站的最少站数，
+ * A→B 离该方向终到站更近、离始发站更远，即判定为该方向；无法区分时返回 null。
+ * 环线（线路上每站恰有两个相邻站）的始发/终到站两个方向都能到达，站数无法区分旋转方向，不做判断。
+ * 持有构建时的 RoutingGraph，站点编号只在该快照内解释。
+ */
+final class DirectionResolver {
+
+    private final RoutingGraph graph;
+    private final Map<String, List<Direction>> byLine;
+    private final String[] arcDirections;   // RoutingGraph 弧 -> 行车方向，无法判断为 null
+
+    private DirectionResolver(RoutingGraph graph, Map<String, List<Direction>> byLine) {
+        this.graph = graph;
+        this.byLine = byLine;
+        this.arcDirections = new String[graph.arcCount()];
+        for (int arc = 0; arc < arcDirections.length; arc++) {
+            List<Direction> directions = byLine.get(graph.lineId(graph.arcLine(arc)));
+            if (directions != null) arcDirections[arc] = resolve(directions, graph.arcFrom(arc), graph.arcTo(arc));
+        }
+    }
+
+    static DirectionResolver build(RoutingGraph graph, List<SubwayServiceImpl.LineDirectionInfo> infos) {
+        Map<String, List<Direction>> byLine = new HashMap<>();
+        if (infos != null) {
+            for (SubwayServiceImpl.LineDirectionInfo info : infos) {
+                int line = graph.lineIndex(info.getLineId());
+                if (line < 0 || info.getDirections() == null || isLoop(graph, line)) continue;
+                List<Direction> directions = new ArrayList<>();
+                for (SubwayServiceImpl.DirectionInfo di : info.getDirections()) {
+                    directions.add(new Direction(di.getDirection(),
+                            hopsFrom(graph, line, terminals(graph, di.getStartStation())),
+                            hopsFrom(graph, line, terminals(graph, di.getEndStation()))));
+                }
+                byLine.put(info.getLineId(), directions);
+            }
+        }
+        return new DirectionResolver(graph, byLine);
+    }
+
+    // 乘车段 fromName→toName（同一线路）的方向名称
+    String resolve(String lineId, String fromName, String toName) {
+        List<Direction> directions = byLine.getOrDefault(lineId, Collections.emptyList());
+        int from = graph.stationId(fromName);
+        int to = graph.stationId(toName);
+        if (from < 0 || to < 0 || from == to) return null;
+        return resolve(directions, from, to);
+    }
+
+    // 单个区间弧的方向名称（构建时预先计算），用于把按方向的实时停运映射到弧上
+    String arcDirection(int arc) {
+        return arcDirections[arc];
+    }
+
+    private static String resolve(List<Direction> directions, int from, int to) {
+        String best = null;
+        int bestScore = 0;
+        boolean tie = false;
+        for (Direction d : directions) {
+            int score = 0;
+            if (d.toEnd[from] >= 0 && d.toEnd[to] >= 0) score += d.toEnd[from] - d.toEnd[to];
+            if (d.toStart[from] >= 0 && d.toStart[to] >= 0) score += d.toStart[to] - d.toStart[from];
+            if (score > bestScore) {
+                best = d.name;
+                bestScore = score;
+                tie = false;
+            } else if (score == bestScore && score > 0) {
+                tie = true;
+            }
+        }
+        return tie ? null : best;
+    }
+
+    // 方向信息中的站点可能是单个站名，也可能是站名列表（如环线的多个折返站）
+    private static int[] terminals(RoutingGraph graph, Object value) {
+        List<Object> names = value instanceof List ? new ArrayList<>((List<?>) value) : Collections.singletonList(value);
+        int[] ids = new int[names.size()];
+        int count = 0;
+        for (Object name : names) {
+            int id = name instanceof String ? graph.stationId((String) name) : -1;
+            if (id >= 0) ids[count++] = id;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static boolean isLoop(RoutingGraph graph, int line) {
+        boolean any = false;
+        for (int station = 0; station < graph.stationCount(); station++) {
+            int degree = 0;
+            for (int arc = graph.firstArc(station), end = graph.endArc(station); arc < end; arc++) {
+                if (graph.arcLine(arc) == line) degree++;
+            }
+            if (degree == 0) continue;
+            if (degree != 2) return false;
+            any = true;
+        }
+        return any;
+    }
+
+    // 只沿指定线路的区间做多源 BFS，返回各站到最近源点的站数（不可达为 -1）
+    private static int[] hopsFrom(RoutingGraph graph, int line, int[] sources) {
+        int[] hops = new int[graph.stationCount()];
+        Arrays.fill(hops, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int s : sources) {
+            if (hops[s] < 0) {
+                hops[s] = 0;
+                queue.add(s);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            for (int arc = graph.firstArc(current), end = graph.endArc(current); arc < end; arc++) {
+                if (graph.arcLine(arc) != line) continue;
+                int next = graph.arcTo(arc);
+                if (hops[next] < 0) {
+                    hops[next] = hops[current] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        return hops;
+    }
+
+    private static final class Direction {
+        final String name;
+        final int[] toStart;
+        final int[] toEnd;
+
+        Direction(String name, int[] toStart, int[] toEnd) {
+            this.name = name;
+            this.toStart = toStart;
+            this.toEnd = toEnd;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.subway.service;
+
+import com.subway.model.Edge;
+import com.subway.model.Line;
+import com.subway.model.Station;
+import com.subway.service.diagnostics.GraphSwapEvent;
+import com.subway.service.routing.LineExpandedGraph;
+import com.subway.service.routing.RoutingGraph;
+import com.subway.service.timetable.CompressedTimetable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一份完整的路网数据：线路、站点、边、时刻表、方向信息及编译后的只读路网。
+ * 热加载时在后台构建新实例后整体替换；线路编辑在服务锁内原地修改并重建 routingGraph。
+ */
+class SubwayNetwork {
+
+    final String version;           // 数据版本（类路径内置数据为 "classpath"）
+    final String source;            // 数据来源描述
+    final LocalDateTime loadedAt;
+
+    final Map<String, Line> lines = new HashMap<>();
+    final Map<String, Station> stations = new HashMap<>();
+    final List<Edge> edges = new ArrayList<>();
+
+    // 时刻表数据（按等间隔段压缩）： dayType -> lineId -> direction -> stationName -> 发车序列
+    CompressedTimetable timetable = CompressedTimetable.empty();
+    // 线路方向信息（加载自 line_direction_startAndEnd.json）
+    List<SubwayServiceImpl.LineDirectionInfo> lineDirections;
+
+    // 由 stations/edges 编译出的只读路网，供查询线程无锁读取
+    volatile RoutingGraph routingGraph;
+    // 按方向信息判断乘车段的行车方向，随 routingGraph 一同重建
+    volatile DirectionResolver directionResolver;
+
+    // 内存估计用的单个对象大小（字节，按 64 位 JVM 压缩指针粗略估算，含对象头、名称字符串与所在容器的条目）
+    private static final long STATION_BYTES = 160;
+    private static final long EDGE_BYTES = 48;
+    private static final long LINE_BYTES = 256;
+    private static final long GRAPH_STATION_BYTES = 96;   // 站名数组与名称索引
+    private static final long GRAPH_ARC_BYTES = 32;       // from/to/line/time/distance/edge
+    private static final long EXPANDED_NODE_BYTES = 20;
+    private static final long EXPANDED_ARC_BYTES = 17;    // from/to/origin/kind + 入弧索引
+
+    SubwayNetwork(String version, String source) {
+        this.version = version;
+        this.source = source;
+        this.loadedAt = LocalDateTime.now();
+    }
+
+    // 路网快照的内存占用估计：对象模型 + 编译后的路网（含线路展开图、换乘索引、方向判断表）+ 压缩时刻表；不含结果缓存
+    long estimatedBytes() {
+        RoutingGraph graph = routingGraph;
+        LineExpandedGraph expanded = graph.lineExpanded();
+        int expandedNodes = expanded.nodeCount();
+        int expandedArcs = expandedNodes == 0 ? 0 : expanded.endArc(expandedNodes - 1);
+        int directions = 0;
+        if (lineDirections != null) {
+            for (SubwayServiceImpl.LineDirectionInfo info : lineDirections) {
+                if (info.getDirections() != null) directions += info.getDirections().size();
+            }
+        }
+        return stations.size() * STATION_BYTES + edges.size() * EDGE_BYTES + lines.size() * LINE_BYTES
+                + graph.stationCount() * GRAPH_STATION_BYTES + graph.arcCount() * GRAPH_ARC_BYTES
+                + expandedNodes * EXPANDED_NODE_BYTES + expandedArcs * EXPANDED_ARC_BYTES
+                + graph.transferIndex().estimatedBytes() + graph.lineOffsets().estimatedBytes()
+                + directions * 2L * Integer.BYTES * graph.stationCount()
+                + timetable.compressedBytes();
+    }
+
+    // reason 见 GraphSwapEvent 中的常量，仅用于诊断事件
+    void rebuildRoutingGraph(String reason) {
+        GraphSwapEvent event = new GraphSwapEvent();
+        event.begin();
+        RoutingGraph graph = RoutingGraph.build(stations.values(), edges);
+        directionResolver = DirectionResolver.build(graph, lineDirections);
+        routingGraph = graph;
+        event.end();
+        if (event.shouldCommit()) {
+            event.reason = reason;
+            event.version = version;
+            event.stations = graph.stationCount();
+            event.arcs = graph.arcCount();
+            event.expandedNodes = graph.lineExpanded().nodeCount();
+            event.commit();
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package com.subway.service;
 
+import com.subway.model.LegCost;
 import com.subway.model.Line;
 import com.subway.model.PathResult;
+import com.subway.model.RouteOptions;
 import com.subway.model.Station;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface SubwayService {
     void loadData();
+    void reloadData(Path dataDir, String version);
+    String getDataVersion();
+    Map<String, Object> getStatus();
     void addLine(Line line);
     void deleteLine(String lineId);
     PathResult findShortestTimePath(String start, String end, String dayType, LocalDateTime currentTime);
     PathResult findLeastTransferPath(String start, String end, String dayType, LocalDateTime currentTime);
+    PathResult findShortestTimePath(String start, String end, String dayType, LocalDateTime currentTime, RouteOptions options);
+    PathResult findLeastTransferPath(String start, String end, String dayType, LocalDateTime currentTime, RouteOptions options);
+    TravelMatrixJob prepareTravelMatrix(List<String> origins, List<String> destinations, String dayType, LocalDateTime queryTime);
+    List<List<LegCost>> legCosts(List<String> sources, List<String> targets);
+    PathResult findPartitionLegPath(String start, String end, String dayType, LocalDateTime currentTime);
     List<Line> getAllLines();
     List<Station> getAllStations();
 }
\ No newline at end of file
@@ -3,50 +3,179 @@ package com.subway.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.subway.model.Edge;
+import com.subway.model.LegCost;
 import com.subway.model.Line;
+import com.subway.model.PathLeg;
 import com.subway.model.PathResult;
 import com.subway.model.PathSegment;
+import com.subway.model.RouteOptions;
 import com.subway.model.Station;
+import com.subway.model.TravelMatrixRow;
+import com.subway.service.cache.RouteCache;
+import com.subway.service.diagnostics.GraphSwapEvent;
+import com.subway.service.diagnostics.RouteQueryEvent;
+import com.subway.service.diagnostics.TimetableLookupEvent;
+import com.subway.service.journal.LineEditJournal;
+import com.subway.service.journal.LineEditRecord;
+import com.subway.service.realtime.LineOverlay;
+import com.subway.service.realtime.LiveOverlays;
+import com.subway.service.routing.ArriveBySearch;
+import com.subway.service.routing.Closures;
+import com.subway.service.routing.LeastTransferSearch;
+import com.subway.service.routing.LineExpandedGraph;
+import com.subway.service.routing.RoutingGraph;
+import com.subway.service.routing.SearchWorkspace;
+import com.subway.service.routing.ShortestPathSearch;
+import com.subway.service.timetable.CompressedTimetable;
+import com.subway.service.timetable.DepartureSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 @Service
+@Lazy(false) // 路径查询核心，启动时即加载路网数据（即使开启了全局懒加载）
+@DependsOn("flightRecording") // JFR 记录先于路网加载开始，首次 GraphSwap 事件也能记录到
 public class SubwayServiceImpl implements SubwayService {
 
-    private Map<String, Line> lines = new HashMap<>();
-    private Map<String, Station> stations = new HashMap<>();
-    private List<Edge> edges = new ArrayList<>();
+    private static final String CLASSPATH_VERSION = "classpath";
 
-    private static final double DEFAULT_SPEED = 40.0; // km/h
-    private static final int DEFAULT_TRANSFER_TIME = 5; // 分钟
-    private static final int STATION_STOP_TIME = 1;       // 除始发站外每站停留时间
+    // 出行矩阵专用并行线程池，避免占用公共 ForkJoinPool
+    private static final ForkJoinPool MATRIX_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // 当前生效的路网数据；热加载时整体替换，查询开始时读取一次并在整个查询中使用
+    private volatile SubwayNetwork network;
 
-    // 时刻表数据： dayType -> lineId -> direction -> stationName -> Object（可能为 Map<String,String> 或 String）
-    private Map<String, Map<String, Map<String, Object>>> departureTimes;
-    // 线路方向信息（加载自 line_direction_startAndEnd.json）
-    private List<LineDirectionInfo> lineDirections;
+    private static final double DEFAULT_SPEED = 40.0; // km/h
+    public static final int DEFAULT_TRANSFER_TIME = 5; // 分钟
+    public static final int STATION_STOP_TIME = 1;       // 除始发站外每站停留时间
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+    // 运营日按分钟计：04:30 首班至次日 01:00（与 isNoServicePeriod 一致），次日凌晨记为 1440 之后
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int SERVICE_START_MINUTE = 4 * 60 + 30;
+    private static final int SERVICE_END_MINUTE = MINUTES_PER_DAY + 60;
 
-    // 用于扩展状态空间搜索记录最终最少换乘次数
-    private int lastLeastTransfer = 0;
+    // 线路编辑持久化日志（可为空，表示不持久化）
+    private final LineEditJournal editJournal;
+    // 实时晚点与停运信息（可为空，表示只按静态时刻表计算）
+    private final LiveOverlays liveOverlays;
+    private final RouteCache routeCache;
 
     public SubwayServiceImpl() {
-        loadData();
+        this(null, null, new RouteCache(RouteCache.DEFAULT_CAPACITY));
+    }
+
+    @Autowired
+    public SubwayServiceImpl(LineEditJournal editJournal, LiveOverlays liveOverlays, RouteCache routeCache) {
+        this(editJournal, liveOverlays, routeCache, true);
+    }
+
+    private SubwayServiceImpl(LineEditJournal editJournal, LiveOverlays liveOverlays, RouteCache routeCache,
+                              boolean loadClasspath) {
+        this.editJournal = editJournal;
+        this.liveOverlays = liveOverlays;
+        this.routeCache = routeCache;
+        if (liveOverlays != null) {
+            // 晚点只改变首段等待时间；停运可能影响经过该线路的任何结果
+            liveOverlays.addListener((lineId, suspensionChanged) -> {
+                if (suspensionChanged) routeCache.invalidateLine(lineId);
+                else routeCache.invalidateFirstLine(lineId);
+            });
+        }
+        if (editJournal != null && editJournal.isEnabled()) {
+            editJournal.recover();
+        }
+        if (loadClasspath) loadData();
+    }
+
+    // 多路网托管（NetworkRegistry）中的一个路网：从目录加载，使用独立的结果缓存，不持久化编辑、不接入实时数据
+    public static SubwayServiceImpl fromDirectory(Path dataDir, String version, int cacheCapacity) {
+        SubwayServiceImpl service = new SubwayServiceImpl(null, null, new RouteCache(cacheCapacity), false);
+        service.reloadData(dataDir, version);
+        return service;
+    }
+
+    // 当前路网快照的内存占用估计（字节）
+    public long estimatedBytes() {
+        return network.estimatedBytes();
     }
 
     @Override
     public void loadData() {
+        installNetwork(loadNetwork(CLASSPATH_VERSION, "classpath:data/",
+                name -> new ClassPathResource("data/" + name)));
+    }
+
+    @Override
+    public void reloadData(Path dataDir, String version) {
+        long start = System.currentTimeMillis();
+        SubwayNetwork fresh = loadNetwork(version, dataDir.toAbsolutePath().toString(),
+                name -> new FileSystemResource(dataDir.resolve(name)));
+        installNetwork(fresh);
+        System.out.println("路网数据热加载完成：版本 " + version + "，耗时 " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Override
+    public String getDataVersion() {
+        return network.version;
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        SubwayNetwork net = network;
+        RoutingGraph graph = net.routingGraph;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("version", net.version);
+        status.put("source", net.source);
+        status.put("loadedAt", net.loadedAt.toString());
+        status.put("lines", graph.lineCount());
+        status.put("stations", graph.stationCount());
+        status.put("edges", graph.arcCount());
+        status.put("timetable", net.timetable.stats());
+        status.put("estimatedBytes", net.estimatedBytes());
+        status.put("routeCache", routeCache.stats());
+        if (liveOverlays != null) status.put("realtime", liveOverlays.snapshot());
+        return status;
+    }
+
+    // 重放已持久化的线路编辑、编译路网后替换当前路网（耗时的文件解析已在调用前完成）
+    private synchronized void installNetwork(SubwayNetwork fresh) {
+        if (editJournal != null) {
+            replayEdits(fresh, editJournal.currentEdits());
+        }
+        fresh.rebuildRoutingGraph(GraphSwapEvent.LOAD);
+        network = fresh;
+        routeCache.clear();
+    }
+
+    // 从数据源（类路径或目录）读取四个数据文件，构造新的路网数据
+    private SubwayNetwork loadNetwork(String version, String sourceName, Function<String, Resource> source) {
+        SubwayNetwork net = new SubwayNetwork(version, sourceName);
+        Map<String, Line> lines = net.lines;
+        Map<String, Station> stations = net.stations;
+        List<Edge> edges = net.edges;
         ObjectMapper mapper = new ObjectMapper();
         try {
             // 1. 加载线路数据
-            InputStream linesStream = new ClassPathResource("data/subway_lines_final.json").getInputStream();
+            InputStream linesStream = source.apply("subway_lines_final.json").getInputStream();
             List<String> lineIds = mapper.readValue(linesStream, new TypeReference<List<String>>() {});
             for (String lineId : lineIds) {
                 Line line = new Line();
@@ -59,7 +188,7 @@ public class SubwayServiceImpl implements SubwayService {
             System.out.println("Loaded Lines: " + lines.size());
 
             // 2. 加载站间距离数据，并构造边，同时更新站点和线路中的站点列表
-            InputStream distancesStream = new ClassPathResource("data/station_distance_final.json").getInputStream();
+            InputStream distancesStream = source.apply("station_distance_final.json").getInputStream();
             Map<String, List<Map<String, Object>>> distanceMap = mapper.readValue(distancesStream,
                     new TypeReference<Map<String, List<Map<String, Object>>>>() {});
             for (String lineId : lineIds) {
@@ -128,44 +257,102 @@ public class SubwayServiceImpl implements SubwayService {
             System.out.println("Loaded Stations: " + stations.size());
             System.out.println("Loaded Edges: " + edges.size());
 
-            // 3. 加载时刻表数据
-            InputStream timesStream = new ClassPathResource("data/parsed_departure_times.json").getInputStream();
-            departureTimes = mapper.readValue(timesStream,
-                    new TypeReference<Map<String, Map<String, Map<String, Object>>>>() {});
-            System.out.println("Loaded Departure Times");
-            // 输出部分调试信息
-            Map<String, Map<String, Object>> dayTable = departureTimes.get("工作日");
-            if (dayTable != null) {
-                Object lineDataObj = dayTable.get("1号线/八通线");
-                if (lineDataObj instanceof Map) {
-                    Map<String, Object> lineData = (Map<String, Object>) lineDataObj;
-                    Object eastDataObj = lineData.get("东行");
-                    if (eastDataObj instanceof Map) {
-                        Map<String, Object> eastData = (Map<String, Object>) eastDataObj;
-                        Object ancientCityData = eastData.get("古城");
-                        System.out.println("【工作日 - 1号线/八通线 - 东行 - 古城】: " + ancientCityData);
-                    }
-                }
+            // 3. 加载时刻表数据（流式解析并压缩为等间隔段）
+            try (InputStream timesStream = source.apply("parsed_departure_times.json").getInputStream()) {
+                net.timetable = CompressedTimetable.parse(timesStream);
             }
+            System.out.println("Loaded Departure Times: " + net.timetable.stats());
 
             // 4. 加载线路方向信息
-            InputStream dirStream = new ClassPathResource("data/line_direction_startAndEnd.json").getInputStream();
-            lineDirections = mapper.readValue(dirStream, new TypeReference<List<LineDirectionInfo>>() {});
+            InputStream dirStream = source.apply("line_direction_startAndEnd.json").getInputStream();
+            net.lineDirections = mapper.readValue(dirStream, new TypeReference<List<LineDirectionInfo>>() {});
             System.out.println("Loaded Line Direction Info");
 
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to load subway data: " + e.getMessage());
         }
+        return net;
     }
 
+    // 先写日志并等待落盘，成功后才在内存中生效：日志写入或刷盘失败时编辑不会上线，重启后也不会凭空消失
     @Override
     public void addLine(Line line) {
+        synchronized (this) {
+            SubwayNetwork net = network;
+            awaitJournal(journal(addLineRecord(net, line)));
+            applyAddLine(net, line);
+            net.rebuildRoutingGraph(GraphSwapEvent.ADD_LINE);
+            routeCache.clear();
+        }
+    }
+
+    @Override
+    public void deleteLine(String lineId) {
+        synchronized (this) {
+            SubwayNetwork net = network;
+            if (!net.lines.containsKey(lineId) && net.edges.stream().noneMatch(e -> e.getLineId().equals(lineId))) {
+                System.out.println("线路不存在，无需删除：" + lineId);
+                return;
+            }
+            awaitJournal(journal(LineEditRecord.delete(lineId)));
+            applyDeleteLine(net, lineId);
+            net.rebuildRoutingGraph(GraphSwapEvent.DELETE_LINE);
+            routeCache.clear();
+        }
+    }
+
+    // 写日志前完成新增线路的全部校验，并转换为日志记录（站名 + 站间距离）
+    private LineEditRecord addLineRecord(SubwayNetwork net, Line line) {
+        if (net.lines.containsKey(line.getLineId()))
+            throw new RuntimeException("线路 " + line.getLineId() + " 已存在");
+        List<?> rawStationList = line.getStations();
+        List<?> rawDistances = line.getDistances();
+        if (rawDistances == null || rawDistances.size() != rawStationList.size() - 1) {
+            throw new RuntimeException("站间距离数量不匹配：应为 " + (rawStationList.size() - 1) +
+                    " 个，实际为 " + (rawDistances == null ? 0 : rawDistances.size()) + " 个");
+        }
+        List<String> stationNames = new ArrayList<>();
+        for (Object obj : rawStationList) {
+            if (obj instanceof String) {
+                stationNames.add(((String) obj).trim());
+            } else if (obj instanceof Station) {
+                stationNames.add(((Station) obj).getName().trim());
+            } else {
+                throw new RuntimeException("无法解析站点数据: " + obj);
+            }
+        }
+        List<Double> distances = new ArrayList<>();
+        for (Object d : rawDistances) {
+            if (d instanceof Number) {
+                distances.add(((Number) d).doubleValue());
+            } else if (d instanceof String) {
+                distances.add(Double.parseDouble(((String) d).trim()));
+            } else {
+                throw new RuntimeException("无法解析站间距离数据: " + d);
+            }
+        }
+        return LineEditRecord.add(line.getLineId(), stationNames, distances, line.getSpeed());
+    }
+
+    // ---------- 线路编辑的内存生效与日志重放（调用方负责重建路网快照） ----------
+
+    private void applyAddLine(SubwayNetwork net, Line line) {
+        Map<String, Line> lines = net.lines;
+        Map<String, Station> stations = net.stations;
+        List<Edge> edges = net.edges;
         if (lines.containsKey(line.getLineId()))
             throw new RuntimeException("线路 " + line.getLineId() + " 已存在");
 
-        // 将传入的站点列表转换为 Station 对象集合
+        // 校验站间距离数量是否正确（站数应比距离多 1），在修改任何站点之前完成
         List<?> rawStationList = line.getStations();
+        List<?> rawDistances = line.getDistances();
+        if (rawDistances == null || rawDistances.size() != rawStationList.size() - 1) {
+            throw new RuntimeException("站间距离数量不匹配：应为 " + (rawStationList.size() - 1) +
+                    " 个，实际为 " + (rawDistances == null ? 0 : rawDistances.size()) + " 个");
+        }
+
+        // 将传入的站点列表转换为 Station 对象集合
         List<Station> newStations = new ArrayList<>();
         for (Object obj : rawStationList) {
             if (obj instanceof String) {
@@ -184,20 +371,24 @@ public class SubwayServiceImpl implements SubwayService {
                 }
                 newStations.add(station);
             } else if (obj instanceof Station) {
-                newStations.add((Station) obj);
+                // 控制器传入的 Station 仅含名称，按名称并入全局站点，与字符串形式保持一致
+                String stationName = ((Station) obj).getName().trim();
+                Station station = stations.computeIfAbsent(stationName, k -> {
+                    Station created = new Station();
+                    created.setName(k);
+                    created.setLineIds(new ArrayList<>());
+                    created.setIsTransfer(false);
+                    return created;
+                });
+                if (!station.getLineIds().contains(line.getLineId()))
+                    station.getLineIds().add(line.getLineId());
+                newStations.add(station);
             } else {
                 throw new RuntimeException("无法解析站点数据: " + obj);
             }
         }
         line.setStations(newStations);
 
-        // 校验站间距离数量是否正确（站数应比距离多 1）
-        List<?> rawDistances = line.getDistances();
-        if (rawDistances == null || rawDistances.size() != newStations.size() - 1) {
-            throw new RuntimeException("站间距离数量不匹配：应为 " + (newStations.size() - 1) +
-                    " 个，实际为 " + (rawDistances == null ? 0 : rawDistances.size()) + " 个");
-        }
-
         // 将新线路添加到全局线路 map
         lines.put(line.getLineId(), line);
 
@@ -236,25 +427,59 @@ public class SubwayServiceImpl implements SubwayService {
         System.out.println("添加线路成功，线路编号：" + line.getLineId());
     }
 
-    @Override
-    public void deleteLine(String lineId) {
-        lines.remove(lineId);
-        edges.removeIf(edge -> edge.getLineId().equals(lineId));
-        for (Station s : stations.values()) {
+    private void applyDeleteLine(SubwayNetwork net, String lineId) {
+        net.lines.remove(lineId);
+        net.edges.removeIf(edge -> edge.getLineId().equals(lineId));
+        for (Station s : net.stations.values()) {
             s.getLineIds().remove(lineId);
             s.setIsTransfer(s.getLineIds().size() > 1);
         }
         System.out.println("删除线路成功，线路编号：" + lineId);
     }
 
+    private long journal(LineEditRecord record) {
+        return editJournal == null ? -1 : editJournal.append(record);
+    }
+
+    private void awaitJournal(long seq) {
+        if (editJournal != null) editJournal.awaitDurable(seq);
+    }
+
+    // 按序把日志中的净编辑重放到指定路网（不再写回日志）
+    private void replayEdits(SubwayNetwork net, List<LineEditRecord> records) {
+        for (LineEditRecord record : records) {
+            try {
+                if (LineEditRecord.ADD.equals(record.getOp())) {
+                    Line line = new Line();
+                    line.setLineId(record.getLineId());
+                    line.setSpeed(record.getSpeed());
+                    List<Station> stationList = new ArrayList<>();
+                    for (String stationName : record.getStations()) {
+                        Station st = new Station();
+                        st.setName(stationName);
+                        stationList.add(st);
+                    }
+                    line.setStations(stationList);
+                    line.setDistances(new ArrayList<>(record.getDistances()));
+                    applyAddLine(net, line);
+                } else if (LineEditRecord.DELETE.equals(record.getOp())) {
+                    applyDeleteLine(net, record.getLineId());
+                }
+            } catch (RuntimeException e) {
+                System.out.println("重放线路编辑失败（seq=" + record.getSeq() + ", " + record.getOp() + " " +
+                        record.getLineId() + "）：" + e.getMessage());
+            }
+        }
+    }
+
     @Override
-    public List<Line> getAllLines() {
-        return new ArrayList<>(lines.values());
+    public synchronized List<Line> getAllLines() {
+        return new ArrayList<>(network.lines.values());
     }
 
     @Override
-    public List<Station> getAllStations() {
-        return new ArrayList<>(stations.values());
+    public synchronized List<Station> getAllStations() {
+        return new ArrayList<>(network.stations.values());
     }
 
     // ---------- 内部辅助方法 ----------
@@ -276,7 +501,6 @@ public class SubwayServiceImpl implements SubwayService {
         pr.setDepartureTime(queryTime);
         pr.setArrivalTime(queryTime);
         pr.setFare(0);
-        System.out.println("当前时段无列车服务");
         return pr;
     }
 
@@ -311,20 +535,20 @@ public class SubwayServiceImpl implements SubwayService {
         return departureTime.plusMinutes(totalTime);
     }
 
-    // 将边列表转换为调试用字符串
-    private String pathToString(List<Edge> path) {
-        return path.stream()
-                .map(e -> e.getFrom().getName() + " -> " + e.getTo().getName() + " (" + e.getLineId() + ")")
-                .reduce((a, b) -> a + ", " + b)
-                .orElse("Empty");
-    }
-
-    // 将边列表转换为 PathSegment 列表（用于前端展示）
-    private List<PathSegment> convertEdgesToSegments(List<Edge> edgeList) {
+    // 将边列表转换为 PathSegment 列表（用于前端展示），方向取自所在的合并行程段
+    private List<PathSegment> convertEdgesToSegments(List<Edge> edgeList, List<PathLeg> legs) {
         List<PathSegment> segments = new ArrayList<>();
+        int legIndex = 0;
+        int remaining = legs.isEmpty() ? Integer.MAX_VALUE : legs.get(0).getStations().size() - 1;
         for (Edge edge : edgeList) {
+            if (remaining == 0 && legIndex + 1 < legs.size()) {
+                legIndex++;
+                remaining = legs.get(legIndex).getStations().size() - 1;
+            }
+            remaining--;
             PathSegment segment = new PathSegment();
             segment.setLineId(edge.getLineId());
+            segment.setDirection(legs.isEmpty() ? null : legs.get(legIndex).getDirection());
             segment.setStartStation(edge.getFrom().getName());
             segment.setEndStation(edge.getTo().getName());
             segment.setTime((int) Math.round(edge.getTravelTime()));
@@ -333,194 +557,157 @@ public class SubwayServiceImpl implements SubwayService {
         return segments;
     }
 
-    // ---------- 传统 Dijkstra 算法查找最短时间路径 ----------
-    private List<Edge> findShortestPath(String startName, String endName) {
-        Map<Station, Double> distances = new HashMap<>();
-        Map<Station, Edge> previous = new HashMap<>();
-        PriorityQueue<Station> pq = new PriorityQueue<>(Comparator.comparingDouble(distances::get));
-        Set<Station> visited = new HashSet<>();
-        Station startObj = stations.get(startName);
-        Station endObj = stations.get(endName);
-        if (startObj == null || endObj == null) return Collections.emptyList();
-        distances.put(startObj, 0.0);
-        pq.add(startObj);
-        while (!pq.isEmpty()) {
-            Station current = pq.poll();
-            if (visited.contains(current)) continue;
-            visited.add(current);
-            if (current.equals(endObj)) break;
-            for (Edge edge : edges) {
-                if (edge.getFrom().equals(current)) {
-                    double transferTime = (previous.get(current) != null &&
-                            !previous.get(current).getLineId().equals(edge.getLineId()))
-                            ? DEFAULT_TRANSFER_TIME : 0;
-                    double newDist = distances.get(current) + edge.getTravelTime() + transferTime;
-                    if (newDist < distances.getOrDefault(edge.getTo(), Double.MAX_VALUE)) {
-                        distances.put(edge.getTo(), newDist);
-                        previous.put(edge.getTo(), edge);
-                        pq.add(edge.getTo());
-                    }
-                }
+    // 将同一线路的连续边合并为行程段：途经站、行车方向、相对出发时刻的整分钟偏移
+    // 偏移与 totalTime 口径一致：先等车，每个区间计运行时间与停站时间，换乘计 DEFAULT_TRANSFER_TIME
+    private List<PathLeg> buildLegs(SubwayNetwork net, List<Edge> path, int waitingTime) {
+        List<PathLeg> legs = new ArrayList<>();
+        DirectionResolver resolver = net.directionResolver;
+        double t = waitingTime;
+        int i = 0;
+        while (i < path.size()) {
+            String lineId = path.get(i).getLineId();
+            if (i > 0) t += DEFAULT_TRANSFER_TIME;
+            PathLeg leg = new PathLeg();
+            leg.setLineId(lineId);
+            leg.setDepartOffset((int) Math.round(t));
+            List<String> stops = leg.getStations();
+            stops.add(path.get(i).getFrom().getName());
+            int j = i;
+            while (j < path.size() && path.get(j).getLineId().equals(lineId)) {
+                t += path.get(j).getTravelTime() + STATION_STOP_TIME;
+                stops.add(path.get(j).getTo().getName());
+                j++;
             }
+            leg.setArriveOffset((int) Math.round(t));
+            if (resolver != null)
+                leg.setDirection(resolver.resolve(lineId, stops.get(0), stops.get(stops.size() - 1)));
+            legs.add(leg);
+            i = j;
         }
-        List<Edge> path = new ArrayList<>();
-        Station current = endObj;
-        while (previous.containsKey(current)) {
-            Edge edge = previous.get(current);
-            path.add(0, edge);
-            current = edge.getFrom();
-        }
-        return path;
+        return legs;
+    }
+
+    // 将查询中的关闭条件解析为当前路网上的位图，并叠加查询时刻生效的实时停运
+    private Closures resolveClosures(SubwayNetwork net, RouteOptions options, LocalDateTime queryTime) {
+        Closures closures = options == null || !options.hasClosures() ? Closures.NONE
+                : Closures.resolve(net.routingGraph, options.getClosedStations(), options.getClosedLines(),
+                        options.getClosedSegments());
+        return withSuspensions(net, closures, queryTime);
     }
 
-    // ---------- 扩展状态空间查找最少换乘路径 ----------
-    private List<Edge> findPathWithLeastTransfers(String startName, String endName) {
-        class TransferState {
-            Station station;
-            String currentLine;
-            int transfers;
-            double time;
-            TransferState prev;
-            Edge edge;
-            TransferState(Station station, String currentLine, int transfers, double time, TransferState prev, Edge edge) {
-                this.station = station;
-                this.currentLine = currentLine;
-                this.transfers = transfers;
-                this.time = time;
-                this.prev = prev;
-                this.edge = edge;
+    // 实时停运换算为关闭：全线停运或线路所有方向都停运时关闭整条线路，否则只关闭该方向的区间弧
+    // 方向无法判断的弧（如环线）不关闭，仍由首段等车时的停运检查兜底
+    private Closures withSuspensions(SubwayNetwork net, Closures closures, LocalDateTime queryTime) {
+        if (liveOverlays == null || liveOverlays.isEmpty()) return closures;
+        Map<String, Set<String>> suspended = liveOverlays.suspensionsAt(toEpochMillis(queryTime));
+        if (suspended.isEmpty()) return closures;
+        RoutingGraph graph = net.routingGraph;
+        DirectionResolver resolver = net.directionResolver;
+        BitSet lines = new BitSet(graph.lineCount());
+        BitSet arcs = new BitSet(graph.arcCount());
+        for (Map.Entry<String, Set<String>> entry : suspended.entrySet()) {
+            int line = graph.lineIndex(entry.getKey());
+            if (line < 0) continue;
+            Set<String> directions = entry.getValue();
+            if (directions.contains(LineOverlay.ALL_DIRECTIONS) || allDirections(net, entry.getKey(), directions)) {
+                lines.set(line);
+                continue;
             }
-            String getKey() {
-                return station.getName() + "_" + currentLine;
+            if (resolver == null) continue;
+            for (int arc = 0; arc < graph.arcCount(); arc++) {
+                if (graph.arcLine(arc) == line && directions.contains(resolver.arcDirection(arc))) arcs.set(arc);
             }
         }
-        Map<String, TransferState> bestState = new HashMap<>();
-        PriorityQueue<TransferState> pq = new PriorityQueue<>(Comparator.comparingDouble(s -> s.transfers * 100 + s.time));
-        Station startObj = stations.get(startName);
-        Station endObj = stations.get(endName);
-        if (startObj == null || endObj == null) {
-            System.out.println("Start or End station not found: " + startName + " -> " + endName);
-            return Collections.emptyList();
-        }
-        for (String lineId : startObj.getLineIds()) {
-            TransferState init = new TransferState(startObj, lineId, 0, 0.0, null, null);
-            bestState.put(init.getKey(), init);
-            pq.offer(init);
-            System.out.println("初始化状态：" + init.getKey() + ", transfers: " + init.transfers + ", time: " + init.time);
-        }
-        TransferState finalState = null;
-        while (!pq.isEmpty()) {
-            TransferState cur = pq.poll();
-            if (cur.station.equals(endObj)) {
-                finalState = cur;
-                break;
-            }
-            // 同站切换线路（计一次换乘）
-            for (String newLine : cur.station.getLineIds()) {
-                if (!cur.currentLine.equals(newLine)) {
-                    int newTransfers = cur.transfers + 1;
-                    double newTime = cur.time + DEFAULT_TRANSFER_TIME;
-                    TransferState switched = new TransferState(cur.station, newLine, newTransfers, newTime, cur, null);
-                    String key = switched.getKey();
-                    if (!bestState.containsKey(key) || newTransfers < bestState.get(key).transfers ||
-                            (newTransfers == bestState.get(key).transfers && newTime < bestState.get(key).time)) {
-                        bestState.put(key, switched);
-                        pq.offer(switched);
-                        System.out.println("线路切换：站点 " + cur.station.getName() +
-                                " 从 " + cur.currentLine + " 切换到 " + newLine +
-                                ", transfers: " + newTransfers + ", time: " + newTime);
-                    }
-                }
-            }
-            // 扩展：沿所有出边前进
-            for (Edge edge : edges) {
-                if (!edge.getFrom().equals(cur.station)) continue;
-                int addTransfer = cur.currentLine.equals(edge.getLineId()) ? 0 : 1;
-                int newTransfers = cur.transfers + addTransfer;
-                double newTime = cur.time + edge.getTravelTime() + (addTransfer > 0 ? DEFAULT_TRANSFER_TIME : 0);
-                TransferState next = new TransferState(edge.getTo(), edge.getLineId(), newTransfers, newTime, cur, edge);
-                String key = next.getKey();
-                if (!bestState.containsKey(key) ||
-                        newTransfers < bestState.get(key).transfers ||
-                        (newTransfers == bestState.get(key).transfers && newTime < bestState.get(key).time)) {
-                    bestState.put(key, next);
-                    pq.offer(next);
-                    System.out.println("扩展状态：" + edge.getFrom().getName() + " -> " +
-                            edge.getTo().getName() + " (" + edge.getLineId() + "), transfers: " +
-                            newTransfers + ", time: " + newTime);
-                }
+        return closures.plus(lines, arcs);
+    }
+
+    private boolean allDirections(SubwayNetwork net, String lineId, Set<String> directions) {
+        if (net.lineDirections == null) return false;
+        for (LineDirectionInfo info : net.lineDirections) {
+            if (!info.getLineId().equals(lineId) || info.getDirections() == null) continue;
+            for (DirectionInfo di : info.getDirections()) {
+                if (!directions.contains(di.getDirection())) return false;
             }
+            return !info.getDirections().isEmpty();
         }
-        if (finalState == null) return Collections.emptyList();
-        lastLeastTransfer = finalState.transfers;
-        List<Edge> path = new ArrayList<>();
-        TransferState cur = finalState;
-        while (cur.prev != null && cur.edge != null) {
-            path.add(0, cur.edge);
-            cur = cur.prev;
+        return false;
+    }
+
+    // 查询时刻有生效的实时停运时，结果依赖实时数据，不读写路径缓存
+    private boolean suspendedAt(LocalDateTime queryTime) {
+        if (liveOverlays == null || liveOverlays.isEmpty()) return false;
+        LocalDateTime at = queryTime != null ? queryTime : LocalDateTime.now();
+        return !liveOverlays.suspensionsAt(toEpochMillis(at)).isEmpty();
+    }
+
+    // ---------- Dijkstra 算法查找最短时间路径（int 编号 + 线程复用工作区） ----------
+    private List<Edge> findShortestPath(SubwayNetwork net, String startName, String endName, Closures closures) {
+        return ShortestPathSearch.findPath(net.routingGraph, startName, endName, DEFAULT_TRANSFER_TIME, closures);
+    }
+
+    // ---------- 按（换乘次数, 时间）字典序查找最少换乘路径 ----------
+    // 无关闭条件时用线路换乘索引只评估候选线路链；带关闭条件或索引无法给出结果时在线路展开图上搜索
+    private List<Edge> findPathWithLeastTransfers(SubwayNetwork net, String startName, String endName, Closures closures) {
+        RoutingGraph graph = net.routingGraph;
+        List<Edge> path = closures.isEmpty()
+                ? graph.transferIndex().findPath(startName, endName, DEFAULT_TRANSFER_TIME) : null;
+        if (path == null) {
+            path = LeastTransferSearch.findPath(graph, startName, endName, DEFAULT_TRANSFER_TIME, closures);
         }
-        System.out.println("最终最少换乘路径： " + pathToString(path) + ", transfers: " + lastLeastTransfer);
         return path;
     }
 
     // ---------- 根据时刻表计算等待时间（单位分钟） ----------
-    private int getWaitingTime(String dayType, String lineKey, String direction, String stationName, LocalTime queryTime) {
-        try {
-            Map<String, Map<String, Object>> dayTable = departureTimes.get(dayType);
-            if (dayTable == null) return 0;
-            Object lineTableObj = dayTable.get(lineKey);
-            if (!(lineTableObj instanceof Map)) return 0;
-            @SuppressWarnings("unchecked")
-            Map<String, Object> lineTable = (Map<String, Object>) lineTableObj;
-            Object directionObj = lineTable.get(direction);
-            if (!(directionObj instanceof Map)) return 0;
-            @SuppressWarnings("unchecked")
-            Map<String, Object> directionTable = (Map<String, Object>) directionObj;
-            Object obj = directionTable.get(stationName);
-            List<LocalTime> departures = new ArrayList<>();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            if (obj instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> stationTimesMap = (Map<String, String>) obj;
-                for (String timeStr : stationTimesMap.values()) {
-                    if (timeStr != null && !timeStr.trim().isEmpty())
-                        departures.add(LocalTime.parse(timeStr.trim(), formatter));
-                }
-            } else if (obj instanceof String) {
-                String timesStr = (String) obj;
-                String[] timeArr = timesStr.split(",");
-                for (String t : timeArr) {
-                    if (t != null && !t.trim().isEmpty())
-                        departures.add(LocalTime.parse(t.trim(), formatter));
-                }
-            } else {
-                return 0;
-            }
-            if (departures.isEmpty()) return 0;
-            Collections.sort(departures);
-            System.out.println("【" + stationName + "】所有发车时刻：" + departures);
-            if (queryTime.isBefore(departures.get(0))) {
-                System.out.println("查询时刻 " + queryTime + " 早于首班车 " + departures.get(0));
-                return -1;
-            }
-            for (LocalTime dep : departures) {
-                if (!dep.isBefore(queryTime)) {
-                    long wait = Duration.between(queryTime, dep).toMinutes();
-                    System.out.println("查询时刻 " + queryTime + " 下选定发车时刻：" + dep + ", 等待时间：" + wait + " 分钟");
-                    return (int) wait;
-                }
-            }
+    private int getWaitingTime(SubwayNetwork net, String dayType, String lineKey, String direction, String stationName, LocalDateTime queryDateTime) {
+        DepartureSeries departures = net.timetable.series(dayType, lineKey, direction, stationName);
+        if (departures == null || departures.isEmpty()) return 0;
+        TimetableLookupEvent event = new TimetableLookupEvent();
+        event.begin();
+        LocalTime queryTime = queryDateTime.toLocalTime();
+        long queryNanos = queryTime.toNanoOfDay();
+        int first = departures.first();
+        if (queryNanos < first * NANOS_PER_MINUTE) {
+            commitLookup(event, TimetableLookupEvent.NEXT, dayType, lineKey, direction, stationName,
+                    (int) (queryNanos / NANOS_PER_MINUTE), -1, false);
             return -1;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
         }
+        // 时刻表精确到分钟：查询时刻带秒时，同一分钟的班次已经开出
+        int minute = (int) ((queryNanos + NANOS_PER_MINUTE - 1) / NANOS_PER_MINUTE);
+        LineOverlay overlay = liveOverlays != null ? liveOverlays.get(lineKey) : null;
+        int dep = overlay == null ? departures.nextDeparture(minute)
+                : nextLiveDeparture(departures, overlay, direction, queryDateTime, minute);
+        commitLookup(event, TimetableLookupEvent.NEXT, dayType, lineKey, direction, stationName, minute, dep, overlay != null);
+        if (dep < 0) return -1;
+        int wait = (int) ((dep * NANOS_PER_MINUTE - queryNanos) / NANOS_PER_MINUTE);
+        return wait;
+    }
+
+    // 叠加实时晚点与停运后，不早于 minute 的下一班实际发车时刻（可能跨过午夜），没有返回 -1
+    private int nextLiveDeparture(DepartureSeries departures, LineOverlay overlay, String direction,
+                                  LocalDateTime queryDateTime, int minute) {
+        long queryMillis = toEpochMillis(queryDateTime);
+        LocalDateTime midnight = queryDateTime.toLocalDate().atStartOfDay();
+        int best = -1;
+        // 晚点的班次可能在计划时刻之后才开出，从 maxDelay 分钟之前的计划班次开始检查
+        for (int i = departures.ceilingIndex(minute - overlay.maxDelayMinutes(direction)); i < departures.size(); i++) {
+            int scheduled = departures.timeAt(i);
+            if (best >= 0 && scheduled >= best) break;
+            int actual = scheduled + overlay.delayMinutes(direction, departures.trainIdAt(i), queryMillis);
+            if (actual < minute) continue;
+            if (overlay.isSuspended(direction, toEpochMillis(midnight.plusMinutes(actual)))) continue;
+            if (best < 0 || actual < best) best = actual;
+        }
+        return best;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
     // ---------- 根据 lineId 和 stationName 查找方向信息 ----------
-    private DirectionInfo getDirectionForStation(String lineKey, String stationName) {
-        if (lineDirections == null) return null;
-        for (LineDirectionInfo ldi : lineDirections) {
+    private DirectionInfo getDirectionForStation(SubwayNetwork net, String lineKey, String stationName) {
+        if (net.lineDirections == null) return null;
+        for (LineDirectionInfo ldi : net.lineDirections) {
             if (ldi.getLineId().equals(lineKey)) {
                 for (DirectionInfo di : ldi.getDirections()) {
                     if (di.getStartStation() instanceof String) {
@@ -536,25 +723,60 @@ public class SubwayServiceImpl implements SubwayService {
     // ---------- 接口方法：查找最短时间路径 ----------
     @Override
     public PathResult findShortestTimePath(String start, String end, String dayType, LocalDateTime queryTime) {
-        System.out.println("findShortestTimePath 请求：start=" + start + ", end=" + end +
-                ", dayType=" + dayType + ", queryTime=" + queryTime);
-        LocalTime queryLocalTime = (queryTime != null) ? queryTime.toLocalTime() : LocalTime.now();
-        System.out.println("转换后的查询时刻 (LocalTime): " + queryLocalTime);
+        return findShortestTimePath(start, end, dayType, queryTime, null);
+    }
+
+    @Override
+    public PathResult findShortestTimePath(String start, String end, String dayType, LocalDateTime queryTime,
+                                           RouteOptions options) {
+        RouteQueryEvent event = new RouteQueryEvent();
+        event.begin();
+        PathResult result = shortestTimePath(start, end, dayType, queryTime, options, event);
+        return commitQuery(event, "shortest", start, end, dayType, options, result);
+    }
+
+    private PathResult shortestTimePath(String start, String end, String dayType, LocalDateTime queryTime,
+                                        RouteOptions options, RouteQueryEvent event) {
+        boolean uncached = (options != null && options.uncached()) || suspendedAt(queryTime);
+        if (options != null && options.isArriveBy()) {
+            if (uncached) return computeArriveByPath(start, end, dayType, queryTime, options, false);
+            return cachedPath("shortest-arrive-by", start, end, dayType, queryTime,
+                    () -> computeArriveByPath(start, end, dayType, queryTime, null, false), event);
+        }
+        if (uncached)
+            return computeShortestTimePath(start, end, dayType, queryTime, options, false);
+        return cachedPath("shortest", start, end, dayType, queryTime,
+                () -> computeShortestTimePath(start, end, dayType, queryTime, null, false), event);
+    }
+
+    // 分区路由的区域内路段：在线路展开图上按精确换乘语义搜索（与 legCosts 的代价一致），不走缓存；
+    // 覆盖图中的边界站代价按 TTL 缓存在协调器上，路段也不叠加实时停运，保持两者一致
+    @Override
+    public PathResult findPartitionLegPath(String start, String end, String dayType, LocalDateTime queryTime) {
+        return computeShortestTimePath(start, end, dayType, queryTime, null, true);
+    }
+
+    // exact 为 true 时在线路展开图上搜索，否则按站点级 Dijkstra（换乘按前驱边线路判定）
+    private PathResult computeShortestTimePath(String start, String end, String dayType, LocalDateTime queryTime,
+                                               RouteOptions options, boolean exact) {
+        LocalDateTime queryDateTime = (queryTime != null) ? queryTime : LocalDateTime.now();
+        LocalTime queryLocalTime = queryDateTime.toLocalTime();
         if (isNoServicePeriod(queryLocalTime))
             return noServiceResult(queryLocalTime);
 
-        List<Edge> path = findShortestPath(start, end);
+        SubwayNetwork net = network;
+        List<Edge> path = exact
+                ? LeastTransferSearch.findFastestPath(net.routingGraph, start, end, DEFAULT_TRANSFER_TIME, Closures.NONE)
+                : findShortestPath(net, start, end, resolveClosures(net, options, queryDateTime));
         if (path.isEmpty()) return null;
-        List<PathSegment> segments = convertEdgesToSegments(path);
         double travelTime = calculatePathTime(path);
         int waitingTime = 0;
         if (!path.isEmpty()) {
             String lineKey = path.get(0).getLineId();
-            DirectionInfo selectedDirection = getDirectionForStation(lineKey, path.get(0).getFrom().getName());
+            DirectionInfo selectedDirection = getDirectionForStation(net, lineKey, path.get(0).getFrom().getName());
             if (selectedDirection != null) {
                 String direction = selectedDirection.getDirection();
-                waitingTime = getWaitingTime(dayType, lineKey, direction, path.get(0).getFrom().getName(), queryLocalTime);
-                System.out.println("Waiting time: " + waitingTime + " minutes");
+                waitingTime = getWaitingTime(net, dayType, lineKey, direction, path.get(0).getFrom().getName(), queryDateTime);
                 if (waitingTime < 0)
                     return noServiceResult(queryLocalTime);
             }
@@ -562,12 +784,11 @@ public class SubwayServiceImpl implements SubwayService {
         int totalTime = (int) Math.round(travelTime + STATION_STOP_TIME * path.size() + waitingTime);
         double totalDistance = path.stream().mapToDouble(Edge::getDistance).sum();
         int fare = computeFare(totalDistance);
-        System.out.println("Shortest Path: " + pathToString(path) +
-                ", Total Time: " + totalTime +
-                ", Transfers: " + calculateTransfers(path) +
-                ", Fare: " + fare);
+        List<PathLeg> legs = buildLegs(net, path, waitingTime);
+        List<PathSegment> segments = convertEdgesToSegments(path, legs);
         PathResult result = new PathResult();
         result.setSegments(segments);
+        result.setLegs(legs);
         result.setTotalDistance(totalDistance);
         result.setTotalTime(totalTime);
         result.setTransferCount(calculateTransfers(path));
@@ -580,29 +801,57 @@ public class SubwayServiceImpl implements SubwayService {
     // ---------- 接口方法：查找最少换乘路径 ----------
     @Override
     public PathResult findLeastTransferPath(String start, String end, String dayType, LocalDateTime queryTime) {
-        System.out.println("findLeastTransferPath 请求：start=" + start + ", end=" + end +
-                ", dayType=" + dayType + ", queryTime=" + queryTime);
-        LocalTime queryLocalTime = (queryTime != null) ? queryTime.toLocalTime() : LocalTime.now();
-        System.out.println("转换后的查询时刻 (LocalTime): " + queryLocalTime);
+        return findLeastTransferPath(start, end, dayType, queryTime, null);
+    }
+
+    @Override
+    public PathResult findLeastTransferPath(String start, String end, String dayType, LocalDateTime queryTime,
+                                            RouteOptions options) {
+        RouteQueryEvent event = new RouteQueryEvent();
+        event.begin();
+        PathResult result = leastTransferPath(start, end, dayType, queryTime, options, event);
+        return commitQuery(event, "least-transfer", start, end, dayType, options, result);
+    }
+
+    private PathResult leastTransferPath(String start, String end, String dayType, LocalDateTime queryTime,
+                                         RouteOptions options, RouteQueryEvent event) {
+        boolean uncached = (options != null && options.uncached()) || suspendedAt(queryTime);
+        if (options != null && options.isArriveBy()) {
+            if (uncached) return computeArriveByPath(start, end, dayType, queryTime, options, true);
+            return cachedPath("least-transfer-arrive-by", start, end, dayType, queryTime,
+                    () -> computeArriveByPath(start, end, dayType, queryTime, null, true), event);
+        }
+        if (uncached)
+            return computeLeastTransferPath(start, end, dayType, queryTime, options);
+        return cachedPath("least-transfer", start, end, dayType, queryTime,
+                () -> computeLeastTransferPath(start, end, dayType, queryTime, null), event);
+    }
+
+    private PathResult computeLeastTransferPath(String start, String end, String dayType, LocalDateTime queryTime,
+                                                RouteOptions options) {
+        LocalDateTime queryDateTime = (queryTime != null) ? queryTime : LocalDateTime.now();
+        LocalTime queryLocalTime = queryDateTime.toLocalTime();
         if (isNoServicePeriod(queryLocalTime))
             return noServiceResult(queryLocalTime);
-        // 特殊处理：工作日沙河与知春里之间返回硬编码方案
-        if ("weekday".equals(dayType)) {
+        // 特殊处理：工作日沙河与知春里之间返回硬编码方案（带关闭条件或实时停运时按实际路网搜索）
+        SubwayNetwork net = network;
+        Closures closures = resolveClosures(net, options, queryDateTime);
+        if ("weekday".equals(dayType) && closures.isEmpty()) {
             if ("沙河".equals(start) && "知春里".equals(end)) {
                 return specialLeastTransferPathForward(queryLocalTime);
             } else if ("知春里".equals(start) && "沙河".equals(end)) {
                 return specialLeastTransferPathReverse(queryLocalTime);
             }
         }
-        List<Edge> path = findPathWithLeastTransfers(start, end);
+        List<Edge> path = findPathWithLeastTransfers(net, start, end, closures);
         if (path.isEmpty()) return null;
         int waitingTime = 0;
         if (!path.isEmpty()) {
             String lineKey = path.get(0).getLineId();
-            DirectionInfo selectedDirection = getDirectionForStation(lineKey, path.get(0).getFrom().getName());
+            DirectionInfo selectedDirection = getDirectionForStation(net, lineKey, path.get(0).getFrom().getName());
             if (selectedDirection != null) {
                 String direction = selectedDirection.getDirection();
-                waitingTime = getWaitingTime(dayType, lineKey, direction, path.get(0).getFrom().getName(), queryLocalTime);
+                waitingTime = getWaitingTime(net, dayType, lineKey, direction, path.get(0).getFrom().getName(), queryDateTime);
                 if (waitingTime < 0)
                     return noServiceResult(queryLocalTime);
             }
@@ -611,22 +860,328 @@ public class SubwayServiceImpl implements SubwayService {
         int totalTime = (int) Math.round(travelTime + STATION_STOP_TIME * path.size() + waitingTime);
         double totalDistance = path.stream().mapToDouble(Edge::getDistance).sum();
         int fare = computeFare(totalDistance);
-        List<PathSegment> segments = convertEdgesToSegments(path);
+        List<PathLeg> legs = buildLegs(net, path, waitingTime);
+        List<PathSegment> segments = convertEdgesToSegments(path, legs);
         PathResult result = new PathResult();
         result.setSegments(segments);
+        result.setLegs(legs);
         result.setTotalDistance(totalDistance);
-        result.setTransferCount(lastLeastTransfer);
+        result.setTransferCount(calculateTransfers(path));
         result.setTotalTime(totalTime);
         result.setDepartureTime(queryLocalTime);
         result.setArrivalTime(calculateArrivalTime(queryLocalTime, totalTime));
         result.setFare(fare);
-        System.out.println("Least Transfer Path: " + pathToString(path) +
-                ", Total Time: " + totalTime +
-                ", Transfers: " + result.getTransferCount() +
-                ", Fare: " + fare);
         return result;
     }
 
+    // ---------- 到达时刻约束：最晚出发方案 ----------
+    // 反向搜索一次得到起点各线路上车后的剩余时间，再在起点时刻表上取不晚于"到达时刻 - 剩余时间"的最晚一班
+    private PathResult computeArriveByPath(String start, String end, String dayType, LocalDateTime arriveBy,
+                                           RouteOptions options, boolean fewestTransfersFirst) {
+        LocalDateTime target = (arriveBy != null) ? arriveBy : LocalDateTime.now();
+        SubwayNetwork net = network;
+        List<ArriveBySearch.Candidate> candidates = ArriveBySearch.search(net.routingGraph, start, end,
+                DEFAULT_TRANSFER_TIME, STATION_STOP_TIME, resolveClosures(net, options, target), fewestTransfersFirst);
+        if (candidates.isEmpty()) return null;
+        // 01:00 之前的到达属于前一运营日（例如 00:40 到达可乘前一天 23:50 的末班车）
+        LocalDateTime serviceDay = target.toLocalDate().atStartOfDay();
+        if (target.toLocalTime().toSecondOfDay() < SERVICE_START_MINUTE * 60) serviceDay = serviceDay.minusDays(1);
+        int targetMinute = (int) Duration.between(serviceDay, target).toMinutes();
+
+        ArriveBySearch.Candidate best = null;
+        int bestDeparture = -1;
+        for (ArriveBySearch.Candidate candidate : candidates) {
+            // 与正向一致：到达时刻 = 出发时刻 + 四舍五入后的总时间
+            int latest = targetMinute - (int) Math.round(candidate.getRemaining());
+            String lineKey = candidate.getPath().get(0).getLineId();
+            DirectionInfo direction = getDirectionForStation(net, lineKey, start);
+            int departure = direction == null ? latestUntimetabledDeparture(latest)
+                    : latestDeparture(net, dayType, lineKey, direction.getDirection(), start, serviceDay, latest);
+            if (departure < 0) continue;
+            if (departure > bestDeparture
+                    || (departure == bestDeparture && candidate.getRemaining() < best.getRemaining())) {
+                best = candidate;
+                bestDeparture = departure;
+            }
+        }
+        if (best == null) return noServiceResult(target.toLocalTime());
+
+        List<Edge> path = best.getPath();
+        LocalTime departureTime = serviceDay.plusMinutes(bestDeparture).toLocalTime();
+        int totalTime = (int) Math.round(best.getRemaining());
+        double totalDistance = path.stream().mapToDouble(Edge::getDistance).sum();
+        int fare = computeFare(totalDistance);
+        List<PathLeg> legs = buildLegs(net, path, 0);
+        PathResult result = new PathResult();
+        result.setSegments(convertEdgesToSegments(path, legs));
+        result.setLegs(legs);
+        result.setTotalDistance(totalDistance);
+        result.setTotalTime(totalTime);
+        result.setTransferCount(calculateTransfers(path));
+        result.setDepartureTime(departureTime);
+        result.setArrivalTime(calculateArrivalTime(departureTime, totalTime));
+        result.setFare(fare);
+        return result;
+    }
+
+    // 起点无时刻表（非始发站）时随到随走：不晚于 latest，且落在运营时段内；返回运营日分钟，没有返回 -1
+    private int latestUntimetabledDeparture(int latest) {
+        if (latest < SERVICE_START_MINUTE) return -1;
+        return Math.min(latest, SERVICE_END_MINUTE - 1);
+    }
+
+    // 起点时刻表上不晚于 latest（运营日分钟）的最晚一班实际发车，叠加实时晚点与停运；没有返回 -1
+    private int latestDeparture(SubwayNetwork net, String dayType, String lineKey, String direction, String stationName,
+                                LocalDateTime serviceDay, int latest) {
+        DepartureSeries departures = net.timetable.series(dayType, lineKey, direction, stationName);
+        if (departures == null || departures.isEmpty()) return latestUntimetabledDeparture(latest);
+        TimetableLookupEvent event = new TimetableLookupEvent();
+        event.begin();
+        LineOverlay overlay = liveOverlays != null ? liveOverlays.get(lineKey) : null;
+        int departure = -1;
+        if (latest >= MINUTES_PER_DAY) {
+            // 先找次日凌晨（首班之前）的末班车，时刻表中记为 0 点之后的分钟
+            int d = latestInRange(departures, overlay, direction, serviceDay.plusDays(1),
+                    0, Math.min(latest - MINUTES_PER_DAY, SERVICE_START_MINUTE - 1));
+            if (d >= 0) departure = d + MINUTES_PER_DAY;
+        }
+        if (departure < 0) {
+            departure = latestInRange(departures, overlay, direction, serviceDay, SERVICE_START_MINUTE,
+                    Math.min(latest, MINUTES_PER_DAY - 1));
+        }
+        commitLookup(event, TimetableLookupEvent.LATEST, dayType, lineKey, direction, stationName, latest, departure, overlay != null);
+        return departure;
+    }
+
+    private static void commitLookup(TimetableLookupEvent event, String mode, String dayType, String lineKey, String direction,
+                                     String stationName, int queryMinute, int resultMinute, boolean live) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.mode = mode;
+        event.dayType = dayType;
+        event.lineId = lineKey;
+        event.direction = direction;
+        event.station = stationName;
+        event.queryMinute = queryMinute;
+        event.resultMinute = resultMinute;
+        event.live = live;
+        event.commit();
+    }
+
+    // [lo, hi] 分钟内最晚的实际发车时刻；晚点只会推后，从计划时刻 <= hi 的班次向前扫描
+    private int latestInRange(DepartureSeries departures, LineOverlay overlay, String direction,
+                              LocalDateTime midnight, int lo, int hi) {
+        if (hi < lo) return -1;
+        if (overlay == null) {
+            int d = departures.prevDeparture(hi);
+            return d >= lo ? d : -1;
+        }
+        int maxDelay = overlay.maxDelayMinutes(direction);
+        int best = -1;
+        for (int i = departures.floorIndex(hi); i >= 0; i--) {
+            int scheduled = departures.timeAt(i);
+            if (scheduled + maxDelay <= best || scheduled + maxDelay < lo) break;
+            int actual = scheduled + overlay.delayMinutes(direction, departures.trainIdAt(i),
+                    toEpochMillis(midnight.plusMinutes(scheduled)));
+            if (actual > hi || actual < lo) continue;
+            if (overlay.isSuspended(direction, toEpochMillis(midnight.plusMinutes(actual)))) continue;
+            best = Math.max(best, actual);
+        }
+        return best;
+    }
+
+    // 先查路径缓存；未命中时计算并写入（计算期间缓存被失效过则不写入）
+    private PathResult cachedPath(String engine, String start, String end, String dayType, LocalDateTime queryTime,
+                                  Supplier<PathResult> compute, RouteQueryEvent event) {
+        RouteCache.Key key = RouteCache.key(engine, start, end, dayType, queryTime);
+        PathResult cached = routeCache.get(key);
+        if (cached != null) {
+            event.cacheHit = true;
+            return cached;
+        }
+        long generation = routeCache.generation();
+        PathResult result = compute.get();
+        routeCache.put(key, result, generation);
+        return result;
+    }
+
+    // 提交路径查询的 JFR 事件并原样返回结果；事件未启用时不填充字段
+    private PathResult commitQuery(RouteQueryEvent event, String engine, String start, String end, String dayType,
+                                   RouteOptions options, PathResult result) {
+        event.end();
+        if (event.shouldCommit()) {
+            RoutingGraph graph = network.routingGraph;
+            event.engine = engine;
+            event.startStation = start;
+            event.endStation = end;
+            event.startId = graph.stationId(start);
+            event.endId = graph.stationId(end);
+            event.dayType = dayType;
+            event.arriveBy = options != null && options.isArriveBy();
+            event.closures = options != null && options.hasClosures();
+            event.found = result != null && !result.getSegments().isEmpty();
+            event.transfers = result != null ? result.getTransferCount() : 0;
+            event.totalTime = result != null ? result.getTotalTime() : 0;
+            event.commit();
+        }
+        return result;
+    }
+
+    // ---------- 接口方法：分区节点的站间代价（供分区路由协调器拼接跨分区路径） ----------
+    // 每个起点做一次一对多搜索，代价口径与最短时间搜索一致；不可达的组合为 null
+    @Override
+    public List<List<LegCost>> legCosts(List<String> sources, List<String> targets) {
+        RoutingGraph graph = network.routingGraph;
+        int[] sourceIds = resolveStations(graph, sources);
+        int[] targetIds = resolveStations(graph, targets);
+        LineExpandedGraph expanded = graph.lineExpanded();
+        List<List<LegCost>> rows = new ArrayList<>(sourceIds.length);
+        for (int i = 0; i < sourceIds.length; i++) {
+            SearchWorkspace ws = LeastTransferSearch.fastestFrom(graph, sourceIds[i], DEFAULT_TRANSFER_TIME);
+            List<LegCost> row = new ArrayList<>(targetIds.length);
+            for (int j = 0; j < targetIds.length; j++) {
+                int target = targetIds[j];
+                if (target != sourceIds[i] && !ws.reached(target)) {
+                    row.add(null);
+                    continue;
+                }
+                LegCost leg = new LegCost();
+                leg.setFrom(sources.get(i));
+                leg.setTo(targets.get(j));
+                leg.setCost(target == sourceIds[i] ? 0 : ws.dist(target));
+                int hops = 0;
+                double distance = 0;
+                if (target != sourceIds[i]) {
+                    // 沿展开图前驱弧回溯，只统计乘车弧
+                    for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(expanded.arcFrom(arc))) {
+                        int origin = expanded.arcOrigin(arc);
+                        if (origin < 0) continue;
+                        if (hops++ == 0) leg.setLastLine(graph.lineId(graph.arcLine(origin)));
+                        leg.setFirstLine(graph.lineId(graph.arcLine(origin)));
+                        distance += graph.arcDistance(origin);
+                    }
+                }
+                leg.setHops(hops);
+                leg.setDistance(distance);
+                row.add(leg);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // ---------- 接口方法：出行矩阵（一对多搜索并行计算） ----------
+    @Override
+    public TravelMatrixJob prepareTravelMatrix(List<String> origins, List<String> destinations,
+                                               String dayType, LocalDateTime queryTime) {
+        SubwayNetwork net = network;
+        RoutingGraph graph = net.routingGraph;
+        LocalDateTime queryDateTime = (queryTime != null) ? queryTime : LocalDateTime.now();
+        if (isNoServicePeriod(queryDateTime.toLocalTime()))
+            throw new IllegalArgumentException("当前时段无列车服务");
+        List<String> originNames = (origins == null || origins.isEmpty()) ? allStationNames(graph) : origins;
+        List<String> destinationNames = (destinations == null || destinations.isEmpty()) ? allStationNames(graph) : destinations;
+        int[] originIds = resolveStations(graph, originNames);
+        int[] destinationIds = resolveStations(graph, destinationNames);
+        Closures closures = withSuspensions(net, Closures.NONE, queryDateTime);
+        return new TravelMatrixJob() {
+            @Override
+            public List<String> getOrigins() {
+                return originNames;
+            }
+
+            @Override
+            public List<String> getDestinations() {
+                return destinationNames;
+            }
+
+            @Override
+            public void run(Consumer<TravelMatrixRow> sink) {
+                try {
+                    MATRIX_POOL.submit(() -> IntStream.range(0, originIds.length).parallel().forEach(i ->
+                            sink.accept(computeMatrixRow(net, originIds[i], destinationIds, dayType, queryDateTime, closures))
+                    )).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("出行矩阵计算被中断");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new RuntimeException("出行矩阵计算失败: " + cause.getMessage(), cause);
+                }
+            }
+        };
+    }
+
+    private List<String> allStationNames(RoutingGraph graph) {
+        List<String> names = new ArrayList<>(graph.stationCount());
+        for (int s = 0; s < graph.stationCount(); s++) {
+            names.add(graph.stationName(s));
+        }
+        return names;
+    }
+
+    private int[] resolveStations(RoutingGraph graph, List<String> names) {
+        int[] ids = new int[names.size()];
+        List<String> unknown = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.stationId(names.get(i));
+            if (ids[i] < 0) unknown.add(names.get(i));
+        }
+        if (!unknown.isEmpty())
+            throw new IllegalArgumentException("站点不存在: " + String.join(", ", unknown));
+        return ids;
+    }
+
+    // 单个起点的一行：总耗时口径与 findShortestTimePath 一致（行驶 + 换乘 + 停站 + 首班等待）
+    private TravelMatrixRow computeMatrixRow(SubwayNetwork net, int origin, int[] destinations,
+                                             String dayType, LocalDateTime queryTime, Closures closures) {
+        RoutingGraph graph = net.routingGraph;
+        SearchWorkspace ws = ShortestPathSearch.searchFrom(graph, origin, DEFAULT_TRANSFER_TIME, closures);
+        int[] times = new int[destinations.length];
+        int[] transfers = new int[destinations.length];
+        // 首段线路 -> 等待时间，同一起点内复用
+        Map<Integer, Integer> waitingByFirstArc = new HashMap<>();
+        String originName = graph.stationName(origin);
+        for (int i = 0; i < destinations.length; i++) {
+            int target = destinations[i];
+            if (target == origin || !ws.reached(target)) {
+                times[i] = target == origin ? 0 : -1;
+                transfers[i] = target == origin ? 0 : -1;
+                continue;
+            }
+            int hops = 0;
+            int lineChanges = 0;
+            int firstArc = -1;
+            int nextLine = -1;
+            for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(graph.arcFrom(arc))) {
+                hops++;
+                if (nextLine >= 0 && graph.arcLine(arc) != nextLine) lineChanges++;
+                nextLine = graph.arcLine(arc);
+                firstArc = arc;
+            }
+            int firstLineArc = firstArc;
+            int waitingTime = waitingByFirstArc.computeIfAbsent(graph.arcLine(firstLineArc), line -> {
+                String lineKey = graph.lineId(line);
+                DirectionInfo selectedDirection = getDirectionForStation(net, lineKey, originName);
+                if (selectedDirection == null) return 0;
+                return getWaitingTime(net, dayType, lineKey, selectedDirection.getDirection(), originName, queryTime);
+            });
+            if (waitingTime < 0) {
+                times[i] = -1;
+                transfers[i] = -1;
+                continue;
+            }
+            times[i] = (int) Math.round(ws.dist(target) + STATION_STOP_TIME * hops + waitingTime);
+            transfers[i] = lineChanges;
+        }
+        TravelMatrixRow row = new TravelMatrixRow();
+        row.setOrigin(originName);
+        row.setTimes(times);
+        row.setTransfers(transfers);
+        return row;
+    }
+
     // ---------- 票价计算规则 ----------
     // 票价规则：
     //   - 6公里以内（含）: 3元
@@ -634,7 +1189,7 @@ public class SubwayServiceImpl implements SubwayService {
     //   - 超过12公里至22公里（含）: 5元
     //   - 超过22公里至32公里（含）: 6元
     //   - 超过32公里: 6元基础上，每增加20公里加1元
-    private int computeFare(double distance) {
+    public static int computeFare(double distance) {
         if (distance <= 6) return 3;
         else if (distance <= 12) return 4;
         else if (distance <= 22) return 5;
@@ -644,7 +1199,6 @@ public class SubwayServiceImpl implements SubwayService {
 
     // ---------- 特殊硬编码方案：沙河与知春里之间 ----------
     private PathResult specialLeastTransferPathForward(LocalTime queryTime) {
-        System.out.println("特殊最少换乘方案（沙河 -> 知春里）");
         List<PathSegment> segments = new ArrayList<>();
         PathSegment seg1 = new PathSegment();
         seg1.setLineId("昌平线");
@@ -670,7 +1224,6 @@ public class SubwayServiceImpl implements SubwayService {
     }
 
     private PathResult specialLeastTransferPathReverse(LocalTime queryTime) {
-        System.out.println("特殊最少换乘方案（知春里 -> 沙河）");
         List<PathSegment> segments = new ArrayList<>();
         PathSegment seg1 = new PathSegment();
         seg1.setLineId("10号线");
@@ -0,0 +1,16 @@
+package com.subway.service;
+
+import com.subway.model.TravelMatrixRow;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 已校验参数、绑定到某一路网快照的出行矩阵计算任务。
+ * run() 在并行线程池上逐个起点做一对多搜索，每算完一行立即交给 sink（可能来自多个线程）。
+ */
+public interface TravelMatrixJob {
+    List<String> getOrigins();
+    List<String> getDestinations();
+    void run(Consumer<TravelMatrixRow> sink);
+}
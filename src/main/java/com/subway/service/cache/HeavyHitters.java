@@ -0,0 +1,197 @@
+package com.subway.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 热门查询组合 (起点, 终点, 日期类型) 的统计：Count-Min Sketch 估计每个组合的请求数，
+ * 另维护估计值最高的 K 个组合，供预热与 /hot-pairs 接口使用。
+ * 计数按半衰期指数衰减，采用前向衰减：新请求的权重随时间按 2^(t/半衰期) 增长，读取时除以当前权重，
+ * 等价于所有旧计数同时衰减，而不必定期扫描整个计数表；权重过大时整体归一化一次。
+ * Count-Min 使用保守更新（只抬高各行中的最小值），估计值只会偏高、不会偏低。
+ */
+@Component
+public class HeavyHitters {
+
+    public static final int DEPTH = 4;
+    public static final int WIDTH = 4096;
+
+    // 权重超过该值时归一化，避免 double 溢出
+    private static final double RENORMALIZE_ABOVE = 1e30;
+
+    private static final Comparator<Entry> BY_SCORE =
+            Comparator.comparingDouble((Entry e) -> e.score).thenComparingLong(e -> e.seq);
+
+    private final boolean enabled;
+    private final int topK;
+    private final double halfLifeMillis;
+
+    private final double[][] sketch = new double[DEPTH][WIDTH];
+    private final Map<String, Entry> top = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(BY_SCORE);
+    private long epochMillis = System.currentTimeMillis();   // 权重为 1 的基准时刻
+    private long nextSeq;
+    private long recorded;
+
+    public HeavyHitters(@Value("${subway.hot-pairs.enabled:true}") boolean enabled,
+                        @Value("${subway.hot-pairs.top-k:100}") int topK,
+                        @Value("${subway.hot-pairs.half-life-minutes:120}") double halfLifeMinutes) {
+        this.enabled = enabled;
+        this.topK = topK;
+        this.halfLifeMillis = halfLifeMinutes * 60_000d;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 记录一次查询；engine 为路径引擎（shortest / least-transfer），预热时按记录过的引擎计算
+    public synchronized void record(String engine, String start, String end, String dayType) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        double weight = weight(now);
+        if (weight > RENORMALIZE_ABOVE) {
+            renormalize(weight, now);
+            weight = 1;
+        }
+        String key = start + '\u0000' + end + '\u0000' + dayType;
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, sketch[row][bucket(h1, h2, row)]);
+        }
+        estimate += weight;
+        for (int row = 0; row < DEPTH; row++) {
+            int b = bucket(h1, h2, row);
+            if (sketch[row][b] < estimate) sketch[row][b] = estimate;
+        }
+        recorded++;
+        if (topK <= 0) return;
+
+        Entry entry = top.get(key);
+        if (entry != null) {
+            ranking.remove(entry);
+        } else if (top.size() < topK) {
+            entry = new Entry(start, end, dayType, nextSeq++);
+            top.put(key, entry);
+        } else {
+            Entry lowest = ranking.first();
+            if (lowest.score >= estimate) return;
+            ranking.pollFirst();
+            top.remove(lowest.key());
+            entry = new Entry(start, end, dayType, nextSeq++);
+            top.put(key, entry);
+        }
+        entry.score = estimate;
+        entry.engines.add(engine);
+        ranking.add(entry);
+    }
+
+    // 当前估计值最高的 limit 个组合，按估计值降序
+    public synchronized List<HotPair> top(int limit) {
+        double weight = weight(System.currentTimeMillis());
+        List<HotPair> result = new ArrayList<>();
+        for (Entry e : ranking.descendingSet()) {
+            if (result.size() >= limit) break;
+            result.add(new HotPair(e.start, e.end, e.dayType, new ArrayList<>(e.engines),
+                    Math.round(e.score / weight * 100) / 100.0));
+        }
+        return result;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("recorded", recorded);
+        stats.put("tracked", top.size());
+        stats.put("topK", topK);
+        stats.put("halfLifeMinutes", halfLifeMillis / 60_000d);
+        stats.put("sketch", DEPTH + "x" + WIDTH);
+        return stats;
+    }
+
+    private double weight(long now) {
+        if (halfLifeMillis <= 0) return 1;
+        return Math.pow(2, (now - epochMillis) / halfLifeMillis);
+    }
+
+    // 所有计数除以当前权重并把基准时刻移到 now；统一缩放不改变排名，但浮点舍入可能产生并列，重建排序集合
+    private void renormalize(double weight, long now) {
+        for (double[] row : sketch) {
+            for (int i = 0; i < row.length; i++) row[i] /= weight;
+        }
+        ranking.clear();
+        for (Entry e : top.values()) {
+            e.score /= weight;
+            ranking.add(e);
+        }
+        epochMillis = now;
+    }
+
+    private static int bucket(int h1, int h2, int row) {
+        return ((h1 + row * h2) & 0x7fffffff) % WIDTH;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Entry {
+        final String start;
+        final String end;
+        final String dayType;
+        final long seq;
+        final Set<String> engines = new LinkedHashSet<>();
+        double score;
+
+        Entry(String start, String end, String dayType, long seq) {
+            this.start = start;
+            this.end = end;
+            this.dayType = dayType;
+            this.seq = seq;
+        }
+
+        String key() {
+            return start + '\u0000' + end + '\u0000' + dayType;
+        }
+    }
+
+    // 对外输出的热门组合；count 为衰减后的请求数估计
+    public static final class HotPair {
+        private final String start;
+        private final String end;
+        private final String dayType;
+        private final List<String> engines;
+        private final double count;
+
+        HotPair(String start, String end, String dayType, List<String> engines, double count) {
+            this.start = start;
+            this.end = end;
+            this.dayType = dayType;
+            this.engines = engines;
+            this.count = count;
+        }
+
+        public String getStart() { return start; }
+        public String getEnd() { return end; }
+        public String getDayType() { return dayType; }
+        public List<String> getEngines() { return engines; }
+        public double getCount() { return count; }
+    }
+}
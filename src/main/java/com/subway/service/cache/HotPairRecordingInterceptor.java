@@ -0,0 +1,32 @@
+package com.subway.service.cache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// 成功的路径查询计入热门组合统计；带临时关闭条件的查询不走缓存，按到达时刻的查询不在预热范围内，均不计入
+public class HotPairRecordingInterceptor implements HandlerInterceptor {
+
+    private static final String DEFAULT_DAY_TYPE = "weekday"; // 与接口 dayType 参数的默认值一致
+
+    private final HeavyHitters hitters;
+
+    public HotPairRecordingInterceptor(HeavyHitters hitters) {
+        this.hitters = hitters;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (ex != null || response.getStatus() != 200) return;
+        String uri = request.getRequestURI();
+        String engine = uri.substring(uri.lastIndexOf('/') + 1);
+        String start = request.getParameter("start");
+        String end = request.getParameter("end");
+        if (start == null || end == null) return;
+        if (request.getParameter("closedStations") != null || request.getParameter("closedLines") != null
+                || request.getParameter("closedSegments") != null) return;
+        if (Boolean.parseBoolean(request.getParameter("arriveBy"))) return;
+        String dayType = request.getParameter("dayType");
+        hitters.record(engine, start, end, dayType != null ? dayType : DEFAULT_DAY_TYPE);
+    }
+}
@@ -0,0 +1,244 @@
+package com.subway.service.cache;
+
+import com.subway.model.PathResult;
+import com.subway.model.PathSegment;
+import com.subway.service.diagnostics.CacheAccessEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 路径查询结果缓存，键为 (引擎, 起点, 终点, 日期类型, 查询时刻)。
+ * 只缓存整分钟的查询时刻（接口传入的 HH:mm 都满足），带秒的查询等待时间各不相同，不缓存。
+ * 结果按线路建立索引，实时信息变化时只失效受影响的条目：
+ *   - 晚点只影响首段线路的等待时间，失效首段为该线路的条目；
+ *   - 停运或恢复失效所有经过该线路的条目。
+ * 路网本身变化（热加载、线路增删）时整体清空。
+ */
+@Component
+public class RouteCache {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final int capacity;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Key>> byFirstLine = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Key>> byLine = new ConcurrentHashMap<>();
+    // 插入顺序，超出容量时淘汰最早写入的条目；已被替换或删除的节点出队时丢弃
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    // 每次失效递增；计算期间发生过失效的结果不写入缓存，避免覆盖掉刚失效的新状态
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+
+    public RouteCache(@Value("${subway.cache.capacity:" + DEFAULT_CAPACITY + "}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    // 构造缓存键；查询时刻为空或不是整分钟时返回 null（表示不缓存）
+    public static Key key(String engine, String start, String end, String dayType, LocalDateTime queryTime) {
+        if (queryTime == null || queryTime.getSecond() != 0 || queryTime.getNano() != 0) return null;
+        return new Key(engine, start, end, dayType, queryTime);
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public PathResult get(Key key) {
+        if (key == null || capacity <= 0) return null;
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        Entry entry = entries.get(key);
+        if (entry == null) misses.incrementAndGet();
+        else hits.incrementAndGet();
+        commit(event, CacheAccessEvent.GET, key.engine, entry != null, entry != null ? 1 : 0);
+        return entry == null ? null : entry.result;
+    }
+
+    // 是否已缓存（不计入命中统计，供预热判断）
+    public boolean contains(Key key) {
+        return key != null && entries.containsKey(key);
+    }
+
+    // 写入结果；startGeneration 为开始计算前读取的 generation()
+    public void put(Key key, PathResult result, long startGeneration) {
+        if (key == null || capacity <= 0 || result == null || result.getSegments().isEmpty()) return;
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        String firstLine = result.getSegments().get(0).getLineId();
+        Set<String> lines = new LinkedHashSet<>();
+        for (PathSegment segment : result.getSegments()) {
+            lines.add(segment.getLineId());
+        }
+        Entry entry = new Entry(key, result, firstLine, lines);
+        Entry replaced = entries.put(key, entry);
+        if (replaced == null) size.incrementAndGet();
+        else unindex(replaced);
+        insertionOrder.add(entry);
+        queued.incrementAndGet();
+        byFirstLine.computeIfAbsent(firstLine, k -> ConcurrentHashMap.newKeySet()).add(key);
+        for (String line : lines) {
+            byLine.computeIfAbsent(line, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        boolean stale = generation.get() != startGeneration;
+        if (stale) {
+            remove(key);
+        }
+        evictOverflow();
+        commit(event, CacheAccessEvent.PUT, key.engine, false, stale ? 0 : 1);
+    }
+
+    // 晚点变化：失效首段为该线路的条目
+    public int invalidateFirstLine(String lineId) {
+        return invalidate(byFirstLine.get(lineId));
+    }
+
+    // 停运变化：失效经过该线路的条目
+    public int invalidateLine(String lineId) {
+        return invalidate(byLine.get(lineId));
+    }
+
+    public void clear() {
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        int cleared = size.get();
+        generation.incrementAndGet();
+        entries.clear();
+        byFirstLine.clear();
+        byLine.clear();
+        insertionOrder.clear();
+        queued.set(0);
+        size.set(0);
+        commit(event, CacheAccessEvent.CLEAR, null, false, cleared);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size.get());
+        stats.put("capacity", capacity);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidated", invalidated.get());
+        return stats;
+    }
+
+    private int invalidate(Set<Key> keys) {
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        generation.incrementAndGet();
+        int removed = 0;
+        if (keys != null) {
+            for (Key key : keys) {
+                if (remove(key)) removed++;
+            }
+            invalidated.addAndGet(removed);
+        }
+        commit(event, CacheAccessEvent.INVALIDATE, null, false, removed);
+        return removed;
+    }
+
+    private static void commit(CacheAccessEvent event, String operation, String engine, boolean hit, int affected) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.engine = engine;
+        event.hit = hit;
+        event.affected = affected;
+        event.commit();
+    }
+
+    // 超出容量时淘汰最早的条目；队列中失效节点过多时顺带清理，存活节点重新排到队尾
+    private void evictOverflow() {
+        while (size.get() > capacity || queued.get() > 2 * capacity) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) break;
+            queued.decrementAndGet();
+            if (entries.get(oldest.key) != oldest) continue;
+            if (size.get() > capacity) {
+                remove(oldest.key);
+            } else {
+                insertionOrder.add(oldest);
+                queued.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return false;
+        size.decrementAndGet();
+        unindex(entry);
+        return true;
+    }
+
+    private void unindex(Entry entry) {
+        Key key = entry.key;
+        Set<Key> first = byFirstLine.get(entry.firstLine);
+        if (first != null) first.remove(key);
+        for (String line : entry.lines) {
+            Set<Key> keys = byLine.get(line);
+            if (keys != null) keys.remove(key);
+        }
+    }
+
+    public static final class Key {
+        private final String engine;
+        private final String start;
+        private final String end;
+        private final String dayType;
+        private final LocalDateTime queryTime;
+        private final int hash;
+
+        private Key(String engine, String start, String end, String dayType, LocalDateTime queryTime) {
+            this.engine = engine;
+            this.start = start;
+            this.end = end;
+            this.dayType = dayType;
+            this.queryTime = queryTime;
+            this.hash = Objects.hash(engine, start, end, dayType, queryTime);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && engine.equals(k.engine) && Objects.equals(start, k.start)
+                    && Objects.equals(end, k.end) && Objects.equals(dayType, k.dayType)
+                    && queryTime.equals(k.queryTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final PathResult result;
+        final String firstLine;
+        final Set<String> lines;
+
+        Entry(Key key, PathResult result, String firstLine, Set<String> lines) {
+            this.key = key;
+            this.result = result;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.subway.service.cache;
+
+import com.subway.service.SubwayService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按热门组合预热路径缓存：定期取 HeavyHitters 的前若干组合，为接下来 lookahead 分钟内的
+ * 每个整分钟时刻（接口 queryTime 为 HH:mm，缓存键按整分钟）提前计算结果写入 RouteCache。
+ * 由近到远逐分钟处理，已在缓存中的跳过；每轮计算次数有上限，避免与在线查询争抢 CPU。
+ */
+@Component
+@Lazy(false) // 需要在启动时开始定期预热
+public class RoutePrewarmer {
+
+    private final SubwayService subwayService;
+    private final HeavyHitters hitters;
+    private final RouteCache routeCache;
+    private final boolean enabled;
+    private final int pairs;
+    private final int lookaheadMinutes;
+    private final long intervalMs;
+    private final int maxQueriesPerRun;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong warmed = new AtomicLong();
+    private final AtomicLong alreadyCached = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long lastRunMillis;
+    private ScheduledExecutorService scheduler;
+
+    public RoutePrewarmer(SubwayService subwayService, HeavyHitters hitters, RouteCache routeCache,
+                          @Value("${subway.prewarm.enabled:true}") boolean enabled,
+                          @Value("${subway.prewarm.pairs:50}") int pairs,
+                          @Value("${subway.prewarm.lookahead-minutes:10}") int lookaheadMinutes,
+                          @Value("${subway.prewarm.interval-ms:20000}") long intervalMs,
+                          @Value("${subway.prewarm.max-queries-per-run:500}") int maxQueriesPerRun) {
+        this.subwayService = subwayService;
+        this.hitters = hitters;
+        this.routeCache = routeCache;
+        this.enabled = enabled;
+        this.pairs = pairs;
+        this.lookaheadMinutes = lookaheadMinutes;
+        this.intervalMs = intervalMs;
+        this.maxQueriesPerRun = maxQueriesPerRun;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !hitters.isEnabled()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "route-prewarmer");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                System.out.println("缓存预热失败：" + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    // 预热 now 之后 lookahead 分钟内的时刻，返回本轮新计算的结果数
+    public int runOnce(LocalDateTime now) {
+        long begin = System.nanoTime();
+        List<HeavyHitters.HotPair> hot = hitters.top(pairs);
+        LocalTime base = now.toLocalTime().truncatedTo(ChronoUnit.MINUTES);
+        int computed = 0;
+        outer:
+        for (int minute = 1; minute <= lookaheadMinutes; minute++) {
+            // 与接口一致：HH:mm 总是落在当天日期上
+            LocalDateTime time = now.toLocalDate().atTime(base.plusMinutes(minute));
+            for (HeavyHitters.HotPair pair : hot) {
+                for (String engine : pair.getEngines()) {
+                    RouteCache.Key key = RouteCache.key(engine, pair.getStart(), pair.getEnd(), pair.getDayType(), time);
+                    if (routeCache.contains(key)) {
+                        alreadyCached.incrementAndGet();
+                        continue;
+                    }
+                    if (computed >= maxQueriesPerRun) break outer;
+                    computed++;
+                    try {
+                        if ("least-transfer".equals(engine)) {
+                            subwayService.findLeastTransferPath(pair.getStart(), pair.getEnd(), pair.getDayType(), time);
+                        } else {
+                            subwayService.findShortestTimePath(pair.getStart(), pair.getEnd(), pair.getDayType(), time);
+                        }
+                        warmed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        }
+        runs.incrementAndGet();
+        lastRunMillis = (System.nanoTime() - begin) / 1_000_000;
+        return computed;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled && hitters.isEnabled());
+        stats.put("pairs", pairs);
+        stats.put("lookaheadMinutes", lookaheadMinutes);
+        stats.put("runs", runs.get());
+        stats.put("warmed", warmed.get());
+        stats.put("alreadyCached", alreadyCached.get());
+        stats.put("failed", failed.get());
+        stats.put("lastRunMillis", lastRunMillis);
+        return stats;
+    }
+}
@@ -0,0 +1,30 @@
+package com.subway.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 路径缓存的读取、写入与失效
+@Name("com.subway.CacheAccess")
+@Label("Route Cache Access")
+@Category({"Subway", "Cache"})
+public class CacheAccessEvent extends Event {
+
+    public static final String GET = "get";
+    public static final String PUT = "put";
+    public static final String INVALIDATE = "invalidate";
+    public static final String CLEAR = "clear";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Hit")
+    public boolean hit;
+
+    @Label("Entries Affected")
+    public int affected;
+}
@@ -0,0 +1,88 @@
+package com.subway.service.diagnostics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * 进程内常驻的 JFR 记录（subway.jfr.enabled=true 时启用），使用随项目发布的 jfr/subway.jfc 配置。
+ * 记录按 max-age / max-size 滚动保留在磁盘仓库中，进程退出时写出到 subway.jfr.file；
+ * 运行期间也可用 jcmd &lt;pid&gt; JFR.dump name=subway filename=... 随时导出。
+ * 也可以不启用本组件，直接用 -XX:StartFlightRecording:settings=&lt;解压出的 subway.jfc&gt; 启动。
+ */
+@Component
+@Lazy(false) // 需要在启动时开始记录
+public class FlightRecording {
+
+    public static final String SETTINGS = "jfr/subway.jfc";
+    public static final String RECORDING_NAME = "subway";
+
+    private final boolean enabled;
+    private final String file;
+    private final long maxAgeMinutes;
+    private final long maxSizeMb;
+    private Recording recording;
+
+    public FlightRecording(@Value("${subway.jfr.enabled:false}") boolean enabled,
+                           @Value("${subway.jfr.file:jfr/subway.jfr}") String file,
+                           @Value("${subway.jfr.max-age-minutes:60}") long maxAgeMinutes,
+                           @Value("${subway.jfr.max-size-mb:256}") long maxSizeMb) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxAgeMinutes = maxAgeMinutes;
+        this.maxSizeMb = maxSizeMb;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        // 提前注册事件类型，使配置在第一条事件之前就能生效，并出现在记录的元数据中
+        FlightRecorder.register(RouteQueryEvent.class);
+        FlightRecorder.register(SearchPhaseEvent.class);
+        FlightRecorder.register(TimetableLookupEvent.class);
+        FlightRecorder.register(CacheAccessEvent.class);
+        FlightRecorder.register(GraphSwapEvent.class);
+        try (Reader reader = new InputStreamReader(new ClassPathResource(SETTINGS).getInputStream(), StandardCharsets.UTF_8)) {
+            Path destination = Paths.get(file).toAbsolutePath();
+            Files.createDirectories(destination.getParent());
+            Recording r = new Recording(Configuration.create(reader));
+            r.setName(RECORDING_NAME);
+            r.setToDisk(true);
+            r.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            r.setMaxSize(maxSizeMb * 1024 * 1024);
+            r.setDumpOnExit(true);
+            r.setDestination(destination);
+            r.start();
+            recording = r;
+            System.out.println("JFR 记录已启动：" + destination + "（保留 " + maxAgeMinutes + " 分钟 / " + maxSizeMb + " MB）");
+        } catch (IOException | ParseException e) {
+            System.out.println("无法启动 JFR 记录：" + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording == null) return;
+        try {
+            recording.stop();   // 设置了 destination，停止时写出文件
+        } catch (IllegalStateException ignored) {
+        }
+        recording.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.subway.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 编译只读路网并替换（热加载、线路增删），持续时间为编译耗时
+@Name("com.subway.GraphSwap")
+@Label("Routing Graph Swap")
+@Category({"Subway", "Network"})
+@Description("重新编译 RoutingGraph 与线路展开图")
+public class GraphSwapEvent extends Event {
+
+    public static final String LOAD = "load";
+    public static final String ADD_LINE = "add-line";
+    public static final String DELETE_LINE = "delete-line";
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Data Version")
+    public String version;
+
+    @Label("Stations")
+    public int stations;
+
+    @Label("Arcs")
+    public int arcs;
+
+    @Label("Expanded Nodes")
+    public int expandedNodes;
+}
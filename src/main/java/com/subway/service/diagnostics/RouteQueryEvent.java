@@ -0,0 +1,52 @@
+package com.subway.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 一次路径查询（接口方法入口到返回），包含缓存命中与否
+@Name("com.subway.RouteQuery")
+@Label("Route Query")
+@Category({"Subway", "Routing"})
+@Description("一次路径查询的完整耗时")
+public class RouteQueryEvent extends Event {
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Start Station")
+    public String startStation;
+
+    @Label("End Station")
+    public String endStation;
+
+    @Label("Start Station Id")
+    public int startId;
+
+    @Label("End Station Id")
+    public int endId;
+
+    @Label("Day Type")
+    public String dayType;
+
+    @Label("Arrive By")
+    public boolean arriveBy;
+
+    @Label("Closures")
+    public boolean closures;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Found")
+    public boolean found;
+
+    @Label("Transfers")
+    public int transfers;
+
+    @Label("Total Time")
+    @Description("结果总耗时（分钟）")
+    public int totalTime;
+}
@@ -0,0 +1,44 @@
+package com.subway.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 一次图搜索（Dijkstra / 分层搜索 / 反向搜索 / 一对多）
+@Name("com.subway.SearchPhase")
+@Label("Search Phase")
+@Category({"Subway", "Routing"})
+@Description("路网上的一次搜索及出堆节点数")
+public class SearchPhaseEvent extends Event {
+
+    public static final String STATION_DIJKSTRA = "station-dijkstra";
+    public static final String STATION_JUMP = "station-jump";
+    public static final String ONE_TO_ALL = "one-to-all";
+    public static final String EXPANDED_FASTEST = "expanded-fastest";
+    public static final String EXPANDED_ONE_TO_ALL = "expanded-one-to-all";
+    public static final String LEAST_TRANSFER = "least-transfer";
+    public static final String LINE_CHAIN = "line-chain";
+    public static final String ARRIVE_BY = "arrive-by";
+    public static final String ARRIVE_BY_LEAST_TRANSFER = "arrive-by-least-transfer";
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Source Id")
+    public int sourceId;
+
+    @Label("Target Id")
+    @Description("一对多搜索为 -1")
+    public int targetId;
+
+    @Label("Nodes Settled")
+    public int nodesSettled;
+
+    @Label("Graph Nodes")
+    public int graphNodes;
+
+    @Label("Path Edges")
+    public int pathEdges;
+}
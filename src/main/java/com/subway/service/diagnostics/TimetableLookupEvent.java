@@ -0,0 +1,43 @@
+package com.subway.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 起点站时刻表查询：正向取下一班（next）或到达时刻约束下取最晚一班（latest）
+@Name("com.subway.TimetableLookup")
+@Label("Timetable Lookup")
+@Category({"Subway", "Timetable"})
+@Description("时刻表发车查询（含实时晚点/停运叠加）")
+public class TimetableLookupEvent extends Event {
+
+    public static final String NEXT = "next";
+    public static final String LATEST = "latest";
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("Line")
+    public String lineId;
+
+    @Label("Direction")
+    public String direction;
+
+    @Label("Station")
+    public String station;
+
+    @Label("Day Type")
+    public String dayType;
+
+    @Label("Query Minute")
+    public int queryMinute;
+
+    @Label("Result Minute")
+    @Description("选定的发车时刻（分钟），没有可乘班次为 -1")
+    public int resultMinute;
+
+    @Label("Live Overlay")
+    public boolean live;
+}
@@ -0,0 +1,54 @@
+package com.subway.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * 日志与快照共用的帧格式：[int 负载长度][int CRC32][负载字节]。
+ * 读取时遇到长度越界、数据不完整或校验失败即视为残缺写入，停止在最后一个完整帧之后。
+ */
+final class JournalFrames {
+
+    static final int HEADER_BYTES = 8;
+    static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    private JournalFrames() {
+    }
+
+    static ByteBuffer encode(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    // 从 position 处读取一帧，返回负载；残缺或校验失败时返回 null
+    static byte[] read(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (!readFully(channel, header, position)) return null;
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) return null;
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (!readFully(channel, payload, position + HEADER_BYTES)) return null;
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if ((int) crc.getValue() != checksum) return null;
+        return payload.array();
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) return false;
+        }
+        return true;
+    }
+}
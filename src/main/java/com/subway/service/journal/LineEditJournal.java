@@ -0,0 +1,461 @@
+package com.subway.service.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 线路编辑的持久化日志：追加写入 + 批量 fsync（组提交）+ 定期压缩快照。
+ * <p>
+ * 目录结构：
+ * <ul>
+ *   <li>journal-&lt;首条序号&gt;.log：日志分段，每条记录一帧（见 {@link JournalFrames}）；</li>
+ *   <li>snapshot-&lt;覆盖到的序号&gt;.snap：压缩后的净编辑集合，单帧。</li>
+ * </ul>
+ * 启动时加载最新的有效快照，只重放其后的日志尾部；末尾残缺的帧被截断。
+ */
+@Component
+public class LineEditJournal {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long flushIntervalMs;
+    private final int snapshotEvery;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // 以下字段由 this 保护（writtenSeq 另供刷盘线程无锁读取）
+    private FileChannel segment;
+    private long nextSeq = 1;
+    private volatile long writtenSeq;
+    private int recordsSinceSnapshot;
+    private IOException writeFailure;     // 残缺帧无法截断后置位，此后拒绝追加
+    private final CompactedState state = new CompactedState();
+
+    // 以下字段由 durableLock 保护
+    private final Object durableLock = new Object();
+    private long durableSeq;
+    private IOException flushFailure;
+    private boolean running;
+    private Thread flusher;
+
+    public LineEditJournal(@Value("${subway.journal.enabled:false}") boolean enabled,
+                           @Value("${subway.journal.dir:journal}") String directory,
+                           @Value("${subway.journal.flush-interval-ms:5}") long flushIntervalMs,
+                           @Value("${subway.journal.snapshot-every:256}") int snapshotEvery) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.flushIntervalMs = flushIntervalMs;
+        this.snapshotEvery = Math.max(snapshotEvery, 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 打开日志目录并恢复编辑状态：加载快照、重放日志尾部、截断残缺写入。
+     * 之后可通过 {@link #currentEdits()} 取得需要重放到路网上的净编辑。
+     */
+    public synchronized void recover() {
+        if (!enabled) return;
+        try {
+            Files.createDirectories(directory);
+            long snapshotSeq = loadLatestSnapshot();
+            List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            int replayed = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                boolean last = i == segments.size() - 1;
+                replayed += replaySegment(segments.get(i), snapshotSeq, last);
+            }
+            writtenSeq = nextSeq - 1;
+            synchronized (durableLock) {
+                durableSeq = writtenSeq;
+            }
+            if (segments.isEmpty()) {
+                segment = openSegment(nextSeq);
+            } else {
+                segment = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE);
+                segment.position(segment.size());
+            }
+            startFlusher();
+            System.out.println("线路编辑日志恢复完成：快照序号 " + snapshotSeq + "，重放日志 " + replayed +
+                    " 条，净编辑 " + state.size() + " 条");
+        } catch (IOException e) {
+            throw new RuntimeException("线路编辑日志恢复失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 当前的净编辑序列（先删除、后按顺序新增），按序重放即可在基础数据上还原全部线路编辑。
+     * 启动和热加载新数据版本时都会使用。
+     */
+    public synchronized List<LineEditRecord> currentEdits() {
+        return state.toRecords();
+    }
+
+    /**
+     * 追加一条编辑记录并返回其序号（未启用时返回 -1）。
+     * 只写入页缓存，持久化由后台线程批量 fsync，调用方需再调用 {@link #awaitDurable(long)}。
+     */
+    public synchronized long append(LineEditRecord record) {
+        if (!enabled || segment == null) return -1;
+        if (writeFailure != null) {
+            throw new RuntimeException("线路编辑日志已停止写入: " + writeFailure.getMessage(), writeFailure);
+        }
+        record.setSeq(nextSeq);
+        ByteBuffer frame;
+        try {
+            frame = JournalFrames.encode(mapper.writeValueAsBytes(record));
+        } catch (IOException e) {
+            throw new RuntimeException("线路编辑记录序列化失败: " + e.getMessage(), e);
+        }
+        long start = -1;
+        try {
+            start = segment.position();
+            while (frame.hasRemaining()) {
+                segment.write(frame);
+            }
+        } catch (IOException e) {
+            // 写入中途失败：截回写入前的位置，避免残缺帧留在分段中间，使恢复时丢弃其后已确认的记录
+            discardTornFrame(start, e);
+            throw new RuntimeException("线路编辑日志写入失败: " + e.getMessage(), e);
+        }
+        nextSeq++;
+        writtenSeq = record.getSeq();
+        state.apply(record);
+        if (++recordsSinceSnapshot >= snapshotEvery) {
+            compact();
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+        return record.getSeq();
+    }
+
+    // 截断失败（或写入前的位置未知）时进入失败状态，此后的追加全部拒绝
+    private void discardTornFrame(long start, IOException cause) {
+        if (start >= 0) {
+            try {
+                segment.truncate(start);
+                segment.position(start);
+                return;
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        writeFailure = cause;
+        System.out.println("线路编辑日志无法截断残缺写入，停止接受编辑: " + cause.getMessage());
+    }
+
+    // 阻塞直到序号 seq 及之前的记录已落盘
+    public void awaitDurable(long seq) {
+        if (seq < 0) return;
+        synchronized (durableLock) {
+            while (durableSeq < seq) {
+                if (flushFailure != null) {
+                    throw new RuntimeException("线路编辑日志刷盘失败: " + flushFailure.getMessage(), flushFailure);
+                }
+                if (!running) {
+                    throw new RuntimeException("线路编辑日志已关闭");
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("等待线路编辑日志刷盘被中断");
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (durableLock) {
+            running = false;
+            durableLock.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (segment != null) {
+                try {
+                    segment.force(false);
+                    segment.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                segment = null;
+            }
+        }
+    }
+
+    // ---------- 组提交刷盘 ----------
+
+    private void startFlusher() {
+        synchronized (durableLock) {
+            running = true;
+        }
+        flusher = new Thread(this::flushLoop, "line-edit-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (durableLock) {
+                while (running && writtenSeq <= durableSeq) {
+                    try {
+                        durableLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+            }
+            // 短暂等待以便把并发到达的多条记录合并进同一次 fsync
+            if (flushIntervalMs > 0) {
+                try {
+                    Thread.sleep(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            long target;
+            IOException failure = null;
+            synchronized (this) {
+                target = writtenSeq;
+                try {
+                    if (segment != null) segment.force(false);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            synchronized (durableLock) {
+                if (failure != null) {
+                    flushFailure = failure;
+                } else {
+                    durableSeq = Math.max(durableSeq, target);
+                }
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    // ---------- 快照压缩 ----------
+
+    // 写出覆盖到 writtenSeq 的快照，切换到新日志分段，并删除已被覆盖的旧分段与旧快照
+    private void compact() {
+        try {
+            segment.force(false);
+            long covered = writtenSeq;
+            SnapshotPayload payload = new SnapshotPayload();
+            payload.setSeq(covered);
+            payload.setRecords(state.toRecords());
+            Path target = directory.resolve(fileName(SNAPSHOT_PREFIX, covered, SNAPSHOT_SUFFIX));
+            Path tmp = directory.resolve(target.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer frame = JournalFrames.encode(mapper.writeValueAsBytes(payload));
+                while (frame.hasRemaining()) {
+                    out.write(frame);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            FileChannel previous = segment;
+            segment = openSegment(covered + 1);
+            previous.close();
+            syncDirectory();
+            synchronized (durableLock) {
+                durableSeq = Math.max(durableSeq, covered);
+                durableLock.notifyAll();
+            }
+            for (Path old : listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (parseSeq(old, SEGMENT_PREFIX, SEGMENT_SUFFIX) <= covered) Files.deleteIfExists(old);
+            }
+            for (Path old : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (!old.equals(target)) Files.deleteIfExists(old);
+            }
+            recordsSinceSnapshot = 0;
+            System.out.println("线路编辑日志已压缩：快照序号 " + covered + "，净编辑 " + state.size() + " 条");
+        } catch (IOException e) {
+            // 压缩失败不影响日志本身的完整性，下次达到阈值时重试
+            e.printStackTrace();
+        }
+    }
+
+    // ---------- 恢复 ----------
+
+    private long loadLatestSnapshot() throws IOException {
+        List<Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                byte[] payload = JournalFrames.read(in, 0);
+                if (payload == null) {
+                    System.out.println("快照校验失败，忽略：" + path.getFileName());
+                    continue;
+                }
+                SnapshotPayload snapshot = mapper.readValue(payload, SnapshotPayload.class);
+                for (LineEditRecord record : snapshot.getRecords()) {
+                    state.apply(record);
+                }
+                nextSeq = snapshot.getSeq() + 1;
+                return snapshot.getSeq();
+            } catch (IOException e) {
+                System.out.println("快照读取失败，忽略：" + path.getFileName() + " (" + e.getMessage() + ")");
+            }
+        }
+        return 0;
+    }
+
+    // 重放一个日志分段中序号大于 snapshotSeq 的记录；最后一个分段的残缺尾部会被截断
+    private int replaySegment(Path path, long snapshotSeq, boolean last) throws IOException {
+        int replayed = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                byte[] payload = JournalFrames.read(channel, position);
+                LineEditRecord record = null;
+                if (payload != null) {
+                    try {
+                        record = mapper.readValue(payload, LineEditRecord.class);
+                    } catch (IOException e) {
+                        record = null;
+                    }
+                }
+                if (record == null) {
+                    if (last) {
+                        System.out.println("截断残缺日志：" + path.getFileName() + " 自偏移 " + position +
+                                "（丢弃 " + (size - position) + " 字节）");
+                        channel.truncate(position);
+                        channel.force(true);
+                    } else {
+                        System.out.println("日志分段损坏，跳过剩余部分：" + path.getFileName() + " 自偏移 " + position);
+                    }
+                    break;
+                }
+                position += JournalFrames.HEADER_BYTES + payload.length;
+                if (record.getSeq() <= snapshotSeq) continue;
+                state.apply(record);
+                nextSeq = Math.max(nextSeq, record.getSeq() + 1);
+                recordsSinceSnapshot++;
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    // ---------- 文件工具 ----------
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(fileName(SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        syncDirectory();
+        return channel;
+    }
+
+    private void syncDirectory() {
+        // 部分平台不支持对目录 fsync，失败时忽略
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted((a, b) -> Long.compare(parseSeq(a, prefix, suffix), parseSeq(b, prefix, suffix)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String fileName(String prefix, long seq, String suffix) {
+        return prefix + String.format("%020d", seq) + suffix;
+    }
+
+    private static long parseSeq(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---------- 净编辑集合 ----------
+
+    /**
+     * 把编辑序列折叠为等价的净编辑：被删除的原有线路集合 + 仍然存在的新增线路（保持新增顺序）。
+     * 新增后又删除的线路直接抵消。
+     */
+    static class CompactedState {
+        private final Set<String> deleted = new LinkedHashSet<>();
+        private final Map<String, LineEditRecord> added = new LinkedHashMap<>();
+
+        void apply(LineEditRecord record) {
+            if (LineEditRecord.ADD.equals(record.getOp())) {
+                added.put(record.getLineId(), record);
+            } else if (LineEditRecord.DELETE.equals(record.getOp())) {
+                if (added.remove(record.getLineId()) == null) {
+                    deleted.add(record.getLineId());
+                }
+            }
+        }
+
+        int size() {
+            return deleted.size() + added.size();
+        }
+
+        List<LineEditRecord> toRecords() {
+            List<LineEditRecord> records = new ArrayList<>();
+            for (String lineId : deleted) {
+                records.add(LineEditRecord.delete(lineId));
+            }
+            records.addAll(added.values());
+            return records;
+        }
+    }
+
+    @Data
+    static class SnapshotPayload {
+        private long seq;
+        private List<LineEditRecord> records = new ArrayList<>();
+    }
+}
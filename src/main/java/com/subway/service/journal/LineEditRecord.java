@@ -0,0 +1,38 @@
+package com.subway.service.journal;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 线路编辑日志中的一条记录：新增线路（含站点与站间距离）或删除线路
+@Data
+public class LineEditRecord {
+
+    public static final String ADD = "ADD";
+    public static final String DELETE = "DELETE";
+
+    private long seq;               // 日志序号，单调递增
+    private String op;              // ADD / DELETE
+    private String lineId;
+    private List<String> stations = new ArrayList<>();
+    private List<Double> distances = new ArrayList<>();
+    private double speed;
+
+    public static LineEditRecord add(String lineId, List<String> stations, List<Double> distances, double speed) {
+        LineEditRecord record = new LineEditRecord();
+        record.setOp(ADD);
+        record.setLineId(lineId);
+        record.setStations(stations);
+        record.setDistances(distances);
+        record.setSpeed(speed);
+        return record;
+    }
+
+    public static LineEditRecord delete(String lineId) {
+        LineEditRecord record = new LineEditRecord();
+        record.setOp(DELETE);
+        record.setLineId(lineId);
+        return record;
+    }
+}
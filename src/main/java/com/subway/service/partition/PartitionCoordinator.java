@@ -0,0 +1,386 @@
+package com.subway.service.partition;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subway.model.LegCost;
+import com.subway.model.PathResult;
+import com.subway.model.PathSegment;
+import com.subway.service.SubwayServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 分区路由协调器：按 PartitionPlan 把路网拆给多个分区节点（每个区域是某个节点上 NetworkRegistry 托管的一个路网），
+ * 自身只保存边界站覆盖图，不加载区域路网。
+ * <p>
+ * 覆盖图：节点为边界站，边为同一区域内两个边界站之间的最短时间代价，首次查询时向各分区节点批量请求
+ * （POST /networks/{区域}/partition/costs），超过 overlay-ttl-ms 或被 invalidateOverlay() 丢弃后重新拉取。
+ * 跨区域查询在覆盖图上做 Dijkstra：
+ * 起点 / 终点不是边界站时，先向其所在区域请求起点到本区域边界站（及同区域终点）、本区域边界站到终点的代价；
+ * 区域段代价由分区节点在线路展开图上精确计算；每条线路只属于一个区域，跨区域衔接必然换乘，
+ * 按前后两段的衔接线路是否相同加换乘时间即可得到与整网展开图搜索相同的最短时间。
+ * 选出区域段后，向各分区节点请求每段的路径（GET /networks/{区域}/partition/path，与代价同一搜索）并拼接：
+ * 总时间取首段的起点等车时间加各段代价、停站时间与段间换乘时间，最后统一取整。
+ */
+@Component
+public class PartitionCoordinator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<List<LegCost>>> COST_ROWS = new TypeReference<List<List<LegCost>>>() {};
+
+    private final PartitionPlan plan;
+    private final Map<String, String> nodes = new LinkedHashMap<>();            // 区域编号 -> 分区节点地址
+    private final Map<String, List<String>> stationRegions = new HashMap<>();   // 站点 -> 所属区域
+    private final Map<String, List<String>> regionBoundary = new HashMap<>();   // 区域 -> 其中的边界站
+    private final Set<String> boundary = new TreeSet<>();
+    private final HttpClient client;
+    private final Duration timeout;
+    private final long overlayTtlMs;
+    private volatile Map<String, List<RegionLeg>> overlay;                     // 边界站 -> 出发的覆盖图边
+    private volatile long overlayLoadedAt;
+
+    public PartitionCoordinator(@Value("${subway.partition.plan-file:}") String planFile,
+                                @Value("${subway.partition.nodes:}") String nodeList,
+                                @Value("${subway.partition.timeout-ms:5000}") long timeoutMs,
+                                @Value("${subway.partition.overlay-ttl-ms:300000}") long overlayTtlMs) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.overlayTtlMs = overlayTtlMs;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        if (planFile == null || planFile.trim().isEmpty()) {
+            this.plan = null;
+            return;
+        }
+        try {
+            this.plan = MAPPER.readValue(Paths.get(planFile.trim()).toFile(), PartitionPlan.class);
+        } catch (IOException e) {
+            throw new RuntimeException("无法读取分区方案 " + planFile + "：" + e.getMessage(), e);
+        }
+        // 节点地址：region-0=http://host:port,region-1=http://host:port，同一节点可托管多个区域
+        for (String entry : nodeList.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq < 0) continue;
+            nodes.put(entry.substring(0, eq).trim(), trimSlash(entry.substring(eq + 1).trim()));
+        }
+        boundary.addAll(plan.getBoundaryStations());
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            if (!nodes.containsKey(region.getId())) {
+                throw new RuntimeException("分区 " + region.getId() + " 未配置节点地址");
+            }
+            List<String> edge = new ArrayList<>();
+            for (String station : region.getStations()) {
+                stationRegions.computeIfAbsent(station, k -> new ArrayList<>()).add(region.getId());
+                if (boundary.contains(station)) edge.add(station);
+            }
+            regionBoundary.put(region.getId(), edge);
+        }
+        System.out.println("分区路由：" + plan.getRegions().size() + " 个区域，" + boundary.size() + " 个边界站，节点 " + nodes);
+    }
+
+    public boolean isEnabled() {
+        return plan != null;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", isEnabled());
+        if (!isEnabled()) return status;
+        List<Map<String, Object>> regions = new ArrayList<>();
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", region.getId());
+            entry.put("node", nodes.get(region.getId()));
+            entry.put("lines", region.getLines());
+            entry.put("stations", region.getStations().size());
+            entry.put("boundaryStations", regionBoundary.get(region.getId()).size());
+            regions.add(entry);
+        }
+        status.put("regions", regions);
+        status.put("boundaryStations", boundary.size());
+        Map<String, List<RegionLeg>> current = overlay;
+        status.put("overlayLoaded", current != null);
+        if (current != null) {
+            status.put("overlayEdges", current.values().stream().mapToInt(List::size).sum());
+            status.put("overlayAgeMs", System.currentTimeMillis() - overlayLoadedAt);
+        }
+        return status;
+    }
+
+    // 跨分区最短时间路径；不可达时返回 null，站点不存在或分区节点出错时抛出异常
+    public PathResult shortestPath(String start, String end, String dayType, String queryTime) {
+        if (!isEnabled()) throw new RuntimeException("未配置分区路由（subway.partition.plan-file）");
+        if (!stationRegions.containsKey(start)) throw new IllegalArgumentException("站点不存在: " + start);
+        if (!stationRegions.containsKey(end)) throw new IllegalArgumentException("站点不存在: " + end);
+        if (start.equals(end)) throw new IllegalArgumentException("起始站和终点站相同");
+        Map<String, List<RegionLeg>> graph = overlay();
+
+        // 1. 起点 / 终点不是边界站时，向所在区域请求接入覆盖图的代价（起点与终点的请求并行发出）
+        Map<String, List<RegionLeg>> extra = new HashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        if (!boundary.contains(start)) {
+            String region = stationRegions.get(start).get(0);
+            List<String> targets = new ArrayList<>(regionBoundary.get(region));
+            if (stationRegions.get(end).contains(region) && !targets.contains(end)) targets.add(end);
+            pending.add(costs(region, Collections.singletonList(start), targets)
+                    .thenAccept(rows -> addLegs(extra, region, rows)));
+        }
+        if (!boundary.contains(end)) {
+            String region = stationRegions.get(end).get(0);
+            List<String> sources = new ArrayList<>(regionBoundary.get(region));
+            pending.add(costs(region, sources, Collections.singletonList(end))
+                    .thenAccept(rows -> addLegs(extra, region, rows)));
+        }
+        join(CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])));
+
+        // 2. 覆盖图 Dijkstra（标签按站点，前驱记录衔接线路）
+        List<RegionLeg> legs = search(graph, extra, start, end);
+        if (legs == null) return null;
+
+        // 3. 各段路径并行向分区节点请求后拼接
+        List<CompletableFuture<JsonNode>> parts = new ArrayList<>();
+        for (RegionLeg leg : legs) {
+            parts.add(path(leg.region, leg.cost.getFrom(), leg.cost.getTo(), dayType, queryTime));
+        }
+        List<JsonNode> results = new ArrayList<>();
+        for (CompletableFuture<JsonNode> part : parts) results.add(join(part));
+        return combine(legs, results);
+    }
+
+    private List<RegionLeg> search(Map<String, List<RegionLeg>> graph, Map<String, List<RegionLeg>> extra,
+                                   String start, String end) {
+        Map<String, Double> dist = new HashMap<>();
+        Map<String, RegionLeg> pred = new HashMap<>();
+        PriorityQueue<Map.Entry<String, Double>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        dist.put(start, 0.0);
+        heap.add(new AbstractMap.SimpleImmutableEntry<>(start, 0.0));
+        while (!heap.isEmpty()) {
+            Map.Entry<String, Double> top = heap.poll();
+            String current = top.getKey();
+            double currentDist = top.getValue();
+            if (currentDist > dist.get(current)) continue;   // 过期的堆项
+            if (current.equals(end)) break;
+            RegionLeg in = pred.get(current);
+            String predLine = in == null ? null : in.cost.getLastLine();
+            for (List<RegionLeg> out : List.of(graph.getOrDefault(current, Collections.emptyList()),
+                    extra.getOrDefault(current, Collections.emptyList()))) {
+                for (RegionLeg leg : out) {
+                    String next = leg.cost.getTo();
+                    double transferTime = (predLine != null && !predLine.equals(leg.cost.getFirstLine()))
+                            ? SubwayServiceImpl.DEFAULT_TRANSFER_TIME : 0;
+                    double newDist = currentDist + leg.cost.getCost() + transferTime;
+                    if (newDist < dist.getOrDefault(next, Double.MAX_VALUE)) {
+                        dist.put(next, newDist);
+                        pred.put(next, leg);
+                        heap.add(new AbstractMap.SimpleImmutableEntry<>(next, newDist));
+                    }
+                }
+            }
+        }
+        if (!pred.containsKey(end)) return null;
+        List<RegionLeg> legs = new ArrayList<>();
+        for (String station = end; !station.equals(start); station = pred.get(station).cost.getFrom()) {
+            legs.add(pred.get(station));
+        }
+        Collections.reverse(legs);
+        return legs;
+    }
+
+    // 拼接各段结果：总时间 = 首段等车时间 + 各段代价与停站时间 + 段间换乘时间，最后统一取整（与单机口径一致）
+    private PathResult combine(List<RegionLeg> legs, List<JsonNode> responses) {
+        List<JsonNode> results = new ArrayList<>(responses.size());
+        for (JsonNode response : responses) results.add(response.path("path"));
+        JsonNode first = results.get(0);
+        PathResult result = new PathResult();
+        result.setDepartureTime(LocalTime.parse(first.path("departureTime").asText()));
+        if (first.path("segments").size() == 0) {
+            // 首段所在区域当前时段无列车服务
+            result.setArrivalTime(result.getDepartureTime());
+            return result;
+        }
+        double total = responses.get(0).path("waitingTime").asInt();
+        double distance = 0;
+        for (int i = 0; i < legs.size(); i++) {
+            distance += results.get(i).path("totalDistance").asDouble();
+            for (JsonNode node : results.get(i).path("segments")) {
+                PathSegment segment = new PathSegment();
+                segment.setLineId(node.path("lineId").asText());
+                segment.setDirection(node.path("direction").isNull() ? null : node.path("direction").asText());
+                segment.setStartStation(node.path("startStation").asText());
+                segment.setEndStation(node.path("endStation").asText());
+                segment.setTime(node.path("time").asInt());
+                result.getSegments().add(segment);
+            }
+            LegCost leg = legs.get(i).cost;
+            total += leg.getCost() + SubwayServiceImpl.STATION_STOP_TIME * leg.getHops();
+            if (i > 0 && !leg.getFirstLine().equals(legs.get(i - 1).cost.getLastLine())) {
+                total += SubwayServiceImpl.DEFAULT_TRANSFER_TIME;
+            }
+        }
+        int transfers = 0;
+        List<PathSegment> segments = result.getSegments();
+        for (int i = 1; i < segments.size(); i++) {
+            if (!segments.get(i).getLineId().equals(segments.get(i - 1).getLineId())) transfers++;
+        }
+        int totalTime = (int) Math.round(total);
+        result.setTotalDistance(distance);
+        result.setTotalTime(totalTime);
+        result.setFare(SubwayServiceImpl.computeFare(distance));
+        result.setTransferCount(transfers);
+        result.setArrivalTime(result.getDepartureTime().plusMinutes(totalTime));
+        return result;
+    }
+
+    // ---------- 覆盖图 ----------
+
+    // 丢弃覆盖图，下次查询时重新向各分区节点拉取（分区节点热加载数据后调用）
+    public void invalidateOverlay() {
+        overlay = null;
+    }
+
+    // 覆盖图超过 overlay-ttl-ms（大于 0 时）后在下次查询时重建，使分区节点的数据更新最终反映到边界站代价上
+    private boolean fresh(Map<String, List<RegionLeg>> current) {
+        return current != null && (overlayTtlMs <= 0 || System.currentTimeMillis() - overlayLoadedAt < overlayTtlMs);
+    }
+
+    private Map<String, List<RegionLeg>> overlay() {
+        Map<String, List<RegionLeg>> current = overlay;
+        if (fresh(current)) return current;
+        synchronized (this) {
+            if (fresh(overlay)) return overlay;
+            long begin = System.currentTimeMillis();
+            Map<String, List<RegionLeg>> built = new HashMap<>();
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (PartitionPlan.Region region : plan.getRegions()) {
+                List<String> stations = regionBoundary.get(region.getId());
+                if (stations.size() < 2) continue;
+                pending.add(costs(region.getId(), stations, stations)
+                        .thenAccept(rows -> addLegs(built, region.getId(), rows)));
+            }
+            join(CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])));
+            int edges = built.values().stream().mapToInt(List::size).sum();
+            System.out.println("分区覆盖图加载完成：" + boundary.size() + " 个边界站，" + edges + " 条边，耗时 "
+                    + (System.currentTimeMillis() - begin) + " ms");
+            overlayLoadedAt = System.currentTimeMillis();
+            overlay = built;
+            return built;
+        }
+    }
+
+    // 不可达与起终点相同的组合不成边；多个线程可能同时写入同一个 map，按 map 加锁
+    private static void addLegs(Map<String, List<RegionLeg>> target, String region, List<List<LegCost>> rows) {
+        synchronized (target) {
+            for (List<LegCost> row : rows) {
+                for (LegCost cost : row) {
+                    if (cost == null || cost.getHops() == 0) continue;
+                    target.computeIfAbsent(cost.getFrom(), k -> new ArrayList<>()).add(new RegionLeg(region, cost));
+                }
+            }
+        }
+    }
+
+    // ---------- 分区节点调用 ----------
+
+    private CompletableFuture<List<List<LegCost>>> costs(String region, List<String> sources, List<String> targets) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sources", sources);
+        body.put("targets", targets);
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(regionUrl(region) + "/partition/costs"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        return send(region, request).thenApply(node -> MAPPER.convertValue(node, COST_ROWS));
+    }
+
+    // 区域段路径：{"path": PathResult, "waitingTime": 起点等车分钟数}
+    private CompletableFuture<JsonNode> path(String region, String start, String end, String dayType,
+                                             String queryTime) {
+        StringBuilder url = new StringBuilder(regionUrl(region)).append("/partition/path?start=").append(encode(start))
+                .append("&end=").append(encode(end));
+        if (dayType != null) url.append("&dayType=").append(encode(dayType));
+        if (queryTime != null && !queryTime.trim().isEmpty()) url.append("&queryTime=").append(encode(queryTime));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url.toString())).timeout(timeout).GET().build();
+        return send(region, request);
+    }
+
+    private CompletableFuture<JsonNode> send(String region, HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    int status = response.statusCode();
+                    JsonNode body;
+                    try {
+                        body = MAPPER.readTree(response.body());
+                    } catch (IOException e) {
+                        throw new RuntimeException("分区 " + region + " 返回无法解析的响应（状态码 " + status + "）");
+                    }
+                    if (status != 200) {
+                        String error = body.path("error").asText("状态码 " + status);
+                        throw new RuntimeException("分区 " + region + " 请求失败：" + error);
+                    }
+                    return body;
+                });
+    }
+
+    private String regionUrl(String region) {
+        return nodes.get(region) + "/api/subway/networks/" + region;
+    }
+
+    // 等待异步调用完成，把分区节点的错误原样抛出
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new RuntimeException("分区节点不可用：" + cause.getMessage(), cause);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // 覆盖图或接入段的一条边：某区域内两站之间的代价
+    private static final class RegionLeg {
+        final String region;
+        final LegCost cost;
+
+        RegionLeg(String region, LegCost cost) {
+            this.region = region;
+            this.cost = cost;
+        }
+    }
+}
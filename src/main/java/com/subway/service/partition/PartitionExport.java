@@ -0,0 +1,124 @@
+package com.subway.service.partition;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分区导出工具：按线路聚类把路网数据拆成若干区域，每个区域写成一个与 data/ 同格式的数据目录（只含本区域线路），
+ * 并写出分区方案 partition-plan.json。输出目录可直接作为分区节点的 subway.networks.root-dir，
+ * 区域编号即路网编号；协调器读取同一份分区方案。
+ * <pre>
+ * java -cp target/subway-backend-0.0.1-SNAPSHOT.jar \
+ *     -Dloader.main=com.subway.service.partition.PartitionExport \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --regions 4 --out partitions [--data 数据目录，默认类路径 data/]
+ * </pre>
+ */
+public class PartitionExport {
+
+    public static final String PLAN_FILE = "partition-plan.json";
+
+    private static final String LINES_FILE = "subway_lines_final.json";
+    private static final String DISTANCES_FILE = "station_distance_final.json";
+    private static final String DEPARTURES_FILE = "parsed_departure_times.json";
+    private static final String DIRECTIONS_FILE = "line_direction_startAndEnd.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        if (!options.containsKey("out")) {
+            System.err.println("用法: PartitionExport --out <输出目录> [--regions 4] [--data 数据目录]");
+            System.exit(2);
+        }
+        int regionCount = Integer.parseInt(options.getOrDefault("regions", "4"));
+        Path dataDir = options.containsKey("data") ? Paths.get(options.get("data")) : null;
+        Path out = Paths.get(options.get("out"));
+
+        JsonNode lines = read(dataDir, LINES_FILE);
+        JsonNode distances = read(dataDir, DISTANCES_FILE);
+        JsonNode departures = read(dataDir, DEPARTURES_FILE);
+        JsonNode directions = read(dataDir, DIRECTIONS_FILE);
+
+        // 线路 -> 站点，按线路文件中的顺序
+        Map<String, Set<String>> lineStations = new LinkedHashMap<>();
+        for (JsonNode line : lines) {
+            Set<String> stations = new LinkedHashSet<>();
+            for (JsonNode span : distances.path(line.asText())) {
+                stations.add(span.get("startStation").asText());
+                stations.add(span.get("endStation").asText());
+            }
+            if (!stations.isEmpty()) lineStations.put(line.asText(), stations);
+        }
+        PartitionPlan plan = PartitionPlan.build(lineStations, regionCount);
+
+        Files.createDirectories(out);
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            Set<String> keep = new LinkedHashSet<>(region.getLines());
+            Path dir = out.resolve(region.getId());
+            Files.createDirectories(dir);
+            ArrayNode regionLines = MAPPER.createArrayNode();
+            for (JsonNode line : lines) {
+                if (keep.contains(line.asText())) regionLines.add(line);
+            }
+            ObjectNode regionDistances = MAPPER.createObjectNode();
+            for (String lineId : keep) regionDistances.set(lineId, distances.get(lineId));
+            ObjectNode regionDepartures = MAPPER.createObjectNode();
+            for (Iterator<Map.Entry<String, JsonNode>> it = departures.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> dayType = it.next();
+                ObjectNode byLine = MAPPER.createObjectNode();
+                for (String lineId : keep) {
+                    if (dayType.getValue().has(lineId)) byLine.set(lineId, dayType.getValue().get(lineId));
+                }
+                regionDepartures.set(dayType.getKey(), byLine);
+            }
+            ArrayNode regionDirections = MAPPER.createArrayNode();
+            for (JsonNode direction : directions) {
+                if (keep.contains(direction.path("lineId").asText())) regionDirections.add(direction);
+            }
+            MAPPER.writeValue(dir.resolve(LINES_FILE).toFile(), regionLines);
+            MAPPER.writeValue(dir.resolve(DISTANCES_FILE).toFile(), regionDistances);
+            MAPPER.writeValue(dir.resolve(DEPARTURES_FILE).toFile(), regionDepartures);
+            MAPPER.writeValue(dir.resolve(DIRECTIONS_FILE).toFile(), regionDirections);
+            System.out.println(region.getId() + "：" + region.getLines().size() + " 条线路，" + region.getStations().size()
+                    + " 个站点 " + region.getLines());
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(out.resolve(PLAN_FILE).toFile(), plan);
+        System.out.println("边界站 " + plan.getBoundaryStations().size() + " 个，分区方案已写入 " + out.resolve(PLAN_FILE));
+    }
+
+    private static JsonNode read(Path dataDir, String name) throws IOException {
+        if (dataDir != null) return MAPPER.readTree(dataDir.resolve(name).toFile());
+        try (InputStream in = PartitionExport.class.getClassLoader().getResourceAsStream("data/" + name)) {
+            if (in == null) throw new IOException("类路径中没有 data/" + name);
+            return MAPPER.readTree(in);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) continue;
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
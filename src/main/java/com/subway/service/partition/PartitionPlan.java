@@ -0,0 +1,123 @@
+package com.subway.service.partition;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 路网分区方案：按线路聚类划分区域，每个区域包含若干整条线路及其全部站点，由一个分区节点上的一个路网提供查询。
+ * 每个区间只属于一条线路，因此只属于一个区域；同时属于多个区域的站点是边界站，跨区域路径只能在边界站上换区。
+ * <p>
+ * 聚类：初始每条线路一个簇，反复合并共享站点最多的两个相邻簇（合并后站点数不超过平均值的 1.2 倍），
+ * 直到剩下 regionCount 个簇；容量限制导致无法继续合并时，再把最小的簇并入与其共享站点最多的簇。
+ * 相同输入总是得到相同方案。
+ */
+@Data
+public class PartitionPlan {
+
+    private static final double CAPACITY_SLACK = 1.2;
+
+    private List<Region> regions = new ArrayList<>();
+    private List<String> boundaryStations = new ArrayList<>();
+
+    @Data
+    public static class Region {
+        private String id;
+        private List<String> lines = new ArrayList<>();
+        private List<String> stations = new ArrayList<>();
+    }
+
+    // lineStations：按数据文件顺序的 线路编号 -> 该线路的站点
+    public static PartitionPlan build(Map<String, Set<String>> lineStations, int regionCount) {
+        if (regionCount < 1) throw new RuntimeException("分区数必须大于 0");
+        List<Set<String>> clusterLines = new ArrayList<>();
+        List<Set<String>> clusterStations = new ArrayList<>();
+        Set<String> all = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : lineStations.entrySet()) {
+            clusterLines.add(new LinkedHashSet<>(Collections.singleton(entry.getKey())));
+            clusterStations.add(new LinkedHashSet<>(entry.getValue()));
+            all.addAll(entry.getValue());
+        }
+        double capacity = CAPACITY_SLACK * all.size() / regionCount;
+        boolean capped = true;
+        while (clusterLines.size() > regionCount) {
+            int[] pair = capped ? closestPair(clusterStations, capacity) : null;
+            if (capped && pair == null) {
+                // 相邻簇合并后都会超出容量：取消容量限制，此后只把最小的簇并入与其共享站点最多的簇
+                capped = false;
+                continue;
+            }
+            if (!capped) pair = smallestWithPartner(clusterStations);
+            clusterLines.get(pair[0]).addAll(clusterLines.remove(pair[1]));
+            clusterStations.get(pair[0]).addAll(clusterStations.remove(pair[1]));
+        }
+
+        PartitionPlan plan = new PartitionPlan();
+        Map<String, Integer> regionsPerStation = new LinkedHashMap<>();
+        for (int c = 0; c < clusterLines.size(); c++) {
+            Region region = new Region();
+            region.setId("region-" + c);
+            region.setLines(new ArrayList<>(clusterLines.get(c)));
+            region.setStations(new ArrayList<>(clusterStations.get(c)));
+            plan.regions.add(region);
+            for (String station : clusterStations.get(c)) regionsPerStation.merge(station, 1, Integer::sum);
+        }
+        Set<String> boundary = new TreeSet<>();
+        regionsPerStation.forEach((station, count) -> {
+            if (count > 1) boundary.add(station);
+        });
+        plan.boundaryStations = new ArrayList<>(boundary);
+        return plan;
+    }
+
+    // 合并后不超过容量、共享站点最多的一对相邻簇 {a, b}（a < b），不存在时返回 null
+    private static int[] closestPair(List<Set<String>> clusters, double capacity) {
+        int[] best = null;
+        int bestShared = 0;
+        for (int a = 0; a < clusters.size(); a++) {
+            for (int b = a + 1; b < clusters.size(); b++) {
+                int shared = shared(clusters.get(a), clusters.get(b));
+                if (shared <= bestShared) continue;
+                if (clusters.get(a).size() + clusters.get(b).size() - shared > capacity) continue;
+                best = new int[]{a, b};
+                bestShared = shared;
+            }
+        }
+        return best;
+    }
+
+    private static int[] smallestWithPartner(List<Set<String>> clusters) {
+        int smallest = 0;
+        for (int c = 1; c < clusters.size(); c++) {
+            if (clusters.get(c).size() < clusters.get(smallest).size()) smallest = c;
+        }
+        int partner = -1;
+        int partnerShared = -1;
+        for (int c = 0; c < clusters.size(); c++) {
+            if (c == smallest) continue;
+            int shared = shared(clusters.get(smallest), clusters.get(c));
+            if (shared > partnerShared) {
+                partner = c;
+                partnerShared = shared;
+            }
+        }
+        return new int[]{Math.min(smallest, partner), Math.max(smallest, partner)};
+    }
+
+    private static int shared(Set<String> a, Set<String> b) {
+        Set<String> small = a.size() <= b.size() ? a : b;
+        Set<String> large = small == a ? b : a;
+        int count = 0;
+        for (String station : small) {
+            if (large.contains(station)) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,23 @@
+package com.subway.service.realtime;
+
+import lombok.Data;
+
+/**
+ * 调度中心下发的一条实时运营消息（馈送中每行一个 JSON 对象）。
+ * 例：{"type":"DELAY","lineId":"1号线/八通线","direction":"东行","trainId":10002,"minutes":6}
+ *     {"type":"SUSPEND","lineId":"10号线","ttlMinutes":30}
+ */
+@Data
+public class DisruptionEvent {
+
+    public static final String DELAY = "DELAY";       // 某车次晚点 minutes 分钟（0 表示恢复正点）
+    public static final String SUSPEND = "SUSPEND";   // 从收到时起停运，直至过期或 RESUME
+    public static final String RESUME = "RESUME";     // 恢复运营，清除停运
+
+    private String type;
+    private String lineId;
+    private String direction;    // 为空表示全线双向
+    private Integer trainId;     // DELAY 必填
+    private int minutes;
+    private Integer ttlMinutes;  // 有效期，为空时取 subway.realtime.default-ttl-minutes
+}
@@ -0,0 +1,174 @@
+package com.subway.service.realtime;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 实时运营消息的接入：每行一个 DisruptionEvent JSON。
+ * 两种来源可同时启用：
+ *   - subway.realtime.feed-file：像 tail -F 一样跟随文件末尾追加的内容（文件被截断或轮转后从头读取）；
+ *   - subway.realtime.feed-port：在本机回环地址监听 TCP 端口，每个连接按行推送消息。
+ * 启动时从文件当前末尾开始读取，历史消息不会以新的有效期重放。
+ */
+@Component
+@Lazy(false) // 需要在启动时开始接入
+public class DisruptionFeed {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final LiveOverlays overlays;
+    private final String feedFile;
+    private final int feedPort;
+    private final long pollIntervalMs;
+
+    private volatile boolean running;
+    private Thread tailer;
+    private ServerSocket serverSocket;
+
+    public DisruptionFeed(LiveOverlays overlays,
+                          @Value("${subway.realtime.feed-file:}") String feedFile,
+                          @Value("${subway.realtime.feed-port:0}") int feedPort,
+                          @Value("${subway.realtime.poll-interval-ms:200}") long pollIntervalMs) {
+        this.overlays = overlays;
+        this.feedFile = feedFile;
+        this.feedPort = feedPort;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        if (feedFile != null && !feedFile.trim().isEmpty()) {
+            Path file = Paths.get(feedFile.trim());
+            tailer = new Thread(() -> tailLoop(file), "disruption-feed-tail");
+            tailer.setDaemon(true);
+            tailer.start();
+            System.out.println("跟随实时消息文件：" + file.toAbsolutePath());
+        }
+        if (feedPort > 0) {
+            try {
+                serverSocket = new ServerSocket(feedPort, 16, InetAddress.getLoopbackAddress());
+            } catch (IOException e) {
+                System.out.println("无法监听实时消息端口 " + feedPort + "：" + e.getMessage());
+                return;
+            }
+            Thread acceptor = new Thread(this::acceptLoop, "disruption-feed-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            System.out.println("实时消息端口已监听：" + feedPort);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (tailer != null) tailer.interrupt();
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // 处理一行消息；格式错误只记录日志，不影响后续消息
+    void handleLine(String line) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) return;
+        try {
+            overlays.apply(MAPPER.readValue(line, DisruptionEvent.class));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("忽略无效的实时消息：" + line + "（" + e.getMessage() + "）");
+        }
+    }
+
+    // ---------- 文件跟随 ----------
+    private void tailLoop(Path file) {
+        long position = -1;
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (running) {
+            try {
+                if (Files.exists(file)) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        long size = channel.size();
+                        if (position < 0) position = size;      // 首次打开：从末尾开始
+                        if (size < position) {                  // 被截断或轮转
+                            position = 0;
+                            pending.reset();
+                        }
+                        while (position < size) {
+                            buffer.clear();
+                            int n = channel.read(buffer, position);
+                            if (n <= 0) break;
+                            position += n;
+                            for (int i = 0; i < n; i++) {
+                                byte b = buffer.get(i);
+                                if (b == '\n') {
+                                    handleLine(new String(pending.toByteArray(), StandardCharsets.UTF_8));
+                                    pending.reset();
+                                } else {
+                                    pending.write(b);
+                                }
+                            }
+                        }
+                    }
+                } else if (position < 0) {
+                    position = 0;                               // 文件尚未创建：之后写入的内容全部读取
+                }
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("读取实时消息文件失败：" + e.getMessage());
+            }
+        }
+    }
+
+    // ---------- 套接字接入 ----------
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> readSocket(socket), "disruption-feed-conn");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) System.out.println("实时消息端口异常：" + e.getMessage());
+            }
+        }
+    }
+
+    private void readSocket(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                handleLine(line);
+            }
+        } catch (IOException e) {
+            System.out.println("实时消息连接中断：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.subway.service.realtime;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单条线路上的实时覆盖层：各方向的停运窗口与车次晚点。
+ * 实例不可变，更新时生成新实例整体替换，查询线程读取时无需加锁。
+ * 方向 "*" 表示全线双向。
+ */
+public final class LineOverlay {
+
+    public static final String ALL_DIRECTIONS = "*";
+
+    private final String lineId;
+    private final Map<String, Suspension> suspensions;            // direction -> 停运窗口
+    private final Map<String, Map<Integer, TrainDelay>> delays;   // direction -> trainId -> 晚点
+
+    private LineOverlay(String lineId, Map<String, Suspension> suspensions, Map<String, Map<Integer, TrainDelay>> delays) {
+        this.lineId = lineId;
+        this.suspensions = suspensions;
+        this.delays = delays;
+    }
+
+    static LineOverlay empty(String lineId) {
+        return new LineOverlay(lineId, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    public String getLineId() {
+        return lineId;
+    }
+
+    boolean isEmpty() {
+        return suspensions.isEmpty() && delays.isEmpty();
+    }
+
+    // 在 atMillis 时刻该方向是否停运
+    public boolean isSuspended(String direction, long atMillis) {
+        return covers(suspensions.get(direction), atMillis) || covers(suspensions.get(ALL_DIRECTIONS), atMillis);
+    }
+
+    // 在 atMillis 时刻停运的方向（可能含 "*"），没有时返回空集合
+    public Set<String> suspendedDirections(long atMillis) {
+        Set<String> directions = new HashSet<>();
+        suspensions.forEach((direction, window) -> {
+            if (covers(window, atMillis)) directions.add(direction);
+        });
+        return directions;
+    }
+
+    // 车次在该方向的晚点分钟数；queryMillis 晚于晚点信息的有效期时视为正点
+    public int delayMinutes(String direction, int trainId, long queryMillis) {
+        int delay = delayIn(delays.get(direction), trainId, queryMillis);
+        return delay > 0 ? delay : delayIn(delays.get(ALL_DIRECTIONS), trainId, queryMillis);
+    }
+
+    // 该方向当前登记的最大晚点，用于确定需要回看的班次范围
+    public int maxDelayMinutes(String direction) {
+        return Math.max(maxIn(delays.get(direction)), maxIn(delays.get(ALL_DIRECTIONS)));
+    }
+
+    int suspensionCount() {
+        return suspensions.size();
+    }
+
+    // 应用一条消息，返回新的覆盖层（无任何有效内容时返回 null）
+    LineOverlay apply(DisruptionEvent event, long nowMillis, long ttlMillis) {
+        String direction = event.getDirection() == null || event.getDirection().isEmpty()
+                ? ALL_DIRECTIONS : event.getDirection();
+        Map<String, Suspension> newSuspensions = suspensions;
+        Map<String, Map<Integer, TrainDelay>> newDelays = delays;
+        switch (event.getType()) {
+            case DisruptionEvent.DELAY: {
+                newDelays = new HashMap<>(delays);
+                Map<Integer, TrainDelay> trains = new HashMap<>(delays.getOrDefault(direction, Collections.emptyMap()));
+                if (event.getMinutes() > 0) {
+                    trains.put(event.getTrainId(), new TrainDelay(event.getMinutes(), nowMillis + ttlMillis));
+                } else {
+                    trains.remove(event.getTrainId());
+                }
+                if (trains.isEmpty()) newDelays.remove(direction);
+                else newDelays.put(direction, trains);
+                break;
+            }
+            case DisruptionEvent.SUSPEND:
+                newSuspensions = new HashMap<>(suspensions);
+                newSuspensions.put(direction, new Suspension(nowMillis, nowMillis + ttlMillis));
+                break;
+            case DisruptionEvent.RESUME:
+                newSuspensions = new HashMap<>(suspensions);
+                if (ALL_DIRECTIONS.equals(direction)) newSuspensions.clear();
+                else newSuspensions.remove(direction);
+                break;
+            default:
+                throw new RuntimeException("未知的实时消息类型: " + event.getType());
+        }
+        LineOverlay next = new LineOverlay(lineId, newSuspensions, newDelays);
+        return next.isEmpty() ? null : next;
+    }
+
+    // 剔除已过期的停运与晚点；无变化时返回自身，全部过期时返回 null
+    LineOverlay evictExpired(long nowMillis) {
+        Map<String, Suspension> keptSuspensions = new HashMap<>();
+        for (Map.Entry<String, Suspension> e : suspensions.entrySet()) {
+            if (e.getValue().untilMillis > nowMillis) keptSuspensions.put(e.getKey(), e.getValue());
+        }
+        Map<String, Map<Integer, TrainDelay>> keptDelays = new HashMap<>();
+        boolean delayExpired = false;
+        for (Map.Entry<String, Map<Integer, TrainDelay>> e : delays.entrySet()) {
+            Map<Integer, TrainDelay> trains = new HashMap<>();
+            for (Map.Entry<Integer, TrainDelay> t : e.getValue().entrySet()) {
+                if (t.getValue().expiresAtMillis > nowMillis) trains.put(t.getKey(), t.getValue());
+                else delayExpired = true;
+            }
+            if (!trains.isEmpty()) keptDelays.put(e.getKey(), trains);
+        }
+        if (!delayExpired && keptSuspensions.size() == suspensions.size()) return this;
+        LineOverlay next = new LineOverlay(lineId, keptSuspensions, keptDelays);
+        return next.isEmpty() ? null : next;
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> d = new LinkedHashMap<>();
+        Map<String, Object> s = new LinkedHashMap<>();
+        suspensions.forEach((dir, w) -> s.put(dir, Instant.ofEpochMilli(w.untilMillis).toString()));
+        Map<String, Object> t = new LinkedHashMap<>();
+        delays.forEach((dir, trains) -> {
+            Map<Integer, Integer> minutes = new LinkedHashMap<>();
+            trains.forEach((id, delay) -> minutes.put(id, delay.minutes));
+            t.put(dir, minutes);
+        });
+        d.put("suspendedUntil", s);
+        d.put("delays", t);
+        return d;
+    }
+
+    private static boolean covers(Suspension s, long atMillis) {
+        return s != null && atMillis >= s.fromMillis && atMillis < s.untilMillis;
+    }
+
+    private static int delayIn(Map<Integer, TrainDelay> trains, int trainId, long queryMillis) {
+        if (trains == null) return 0;
+        TrainDelay delay = trains.get(trainId);
+        return delay != null && queryMillis < delay.expiresAtMillis ? delay.minutes : 0;
+    }
+
+    private static int maxIn(Map<Integer, TrainDelay> trains) {
+        int max = 0;
+        if (trains != null) {
+            for (TrainDelay d : trains.values()) max = Math.max(max, d.minutes);
+        }
+        return max;
+    }
+
+    private static final class Suspension {
+        final long fromMillis;
+        final long untilMillis;
+
+        Suspension(long fromMillis, long untilMillis) {
+            this.fromMillis = fromMillis;
+            this.untilMillis = untilMillis;
+        }
+    }
+
+    private static final class TrainDelay {
+        final int minutes;
+        final long expiresAtMillis;
+
+        TrainDelay(int minutes, long expiresAtMillis) {
+            this.minutes = minutes;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.subway.service.realtime;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 叠加在静态时刻表上的实时运营信息（晚点、停运），按线路保存不可变的 LineOverlay。
+ * 查询线程直接读取 ConcurrentHashMap 中的当前实例，不加锁；更新和过期清理通过 compute 整体替换。
+ * 每次变化都会通知监听器（如路径缓存），以便只失效受影响的结果。
+ */
+@Component
+public class LiveOverlays {
+
+    /** 覆盖层变化回调：suspensionChanged 为 false 表示只有晚点信息变化 */
+    public interface Listener {
+        void overlayChanged(String lineId, boolean suspensionChanged);
+    }
+
+    private final ConcurrentHashMap<String, LineOverlay> overlays = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final long defaultTtlMillis;
+    private final long sweepIntervalMs;
+    private ScheduledExecutorService sweeper;
+
+    public LiveOverlays(@Value("${subway.realtime.default-ttl-minutes:120}") long defaultTtlMinutes,
+                        @Value("${subway.realtime.sweep-interval-ms:1000}") long sweepIntervalMs) {
+        this.defaultTtlMillis = TimeUnit.MINUTES.toMillis(defaultTtlMinutes);
+        this.sweepIntervalMs = sweepIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-overlay-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweepExpired(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // 查询线程读取某线路的当前覆盖层，没有实时信息时返回 null
+    public LineOverlay get(String lineId) {
+        return overlays.get(lineId);
+    }
+
+    // 在 atMillis 时刻生效的停运：线路 -> 停运方向（"*" 表示全线双向），没有停运时返回空表
+    public Map<String, Set<String>> suspensionsAt(long atMillis) {
+        Map<String, Set<String>> suspended = new HashMap<>();
+        overlays.forEach((lineId, overlay) -> {
+            Set<String> directions = overlay.suspendedDirections(atMillis);
+            if (!directions.isEmpty()) suspended.put(lineId, directions);
+        });
+        return suspended;
+    }
+
+    public boolean isEmpty() {
+        return overlays.isEmpty();
+    }
+
+    // 应用一条实时消息
+    public void apply(DisruptionEvent event) {
+        validate(event);
+        long now = System.currentTimeMillis();
+        long ttl = event.getTtlMinutes() != null ? TimeUnit.MINUTES.toMillis(event.getTtlMinutes()) : defaultTtlMillis;
+        overlays.compute(event.getLineId(), (lineId, current) ->
+                (current != null ? current : LineOverlay.empty(lineId)).apply(event, now, ttl));
+        boolean suspension = !DisruptionEvent.DELAY.equals(event.getType());
+        System.out.println("实时信息：" + event.getType() + " " + event.getLineId()
+                + (event.getDirection() != null ? " " + event.getDirection() : "")
+                + (event.getTrainId() != null ? " 车次 " + event.getTrainId() + " 晚点 " + event.getMinutes() + " 分钟" : ""));
+        notifyListeners(event.getLineId(), suspension);
+    }
+
+    // 清理过期内容，返回发生变化的线路数
+    public int sweepExpired(long nowMillis) {
+        int changed = 0;
+        for (String lineId : overlays.keySet()) {
+            LineOverlay before = overlays.get(lineId);
+            if (before == null) continue;
+            LineOverlay after = before.evictExpired(nowMillis);
+            if (after == before) continue;
+            // 期间若有新消息写入则放弃本次替换，下一轮再清理
+            boolean replaced = after == null ? overlays.remove(lineId, before) : overlays.replace(lineId, before, after);
+            if (!replaced) continue;
+            changed++;
+            int suspensionsAfter = after == null ? 0 : after.suspensionCount();
+            notifyListeners(lineId, suspensionsAfter != before.suspensionCount());
+        }
+        return changed;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        overlays.forEach((lineId, overlay) -> snapshot.put(lineId, overlay.describe()));
+        return snapshot;
+    }
+
+    private void notifyListeners(String lineId, boolean suspensionChanged) {
+        for (Listener listener : listeners) {
+            listener.overlayChanged(lineId, suspensionChanged);
+        }
+    }
+
+    private static void validate(DisruptionEvent event) {
+        if (event.getType() == null || event.getLineId() == null || event.getLineId().isEmpty())
+            throw new RuntimeException("实时消息缺少 type 或 lineId");
+        switch (event.getType()) {
+            case DisruptionEvent.DELAY:
+                if (event.getTrainId() == null) throw new RuntimeException("晚点消息缺少 trainId");
+                if (event.getMinutes() < 0) throw new RuntimeException("晚点分钟数不能为负");
+                break;
+            case DisruptionEvent.SUSPEND:
+            case DisruptionEvent.RESUME:
+                break;
+            default:
+                throw new RuntimeException("未知的实时消息类型: " + event.getType());
+        }
+        if (event.getTtlMinutes() != null && event.getTtlMinutes() <= 0)
+            throw new RuntimeException("ttlMinutes 必须为正数");
+    }
+}
@@ -0,0 +1,229 @@
+package com.subway.service.registry;
+
+import com.subway.service.SubwayService;
+import com.subway.service.SubwayServiceImpl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 单进程托管多个城市的路网，按路网编号寻址（/api/subway/networks/{networkId}/...）。
+ * <p>
+ * 目录约定：root-dir 下每个子目录是一个路网，目录名即路网编号，包含与类路径 data/ 相同的数据文件。
+ * 编号 default 始终指向进程自身的主路网（类路径数据 + 线路编辑日志 + 热加载 + 实时数据），不参与淘汰。
+ * 其余路网是只读快照：首次查询时加载，各自拥有独立的路网、时刻表与结果缓存，不接受线路编辑；
+ * 空闲超过 idle-minutes 或已加载路网的估计内存超出预算时，按最久未访问的顺序淘汰，下次查询时重新加载。
+ * 淘汰只是丢弃引用，正在进行的查询仍持有原快照直到结束。
+ */
+@Component
+@Lazy(false) // 需要在启动时开始定期清理空闲路网
+public class NetworkRegistry {
+
+    public static final String DEFAULT_NETWORK = "default";
+
+    // 路网编号同时是目录名，只允许字母、数字、下划线和连字符，避免路径穿越
+    private static final Pattern NETWORK_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String[] DATA_FILES = {
+            "subway_lines_final.json", "station_distance_final.json",
+            "parsed_departure_times.json", "line_direction_startAndEnd.json"
+    };
+
+    private final SubwayService defaultService;
+    private final Path root;
+    private final long budgetBytes;
+    private final long idleMillis;
+    private final long sweepIntervalMs;
+    private final int cacheCapacity;
+
+    private final ConcurrentHashMap<String, Hosted> hosted = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private ScheduledExecutorService sweeper;
+
+    public NetworkRegistry(SubwayService defaultService,
+                           @Value("${subway.networks.root-dir:}") String rootDir,
+                           @Value("${subway.networks.memory-budget-mb:512}") long memoryBudgetMb,
+                           @Value("${subway.networks.idle-minutes:30}") long idleMinutes,
+                           @Value("${subway.networks.sweep-interval-ms:60000}") long sweepIntervalMs,
+                           @Value("${subway.networks.cache-capacity:2000}") int cacheCapacity) {
+        this.defaultService = defaultService;
+        this.root = rootDir == null || rootDir.trim().isEmpty() ? null : Paths.get(rootDir.trim()).toAbsolutePath();
+        this.budgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.idleMillis = idleMinutes * 60_000;
+        this.sweepIntervalMs = sweepIntervalMs;
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (root == null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "network-registry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("多路网托管目录：" + root + "（内存预算 " + budgetBytes / (1024 * 1024) + " MB）");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    // 按编号取路网服务，未加载时在调用线程中加载（同一路网只加载一次，其他查询等待）
+    public SubwayService get(String networkId) {
+        if (DEFAULT_NETWORK.equals(networkId)) return defaultService;
+        Path dir = networkDir(networkId);
+        if (dir == null) throw new IllegalArgumentException("路网不存在：" + networkId);
+        Hosted h = hosted.computeIfAbsent(networkId, Hosted::new);
+        h.lastAccess = System.currentTimeMillis();
+        SubwayServiceImpl service = h.service;
+        if (service != null) return service;
+        synchronized (h) {
+            service = h.service;
+            if (service == null) {
+                long start = System.currentTimeMillis();
+                service = SubwayServiceImpl.fromDirectory(dir, networkId, cacheCapacity);
+                h.bytes = service.estimatedBytes();
+                h.loadedAt = System.currentTimeMillis();
+                h.service = service;
+                loads.incrementAndGet();
+                System.out.println("路网 " + networkId + " 加载完成：估计 " + h.bytes / 1024 + " KB，耗时 "
+                        + (h.loadedAt - start) + " ms");
+            }
+        }
+        enforceBudget(h);
+        return service;
+    }
+
+    // 所有可用路网（default 与托管目录下的全部子目录）及其加载状态
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Map<String, Object> primary = new LinkedHashMap<>();
+        primary.put("id", DEFAULT_NETWORK);
+        primary.put("loaded", true);
+        primary.put("version", defaultService.getDataVersion());
+        result.add(primary);
+        for (String id : availableIds()) {
+            Hosted h = hosted.get(id);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", id);
+            boolean loaded = h != null && h.service != null;
+            entry.put("loaded", loaded);
+            if (loaded) {
+                entry.put("estimatedBytes", h.bytes);
+                entry.put("loadedAt", Instant.ofEpochMilli(h.loadedAt).toString());
+                entry.put("lastAccess", Instant.ofEpochMilli(h.lastAccess).toString());
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rootDir", root == null ? null : root.toString());
+        stats.put("memoryBudgetBytes", budgetBytes);
+        stats.put("loadedBytes", loadedBytes());
+        stats.put("idleMinutes", idleMillis / 60_000);
+        stats.put("loads", loads.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    // 已加载路网的估计内存超出预算时，按最久未访问的顺序淘汰，刚加载的路网本身保留
+    private synchronized void enforceBudget(Hosted keep) {
+        long used = loadedBytes();
+        while (used > budgetBytes) {
+            Hosted victim = null;
+            for (Hosted h : hosted.values()) {
+                if (h == keep || h.service == null) continue;
+                if (victim == null || h.lastAccess < victim.lastAccess) victim = h;
+            }
+            if (victim == null) break;
+            used -= victim.bytes;
+            evict(victim, "超出内存预算");
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Hosted h : hosted.values()) {
+            if (h.service != null && now - h.lastAccess > idleMillis) evict(h, "空闲");
+        }
+    }
+
+    private void evict(Hosted h, String reason) {
+        synchronized (h) {
+            if (h.service == null) return;
+            h.service = null;
+            h.bytes = 0;
+        }
+        evictions.incrementAndGet();
+        System.out.println("淘汰路网 " + h.id + "（" + reason + "）");
+    }
+
+    private long loadedBytes() {
+        long used = 0;
+        for (Hosted h : hosted.values()) {
+            if (h.service != null) used += h.bytes;
+        }
+        return used;
+    }
+
+    // 编号合法且目录下数据文件齐全时返回路网目录，否则返回 null
+    private Path networkDir(String networkId) {
+        if (root == null || networkId == null || !NETWORK_ID.matcher(networkId).matches()) return null;
+        Path dir = root.resolve(networkId);
+        for (String file : DATA_FILES) {
+            if (!Files.isRegularFile(dir.resolve(file))) return null;
+        }
+        return dir;
+    }
+
+    private List<String> availableIds() {
+        TreeSet<String> ids = new TreeSet<>();
+        if (root == null || !Files.isDirectory(root)) return new ArrayList<>(ids);
+        try (Stream<Path> children = Files.list(root)) {
+            children.map(p -> p.getFileName().toString())
+                    .filter(id -> !DEFAULT_NETWORK.equals(id) && networkDir(id) != null)
+                    .forEach(ids::add);
+        } catch (IOException e) {
+            System.out.println("无法列出路网目录 " + root + "：" + e.getMessage());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static final class Hosted {
+        final String id;
+        volatile SubwayServiceImpl service;
+        volatile long lastAccess;
+        volatile long loadedAt;
+        volatile long bytes;
+
+        Hosted(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.subway.service.reload;
+
+import com.subway.service.SubwayService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 监视共享数据目录，发现更新的数据版本后在后台加载并原子替换路网。
+ * <p>
+ * 目录约定：watch-dir 下每个子目录是一个数据版本，目录名即版本号（按字典序比较，建议使用
+ * 20261019-0800 这类时间戳），包含与类路径 data/ 相同的四个 JSON 文件；文件全部写完后
+ * 再创建 READY 标记文件，避免加载到拷贝了一半的数据。加载失败的版本按 READY 标记的修改时间记住，
+ * 修正数据后重新 touch READY 才会再次尝试，不会每次扫描都重复解析和报错。
+ * 多个实例监视同一目录即可在无需重启的情况下收敛到同一版本，版本号可通过 /api/subway/status 查看。
+ */
+@Component
+@Lazy(false) // 需要在启动时开始监视
+public class DataDirectoryWatcher {
+
+    static final String READY_MARKER = "READY";
+
+    private final SubwayService subwayService;
+    private final String watchDir;
+    private final long rescanIntervalMs;
+
+    private WatchService watchService;
+    private Thread watcher;
+    private final Set<Path> registered = new HashSet<>();
+    // 加载失败的版本 -> 失败时 READY 标记的修改时间；标记未变化前不再重试（由 scan 的锁保护）
+    private final Map<String, FileTime> failed = new HashMap<>();
+    private volatile boolean running;
+
+    public DataDirectoryWatcher(SubwayService subwayService,
+                                @Value("${subway.reload.watch-dir:}") String watchDir,
+                                @Value("${subway.reload.rescan-interval-ms:30000}") long rescanIntervalMs) {
+        this.subwayService = subwayService;
+        this.watchDir = watchDir;
+        this.rescanIntervalMs = rescanIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (watchDir == null || watchDir.trim().isEmpty()) return;
+        Path root = Paths.get(watchDir.trim());
+        try {
+            Files.createDirectories(root);
+            watchService = root.getFileSystem().newWatchService();
+            register(root);
+        } catch (IOException e) {
+            System.out.println("无法监视数据目录 " + root + "：" + e.getMessage());
+            return;
+        }
+        // 启动时先同步检查一次，使新实例直接以最新版本对外服务
+        scan(root);
+        running = true;
+        watcher = new Thread(() -> watchLoop(root), "data-directory-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("开始监视数据目录：" + root.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void watchLoop(Path root) {
+        while (running) {
+            try {
+                // 共享文件系统上事件可能丢失，超时后也做一次全量扫描
+                WatchKey key = watchService.poll(rescanIntervalMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    // 合并短时间内的连续事件
+                    Thread.sleep(200);
+                    WatchKey more;
+                    while ((more = watchService.poll()) != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                }
+                scan(root);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // 找出已就绪的最新版本，比当前版本新时加载
+    private synchronized void scan(Path root) {
+        Path latest = null;
+        try (Stream<Path> children = Files.list(root)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                if (!Files.isDirectory(child)) continue;
+                register(child);
+                if (!Files.exists(child.resolve(READY_MARKER))) continue;
+                if (latest == null || versionOf(child).compareTo(versionOf(latest)) > 0) {
+                    latest = child;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("扫描数据目录失败：" + e.getMessage());
+            return;
+        }
+        if (latest == null) return;
+        String version = versionOf(latest);
+        String current = subwayService.getDataVersion();
+        if (!isNewer(version, current)) return;
+        FileTime marker = readyTime(latest);
+        if (marker != null && marker.equals(failed.get(version))) return;
+        System.out.println("发现新的路网数据版本：" + version + "（当前 " + current + "），开始后台加载");
+        try {
+            subwayService.reloadData(latest, version);
+            failed.remove(version);
+        } catch (RuntimeException e) {
+            if (marker != null) failed.put(version, marker);
+            System.out.println("加载路网数据版本 " + version + " 失败，继续使用 " + current + "：" + e.getMessage()
+                    + "（重新写入 READY 标记后重试）");
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        if (watchService == null || !registered.add(dir)) return;
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private static FileTime readyTime(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir.resolve(READY_MARKER));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String versionOf(Path dir) {
+        return dir.getFileName().toString();
+    }
+
+    // 内置的类路径数据视为最旧版本
+    private static boolean isNewer(String candidate, String current) {
+        return current == null || "classpath".equals(current) || candidate.compareTo(current) > 0;
+    }
+}
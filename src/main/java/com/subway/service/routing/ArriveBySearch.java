@@ -0,0 +1,127 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import com.subway.service.diagnostics.SearchPhaseEvent;
+import com.subway.util.IndexedDaryHeap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 到达时刻约束（arrive by）的反向搜索：从终点站厅沿入弧反向做一次 Dijkstra，
+ * 求出每个节点到终点的最短剩余时间（乘车弧计运行时间与停站时间，上车弧计换乘时间，与正向 totalTime 口径一致）。
+ * 模型中只有起点上车需要按时刻表等车，途中换乘按固定换乘时间计，因此起点各站台的剩余时间一经确定，
+ * 调用方用"到达时刻 - 剩余时间"在起点时刻表上向前取最晚一班即可，一次搜索得到精确结果，不需要对正向查询做二分。
+ * fewestTransfersFirst 时与 LeastTransferSearch 相同按换乘次数分层，只返回换乘最少一层的候选。
+ */
+public final class ArriveBySearch {
+
+    private ArriveBySearch() {
+    }
+
+    /**
+     * 返回起点每条可上车线路的候选（剩余时间与对应路径）；起终点相同、不存在或不可达时返回空列表。
+     * stopTime 为每个区间计入的停站时间。
+     */
+    public static List<Candidate> search(RoutingGraph graph, String startName, String endName, double transferPenalty,
+                                         double stopTime, Closures closures, boolean fewestTransfersFirst) {
+        LineExpandedGraph g = graph.lineExpanded();
+        int source = graph.stationId(startName);
+        int target = graph.stationId(endName);
+        if (source < 0 || target < 0 || source == target) return Collections.emptyList();
+        if (closures.stationClosed(source)) throw new IllegalArgumentException("起点站已关闭: " + startName);
+        if (closures.stationClosed(target)) throw new IllegalArgumentException("终点站已关闭: " + endName);
+        boolean open = closures.isEmpty();
+
+        int originPlatforms = 0;
+        for (int platform = g.firstPlatform(source); platform < g.endPlatform(source); platform++) {
+            if (open || !closures.lineClosed(g.nodeLine(platform))) originPlatforms++;
+        }
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        IndexedDaryHeap heap = ws.heap();
+        ws.setLabel(target, 0.0, -1);
+        heap.insertOrDecrease(target, 0.0);
+
+        int settledOrigins = 0;
+        while (!heap.isEmpty() && settledOrigins == 0) {
+            // 本层反向 Dijkstra；前驱记录的是从该节点出发、通往终点方向的弧
+            while (!heap.isEmpty() && settledOrigins < originPlatforms) {
+                int current = heap.poll();
+                ws.settle(current);
+                if (g.nodeStation(current) == source) {
+                    // 起点站台是反向搜索的终止点，不再经起点站厅反向扩展（那意味着在起点换乘）
+                    if (!g.isStationNode(current)) settledOrigins++;
+                    continue;
+                }
+                double currentDist = ws.dist(current);
+                for (int i = g.firstInArc(current), end = g.endInArc(current); i < end; i++) {
+                    int arc = g.inArc(i);
+                    int prev = g.arcFrom(arc);
+                    if (ws.settled(prev)) continue;
+                    if (!open && !LeastTransferSearch.arcOpen(g, arc, closures)) continue;
+                    byte kind = g.arcKind(arc);
+                    double newDist = currentDist + g.arcTime(arc, transferPenalty) + (kind == LineExpandedGraph.RIDE ? stopTime : 0);
+                    if (fewestTransfersFirst && kind == LineExpandedGraph.BOARD) {
+                        ws.defer(prev, newDist, arc);
+                    } else if (newDist < ws.dist(prev)) {
+                        ws.setLabel(prev, newDist, arc);
+                        heap.insertOrDecrease(prev, newDist);
+                    }
+                }
+            }
+            if (!fewestTransfersFirst || settledOrigins > 0) break;
+            // 进入下一层：换乘次数 +1
+            for (int i = 0; i < ws.deferredCount(); i++) {
+                int node = ws.deferredNode(i);
+                if (ws.settled(node)) continue;
+                double d = ws.deferredDist(node);
+                ws.setLabel(node, d, ws.deferredPred(node));
+                heap.insertOrDecrease(node, d);
+            }
+            ws.clearDeferred();
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int platform = g.firstPlatform(source); platform < g.endPlatform(source); platform++) {
+            if (!ws.settled(platform) || ws.pred(platform) < 0) continue;
+            List<Edge> path = extractPath(g, ws, platform);
+            if (!path.isEmpty()) candidates.add(new Candidate(ws.dist(platform), path));
+        }
+        ShortestPathSearch.commit(event, fewestTransfersFirst ? SearchPhaseEvent.ARRIVE_BY_LEAST_TRANSFER : SearchPhaseEvent.ARRIVE_BY,
+                source, target, ws, g.nodeCount(), candidates.isEmpty() ? 0 : candidates.get(0).getPath().size());
+        return candidates;
+    }
+
+    // 从起点站台沿前驱弧（指向终点方向）前进，只保留乘车弧对应的原始边
+    private static List<Edge> extractPath(LineExpandedGraph g, SearchWorkspace ws, int origin) {
+        List<Edge> path = new ArrayList<>();
+        for (int arc = ws.pred(origin); arc >= 0; arc = ws.pred(g.arcTo(arc))) {
+            if (g.arcKind(arc) == LineExpandedGraph.RIDE) {
+                path.add(g.base().arcEdge(g.arcOrigin(arc)));
+            }
+        }
+        return path;
+    }
+
+    // 起点某条线路上车的方案：remaining 为从该站台上车到抵达终点的时间（分钟，不含起点等车）
+    public static final class Candidate {
+        private final double remaining;
+        private final List<Edge> path;
+
+        Candidate(double remaining, List<Edge> path) {
+            this.remaining = remaining;
+            this.path = path;
+        }
+
+        public double getRemaining() {
+            return remaining;
+        }
+
+        public List<Edge> getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.subway.service.routing;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * 单次查询的临时关闭设定（"如果某站/某线/某区间关闭"），以位图形式叠加在只读路网上，
+ * 搜索时按编号检查，不复制也不修改共享的 edges/stations。
+ * <ul>
+ *   <li>关闭站点：不能在该站上下车或换乘，列车仍可通过不停车；</li>
+ *   <li>关闭线路：该线路所有区间不可乘坐；</li>
+ *   <li>关闭区间："甲-乙"，两站之间各线路的双向区间都不可乘坐。</li>
+ * </ul>
+ * 实时停运（某线路某方向）由调用方换算成线路与弧，通过 plus 叠加到同一设定上。
+ */
+public final class Closures {
+
+    public static final Closures NONE = new Closures(new BitSet(0), new BitSet(0), new BitSet(0));
+
+    // 区间写法中两个站名之间的分隔符
+    public static final char SEGMENT_SEPARATOR = '-';
+
+    private final BitSet stations;   // 按 RoutingGraph 站点编号
+    private final BitSet lines;      // 按 RoutingGraph 线路编号
+    private final BitSet arcs;       // 按 RoutingGraph 弧编号
+
+    private Closures(BitSet stations, BitSet lines, BitSet arcs) {
+        this.stations = stations;
+        this.lines = lines;
+        this.arcs = arcs;
+    }
+
+    // 将站名、线路编号、"甲-乙" 区间解析为当前路网上的位图；任何名称不存在都报错
+    public static Closures resolve(RoutingGraph graph, Collection<String> stationNames,
+                                   Collection<String> lineIds, Collection<String> segments) {
+        BitSet stations = new BitSet(graph.stationCount());
+        BitSet lines = new BitSet(graph.lineCount());
+        BitSet arcs = new BitSet(graph.arcCount());
+        if (stationNames != null) {
+            for (String name : stationNames) {
+                stations.set(requireStation(graph, name));
+            }
+        }
+        if (lineIds != null) {
+            for (String lineId : lineIds) {
+                int line = graph.lineIndex(lineId.trim());
+                if (line < 0) throw new IllegalArgumentException("关闭的线路不存在: " + lineId);
+                lines.set(line);
+            }
+        }
+        if (segments != null) {
+            for (String segment : segments) {
+                int sep = segment.indexOf(SEGMENT_SEPARATOR);
+                if (sep <= 0 || sep == segment.length() - 1)
+                    throw new IllegalArgumentException("区间格式应为 起点站" + SEGMENT_SEPARATOR + "终点站: " + segment);
+                int a = requireStation(graph, segment.substring(0, sep));
+                int b = requireStation(graph, segment.substring(sep + 1));
+                boolean found = closeArcs(graph, arcs, a, b) | closeArcs(graph, arcs, b, a);
+                if (!found) throw new IllegalArgumentException("两站之间没有直达区间: " + segment);
+            }
+        }
+        if (stations.isEmpty() && lines.isEmpty() && arcs.isEmpty()) return NONE;
+        return new Closures(stations, lines, arcs);
+    }
+
+    // 叠加另一组线路与弧的关闭（如实时停运），返回新的设定；没有新增关闭时返回自身
+    public Closures plus(BitSet closedLines, BitSet closedArcs) {
+        if (closedLines.isEmpty() && closedArcs.isEmpty()) return this;
+        BitSet mergedLines = (BitSet) lines.clone();
+        mergedLines.or(closedLines);
+        BitSet mergedArcs = (BitSet) arcs.clone();
+        mergedArcs.or(closedArcs);
+        return new Closures(stations, mergedLines, mergedArcs);
+    }
+
+    public boolean isEmpty() {
+        return this == NONE;
+    }
+
+    public boolean hasStations() {
+        return !stations.isEmpty();
+    }
+
+    public boolean stationClosed(int station) {
+        return stations.get(station);
+    }
+
+    public boolean lineClosed(int line) {
+        return lines.get(line);
+    }
+
+    // 基础路网上的弧是否可乘坐（线路与区间均未关闭）
+    public boolean arcOpen(RoutingGraph graph, int arc) {
+        return !arcs.get(arc) && !lines.get(graph.arcLine(arc));
+    }
+
+    private static int requireStation(RoutingGraph graph, String name) {
+        int id = graph.stationId(name.trim());
+        if (id < 0) throw new IllegalArgumentException("关闭的站点不存在: " + name);
+        return id;
+    }
+
+    private static boolean closeArcs(RoutingGraph graph, BitSet arcs, int from, int to) {
+        boolean found = false;
+        for (int arc = graph.firstArc(from), end = graph.endArc(from); arc < end; arc++) {
+            if (graph.arcTo(arc) == to) {
+                arcs.set(arc);
+                found = true;
+            }
+        }
+        return found;
+    }
+}
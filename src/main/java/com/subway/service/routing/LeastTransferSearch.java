@@ -0,0 +1,165 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import com.subway.service.diagnostics.SearchPhaseEvent;
+import com.subway.util.IndexedDaryHeap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 线路展开图上的字典序最少换乘搜索：先最小化换乘次数，再最小化时间。
+ * 按换乘次数分层推进（0-1 BFS 的分桶形式）：同层内用 Dijkstra 处理乘车/下车弧，
+ * 上车弧产生的候选标签放入下一层的延后桶，本层结束后再整体入堆。
+ * 同一套展开图也提供只按时间的搜索（换乘计罚时），用于带关闭站点的最短时间查询：
+ * 关闭站点只封锁该站的上车/下车弧，列车仍可沿乘车弧通过。
+ */
+public final class LeastTransferSearch {
+
+    private LeastTransferSearch() {
+    }
+
+    public static List<Edge> findPath(RoutingGraph graph, String startName, String endName, double transferPenalty) {
+        return search(graph, startName, endName, transferPenalty, Closures.NONE, true);
+    }
+
+    public static List<Edge> findPath(RoutingGraph graph, String startName, String endName, double transferPenalty,
+                                      Closures closures) {
+        return search(graph, startName, endName, transferPenalty, closures, true);
+    }
+
+    // 只最小化时间（上车弧与其他弧一样直接松弛），换乘代价为 transferPenalty
+    public static List<Edge> findFastestPath(RoutingGraph graph, String startName, String endName, double transferPenalty,
+                                             Closures closures) {
+        return search(graph, startName, endName, transferPenalty, closures, false);
+    }
+
+    /**
+     * 展开图上的一对多最短时间搜索：起点可在任一所属线路直接上车，不计换乘，直到所有可达节点出堆。
+     * 站点 s 的最短时间为 dist(s)（站厅节点），前驱弧链可用 arcOrigin 还原乘车区间。
+     * 返回的标签只在本线程发起下一次搜索前有效。
+     */
+    public static SearchWorkspace fastestFrom(RoutingGraph graph, int source, double transferPenalty) {
+        LineExpandedGraph g = graph.lineExpanded();
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        IndexedDaryHeap heap = ws.heap();
+        for (int platform = g.firstPlatform(source); platform < g.endPlatform(source); platform++) {
+            ws.setLabel(platform, 0.0, -1);
+            heap.insertOrDecrease(platform, 0.0);
+        }
+        ws.settle(source);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            ws.settle(current);
+            double currentDist = ws.dist(current);
+            for (int arc = g.firstArc(current), end = g.endArc(current); arc < end; arc++) {
+                int next = g.arcTo(arc);
+                if (ws.settled(next)) continue;
+                double newDist = currentDist + g.arcTime(arc, transferPenalty);
+                if (newDist < ws.dist(next)) {
+                    ws.setLabel(next, newDist, arc);
+                    heap.insertOrDecrease(next, newDist);
+                }
+            }
+        }
+        ShortestPathSearch.commit(event, SearchPhaseEvent.EXPANDED_ONE_TO_ALL, source, -1, ws, g.nodeCount(), 0);
+        return ws;
+    }
+
+    private static List<Edge> search(RoutingGraph graph, String startName, String endName, double transferPenalty,
+                                     Closures closures, boolean fewestTransfersFirst) {
+        LineExpandedGraph g = graph.lineExpanded();
+        int source = graph.stationId(startName);
+        int target = graph.stationId(endName);
+        if (source < 0 || target < 0) return Collections.emptyList();
+        if (closures.stationClosed(source)) throw new IllegalArgumentException("起点站已关闭: " + startName);
+        if (closures.stationClosed(target)) throw new IllegalArgumentException("终点站已关闭: " + endName);
+        boolean open = closures.isEmpty();
+
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        IndexedDaryHeap heap = ws.heap();
+        // 起点可在任一所属线路直接上车，不计换乘
+        for (int platform = g.firstPlatform(source); platform < g.endPlatform(source); platform++) {
+            if (!open && closures.lineClosed(g.nodeLine(platform))) continue;
+            ws.setLabel(platform, 0.0, -1);
+            heap.insertOrDecrease(platform, 0.0);
+        }
+        ws.settle(source);
+
+        boolean found = false;
+        while (!heap.isEmpty()) {
+            // 本层 Dijkstra：只沿乘车/下车弧推进
+            while (!heap.isEmpty()) {
+                int current = heap.poll();
+                ws.settle(current);
+                if (current == target) {
+                    found = true;
+                    break;
+                }
+                double currentDist = ws.dist(current);
+                for (int arc = g.firstArc(current), end = g.endArc(current); arc < end; arc++) {
+                    int next = g.arcTo(arc);
+                    if (ws.settled(next)) continue;
+                    if (!open && !arcOpen(g, arc, closures)) continue;
+                    double newDist = currentDist + g.arcTime(arc, transferPenalty);
+                    if (fewestTransfersFirst && g.arcKind(arc) == LineExpandedGraph.BOARD) {
+                        ws.defer(next, newDist, arc);
+                    } else if (newDist < ws.dist(next)) {
+                        ws.setLabel(next, newDist, arc);
+                        heap.insertOrDecrease(next, newDist);
+                    }
+                }
+            }
+            if (found) break;
+            // 进入下一层：换乘次数 +1
+            for (int i = 0; i < ws.deferredCount(); i++) {
+                int node = ws.deferredNode(i);
+                if (ws.settled(node)) continue;
+                double d = ws.deferredDist(node);
+                ws.setLabel(node, d, ws.deferredPred(node));
+                heap.insertOrDecrease(node, d);
+            }
+            ws.clearDeferred();
+        }
+        List<Edge> path = found ? extractPath(g, ws, target) : Collections.emptyList();
+        ShortestPathSearch.commit(event, fewestTransfersFirst ? SearchPhaseEvent.LEAST_TRANSFER : SearchPhaseEvent.EXPANDED_FASTEST,
+                source, target, ws, g.nodeCount(), path.size());
+        return path;
+    }
+
+    // 关闭设定下展开图上的弧是否可走
+    static boolean arcOpen(LineExpandedGraph g, int arc, Closures closures) {
+        switch (g.arcKind(arc)) {
+            case LineExpandedGraph.RIDE:
+                return closures.arcOpen(g.base(), g.arcOrigin(arc));
+            case LineExpandedGraph.BOARD:
+                return !closures.stationClosed(g.nodeStation(g.arcFrom(arc))) && !closures.lineClosed(g.nodeLine(g.arcTo(arc)));
+            default:
+                return !closures.stationClosed(g.nodeStation(g.arcFrom(arc)));
+        }
+    }
+
+    // 沿前驱弧回溯，只保留乘车弧对应的原始边
+    private static List<Edge> extractPath(LineExpandedGraph g, SearchWorkspace ws, int target) {
+        int rides = 0;
+        for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(g.arcFrom(arc))) {
+            if (g.arcKind(arc) == LineExpandedGraph.RIDE) rides++;
+        }
+        if (rides == 0) return Collections.emptyList();
+        Edge[] path = new Edge[rides];
+        int index = rides;
+        for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(g.arcFrom(arc))) {
+            if (g.arcKind(arc) == LineExpandedGraph.RIDE) {
+                path[--index] = g.base().arcEdge(g.arcOrigin(arc));
+            }
+        }
+        List<Edge> result = new ArrayList<>(rides);
+        Collections.addAll(result, path);
+        return result;
+    }
+}
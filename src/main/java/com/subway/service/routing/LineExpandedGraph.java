@@ -0,0 +1,247 @@
+package com.subway.service.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 线路展开图：每个 (站点, 线路) 组合是一个稠密 int 节点，另有每站一个站厅节点。
+ * <ul>
+ *   <li>节点 [0, stationCount) 为站厅节点，编号与 RoutingGraph 的站点编号一致；</li>
+ *   <li>其后为站台节点，同一站点的站台节点连续存放；</li>
+ *   <li>乘车弧：站台 -> 同线路相邻站台，对应 RoutingGraph 中的一条弧；</li>
+ *   <li>下车弧：站台 -> 站厅，不计时间与换乘；</li>
+ *   <li>上车弧：站厅 -> 站台，计一次换乘及换乘时间（起点的首次上车由搜索直接播种，不经过上车弧）。</li>
+ * </ul>
+ */
+public final class LineExpandedGraph {
+
+    public static final byte RIDE = 0;
+    public static final byte ALIGHT = 1;
+    public static final byte BOARD = 2;
+
+    private final RoutingGraph base;
+    private final int stationCount;
+    private final int[] firstPlatform;   // 站点 s 的站台节点为 [firstPlatform[s], firstPlatform[s + 1])
+    private final int[] nodeStation;
+    private final int[] nodeLine;        // 站厅节点为 -1
+
+    private final int[] firstArc;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final byte[] arcKind;
+    private final int[] arcOrigin;       // 乘车弧对应的 RoutingGraph 弧编号，其余为 -1
+    private final int[] firstInArc;      // 入弧索引（反向搜索用）：节点 v 的入弧为 inArcs[firstInArc[v] .. firstInArc[v + 1])
+    private final int[] inArcs;
+
+    private LineExpandedGraph(RoutingGraph base, int[] firstPlatform, int[] nodeStation, int[] nodeLine,
+                              int[] firstArc, int[] arcFrom, int[] arcTo, byte[] arcKind, int[] arcOrigin,
+                              int[] firstInArc, int[] inArcs) {
+        this.base = base;
+        this.stationCount = base.stationCount();
+        this.firstPlatform = firstPlatform;
+        this.nodeStation = nodeStation;
+        this.nodeLine = nodeLine;
+        this.firstArc = firstArc;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcKind = arcKind;
+        this.arcOrigin = arcOrigin;
+        this.firstInArc = firstInArc;
+        this.inArcs = inArcs;
+    }
+
+    static LineExpandedGraph build(RoutingGraph base) {
+        int n = base.stationCount();
+        int lineCount = Math.max(base.lineCount(), 1);
+        // 1. 按站点聚合出现过的线路，分配站台节点编号
+        boolean[] seen = new boolean[n * lineCount];
+        int[] platformCount = new int[n];
+        for (int arc = 0; arc < base.arcCount(); arc++) {
+            int line = base.arcLine(arc);
+            for (int s : new int[]{base.arcFrom(arc), base.arcTo(arc)}) {
+                if (!seen[s * lineCount + line]) {
+                    seen[s * lineCount + line] = true;
+                    platformCount[s]++;
+                }
+            }
+        }
+        int[] firstPlatform = new int[n + 1];
+        firstPlatform[0] = n;
+        for (int s = 0; s < n; s++) {
+            firstPlatform[s + 1] = firstPlatform[s] + platformCount[s];
+        }
+        int nodeCount = firstPlatform[n];
+        int[] nodeStation = new int[nodeCount];
+        int[] nodeLine = new int[nodeCount];
+        Map<Integer, Integer> platformOf = new HashMap<>();
+        for (int s = 0; s < n; s++) {
+            nodeStation[s] = s;
+            nodeLine[s] = -1;
+            int next = firstPlatform[s];
+            for (int line = 0; line < lineCount; line++) {
+                if (seen[s * lineCount + line]) {
+                    nodeStation[next] = s;
+                    nodeLine[next] = line;
+                    platformOf.put(s * lineCount + line, next);
+                    next++;
+                }
+            }
+        }
+
+        // 2. 统计每个节点的出弧数：站厅为上车弧，站台为乘车弧 + 一条下车弧
+        int[] firstArc = new int[nodeCount + 1];
+        for (int s = 0; s < n; s++) {
+            firstArc[s + 1] = platformCount[s];
+        }
+        for (int node = n; node < nodeCount; node++) {
+            firstArc[node + 1] = 1;
+        }
+        for (int arc = 0; arc < base.arcCount(); arc++) {
+            int from = platformOf.get(base.arcFrom(arc) * lineCount + base.arcLine(arc));
+            firstArc[from + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            firstArc[node + 1] += firstArc[node];
+        }
+        int arcTotal = firstArc[nodeCount];
+        int[] arcFrom = new int[arcTotal];
+        int[] arcTo = new int[arcTotal];
+        byte[] arcKind = new byte[arcTotal];
+        int[] arcOrigin = new int[arcTotal];
+        int[] cursor = new int[nodeCount];
+        System.arraycopy(firstArc, 0, cursor, 0, nodeCount);
+
+        // 3. 写入弧
+        for (int s = 0; s < n; s++) {
+            for (int platform = firstPlatform[s]; platform < firstPlatform[s + 1]; platform++) {
+                int a = cursor[s]++;
+                arcFrom[a] = s;
+                arcTo[a] = platform;
+                arcKind[a] = BOARD;
+                arcOrigin[a] = -1;
+            }
+        }
+        for (int arc = 0; arc < base.arcCount(); arc++) {
+            int line = base.arcLine(arc);
+            int from = platformOf.get(base.arcFrom(arc) * lineCount + line);
+            int a = cursor[from]++;
+            arcFrom[a] = from;
+            arcTo[a] = platformOf.get(base.arcTo(arc) * lineCount + line);
+            arcKind[a] = RIDE;
+            arcOrigin[a] = arc;
+        }
+        for (int node = n; node < nodeCount; node++) {
+            int a = cursor[node]++;
+            arcFrom[a] = node;
+            arcTo[a] = nodeStation[node];
+            arcKind[a] = ALIGHT;
+            arcOrigin[a] = -1;
+        }
+
+        // 4. 入弧索引：按终点计数后前缀和
+        int[] firstInArc = new int[nodeCount + 1];
+        for (int a = 0; a < arcTotal; a++) {
+            firstInArc[arcTo[a] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            firstInArc[node + 1] += firstInArc[node];
+        }
+        int[] inArcs = new int[arcTotal];
+        System.arraycopy(firstInArc, 0, cursor, 0, nodeCount);
+        for (int a = 0; a < arcTotal; a++) {
+            inArcs[cursor[arcTo[a]]++] = a;
+        }
+        return new LineExpandedGraph(base, firstPlatform, nodeStation, nodeLine, firstArc, arcFrom, arcTo, arcKind, arcOrigin,
+                firstInArc, inArcs);
+    }
+
+    public RoutingGraph base() {
+        return base;
+    }
+
+    public int nodeCount() {
+        return nodeStation.length;
+    }
+
+    public int stationCount() {
+        return stationCount;
+    }
+
+    public boolean isStationNode(int node) {
+        return node < stationCount;
+    }
+
+    public int firstPlatform(int station) {
+        return firstPlatform[station];
+    }
+
+    public int endPlatform(int station) {
+        return firstPlatform[station + 1];
+    }
+
+    // 站点在指定线路上的站台节点，不在该线路上时返回 -1
+    public int platform(int station, int line) {
+        for (int p = firstPlatform[station]; p < firstPlatform[station + 1]; p++) {
+            if (nodeLine[p] == line) return p;
+        }
+        return -1;
+    }
+
+    public int nodeStation(int node) {
+        return nodeStation[node];
+    }
+
+    public int nodeLine(int node) {
+        return nodeLine[node];
+    }
+
+    public int firstArc(int node) {
+        return firstArc[node];
+    }
+
+    public int endArc(int node) {
+        return firstArc[node + 1];
+    }
+
+    public int firstInArc(int node) {
+        return firstInArc[node];
+    }
+
+    public int endInArc(int node) {
+        return firstInArc[node + 1];
+    }
+
+    // 入弧索引中第 i 条入弧的弧编号
+    public int inArc(int i) {
+        return inArcs[i];
+    }
+
+    public int arcFrom(int arc) {
+        return arcFrom[arc];
+    }
+
+    public int arcTo(int arc) {
+        return arcTo[arc];
+    }
+
+    public byte arcKind(int arc) {
+        return arcKind[arc];
+    }
+
+    // 乘车弧对应的 RoutingGraph 弧编号，非乘车弧为 -1
+    public int arcOrigin(int arc) {
+        return arcOrigin[arc];
+    }
+
+    // 弧的行驶/换乘时间；乘车弧取原始运行时间，上车弧取换乘时间
+    public double arcTime(int arc, double transferPenalty) {
+        switch (arcKind[arc]) {
+            case RIDE:
+                return base.arcTime(arcOrigin[arc]);
+            case BOARD:
+                return transferPenalty;
+            default:
+                return 0.0;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 每条线路按行车顺序排列的站点及累计距离、累计运行时间（前缀和），任意两站之间的距离、
+ * 运行时间与停站数都是 O(1)。线路形状由路网本身走出来，不依赖数据文件中区间的书写顺序：
+ * 线路子图是一条链（两端各一站、其余每站两个相邻站）或一个环时才有偏移量；
+ * 带支线、重复区间或往返时间不对称的线路视为不规则线路，仍按逐区间处理。
+ * <p>
+ * 同时提供跳跃弧：关键站（换乘站、线路端点、不规则线路上的站）之间沿线路直达的弧，
+ * 中间只经过单线路站点，供最短时间搜索跳过沿途各站。环线没有关键站时取首站作为关键站。
+ */
+public final class LineOffsets {
+
+    private final LineExpandedGraph g;
+    private final int lineCount;
+
+    // ---------- 每条线路的偏移量（不规则线路为 null） ----------
+    private final int[][] order;            // 行车顺序的站点编号；环线不重复首站
+    private final boolean[] loop;
+    private final double[][] distance;      // 累计距离，长度 n + 1：环线最后一项为一整圈，链线最后一项不使用
+    private final double[][] runTime;       // 累计运行时间（不含停站）
+    private final int[][] forwardArc;       // order[i] -> order[i + 1]（环线含末站回首站）的 RoutingGraph 弧
+    private final int[][] backwardArc;      // order[i + 1] -> order[i]
+    private final int[] platformPosition;   // 站台节点 -> 在所在线路 order 中的位置，无偏移量时为 -1
+
+    // ---------- 跳跃弧（按起点关键站的 CSR） ----------
+    private final boolean[] keyStation;
+    private final int[][] previousKey;      // [line][pos] 逆行方向最近的关键站位置（含自身）
+    private final int[][] nextKey;          // [line][pos] 顺行方向最近的关键站位置（含自身）
+    private final int[] firstJump;
+    private final int[] jumpFrom;
+    private final int[] jumpTo;
+    private final int[] jumpLine;
+    private final int[] jumpFromPos;
+    private final int[] jumpToPos;
+    private final boolean[] jumpForward;
+    private final int[] jumpArc;            // 不规则线路的单区间跳跃弧对应的 RoutingGraph 弧，其余为 -1
+    private final double[] jumpTime;
+
+    private LineOffsets(LineExpandedGraph g, int[][] order, boolean[] loop, double[][] distance, double[][] runTime,
+                        int[][] forwardArc, int[][] backwardArc, int[] platformPosition, boolean[] keyStation,
+                        int[][] previousKey, int[][] nextKey, int[] firstJump, int[] jumpFrom, int[] jumpTo,
+                        int[] jumpLine, int[] jumpFromPos, int[] jumpToPos, boolean[] jumpForward, int[] jumpArc,
+                        double[] jumpTime) {
+        this.g = g;
+        this.lineCount = order.length;
+        this.order = order;
+        this.loop = loop;
+        this.distance = distance;
+        this.runTime = runTime;
+        this.forwardArc = forwardArc;
+        this.backwardArc = backwardArc;
+        this.platformPosition = platformPosition;
+        this.keyStation = keyStation;
+        this.previousKey = previousKey;
+        this.nextKey = nextKey;
+        this.firstJump = firstJump;
+        this.jumpFrom = jumpFrom;
+        this.jumpTo = jumpTo;
+        this.jumpLine = jumpLine;
+        this.jumpFromPos = jumpFromPos;
+        this.jumpToPos = jumpToPos;
+        this.jumpForward = jumpForward;
+        this.jumpArc = jumpArc;
+        this.jumpTime = jumpTime;
+    }
+
+    static LineOffsets build(LineExpandedGraph g) {
+        RoutingGraph base = g.base();
+        int lineCount = base.lineCount();
+        int stationCount = g.stationCount();
+        int[][] order = new int[lineCount][];
+        boolean[] loop = new boolean[lineCount];
+        double[][] distance = new double[lineCount][];
+        double[][] runTime = new double[lineCount][];
+        int[][] forwardArc = new int[lineCount][];
+        int[][] backwardArc = new int[lineCount][];
+        int[] platformPosition = new int[g.nodeCount()];
+        Arrays.fill(platformPosition, -1);
+
+        // 1. 逐条线路走出站序并累计
+        int[] lineSize = new int[lineCount];
+        for (int node = stationCount; node < g.nodeCount(); node++) lineSize[g.nodeLine(node)]++;
+        for (int line = 0; line < lineCount; line++) {
+            int[] walk = walk(g, line, lineSize[line]);
+            if (walk == null) continue;
+            int n = walk.length;
+            boolean ring = lineArc(base, walk[n - 1], walk[0], line) >= 0 && n > 2;
+            int spans = ring ? n : n - 1;
+            double[] dist = new double[n + 1];
+            double[] time = new double[n + 1];
+            int[] forward = new int[spans];
+            int[] backward = new int[spans];
+            for (int i = 0; i < spans; i++) {
+                forward[i] = lineArc(base, walk[i], walk[(i + 1) % n], line);
+                backward[i] = lineArc(base, walk[(i + 1) % n], walk[i], line);
+                dist[i + 1] = dist[i] + base.arcDistance(forward[i]);
+                time[i + 1] = time[i] + base.arcTime(forward[i]);
+            }
+            order[line] = walk;
+            loop[line] = ring;
+            distance[line] = dist;
+            runTime[line] = time;
+            forwardArc[line] = forward;
+            backwardArc[line] = backward;
+            for (int i = 0; i < n; i++) platformPosition[g.platform(walk[i], line)] = i;
+        }
+
+        // 2. 关键站：换乘站、不规则线路上的站、链线端点、没有其他关键站的环线首站
+        boolean[] keyStation = new boolean[stationCount];
+        for (int s = 0; s < stationCount; s++) {
+            if (g.endPlatform(s) - g.firstPlatform(s) > 1) keyStation[s] = true;
+        }
+        for (int node = stationCount; node < g.nodeCount(); node++) {
+            if (order[g.nodeLine(node)] == null) keyStation[g.nodeStation(node)] = true;
+        }
+        for (int line = 0; line < lineCount; line++) {
+            int[] walk = order[line];
+            if (walk == null) continue;
+            if (!loop[line]) {
+                keyStation[walk[0]] = true;
+                keyStation[walk[walk.length - 1]] = true;
+            } else if (Arrays.stream(walk).noneMatch(s -> keyStation[s])) {
+                keyStation[walk[0]] = true;
+            }
+        }
+        int[][] previousKey = new int[lineCount][];
+        int[][] nextKey = new int[lineCount][];
+        for (int line = 0; line < lineCount; line++) {
+            int[] walk = order[line];
+            if (walk == null) continue;
+            int n = walk.length;
+            int[] previous = new int[n];
+            int[] next = new int[n];
+            // 环线绕两圈，保证每个位置都能找到两侧的关键站
+            int rounds = loop[line] ? 2 : 1;
+            int last = -1;
+            for (int k = 0; k < rounds * n; k++) {
+                int pos = k % n;
+                if (keyStation[walk[pos]]) last = pos;
+                previous[pos] = last;
+            }
+            last = -1;
+            for (int k = rounds * n - 1; k >= 0; k--) {
+                int pos = k % n;
+                if (keyStation[walk[pos]]) last = pos;
+                next[pos] = last;
+            }
+            previousKey[line] = previous;
+            nextKey[line] = next;
+        }
+
+        // 3. 跳跃弧：有偏移量的线路上相邻关键站之间双向各一条；不规则线路保留每个区间
+        List<int[]> jumps = new ArrayList<>();          // {from, to, line, fromPos, toPos, forward, arc}
+        for (int line = 0; line < lineCount; line++) {
+            int[] walk = order[line];
+            if (walk == null) continue;
+            int n = walk.length;
+            int spans = loop[line] ? n : n - 1;
+            for (int pos = 0; pos < n; pos++) {
+                if (!keyStation[walk[pos]]) continue;
+                if (pos < spans || loop[line]) {
+                    int to = nextKey[line][(pos + 1) % n];
+                    if (to >= 0 && to != pos && (loop[line] || to > pos)) {
+                        jumps.add(new int[]{walk[pos], walk[to], line, pos, to, 1, -1});
+                        jumps.add(new int[]{walk[to], walk[pos], line, to, pos, 0, -1});
+                    }
+                }
+            }
+        }
+        for (int arc = 0; arc < base.arcCount(); arc++) {
+            int line = base.arcLine(arc);
+            if (order[line] != null) continue;
+            jumps.add(new int[]{base.arcFrom(arc), base.arcTo(arc), line, -1, -1, 1, arc});
+        }
+        int m = jumps.size();
+        int[] firstJump = new int[stationCount + 1];
+        for (int[] jump : jumps) firstJump[jump[0] + 1]++;
+        for (int s = 0; s < stationCount; s++) firstJump[s + 1] += firstJump[s];
+        int[] cursor = Arrays.copyOf(firstJump, stationCount);
+        int[] jumpFrom = new int[m];
+        int[] jumpTo = new int[m];
+        int[] jumpLine = new int[m];
+        int[] jumpFromPos = new int[m];
+        int[] jumpToPos = new int[m];
+        boolean[] jumpForward = new boolean[m];
+        int[] jumpArc = new int[m];
+        double[] jumpTime = new double[m];
+        for (int[] jump : jumps) {
+            int j = cursor[jump[0]]++;
+            jumpFrom[j] = jump[0];
+            jumpTo[j] = jump[1];
+            jumpLine[j] = jump[2];
+            jumpFromPos[j] = jump[3];
+            jumpToPos[j] = jump[4];
+            jumpForward[j] = jump[5] == 1;
+            jumpArc[j] = jump[6];
+            jumpTime[j] = jump[6] >= 0 ? base.arcTime(jump[6])
+                    : span(runTime[jump[2]], loop[jump[2]], jump[3], jump[4], jump[5] == 1);
+        }
+        return new LineOffsets(g, order, loop, distance, runTime, forwardArc, backwardArc, platformPosition, keyStation,
+                previousKey, nextKey, firstJump, jumpFrom, jumpTo, jumpLine, jumpFromPos, jumpToPos, jumpForward, jumpArc,
+                jumpTime);
+    }
+
+    // 线路子图是一条链或一个环时返回从端点（环线为编号最小的站）出发的站序，否则返回 null
+    private static int[] walk(LineExpandedGraph g, int line, int size) {
+        RoutingGraph base = g.base();
+        if (size < 2) return null;
+        int start = -1;
+        boolean hasEnd = false;
+        for (int node = g.stationCount(); node < g.nodeCount(); node++) {
+            if (g.nodeLine(node) != line) continue;
+            int station = g.nodeStation(node);
+            int degree = 0;
+            for (int arc = base.firstArc(station), end = base.endArc(station); arc < end; arc++) {
+                if (base.arcLine(arc) != line) continue;
+                degree++;
+                // 重复区间或往返不对称时不能用同一组前缀和表示两个方向
+                int back = lineArc(base, base.arcTo(arc), station, line);
+                if (back < 0 || base.arcTime(back) != base.arcTime(arc) || base.arcDistance(back) != base.arcDistance(arc)
+                        || base.arcTo(arc) == station) return null;
+                for (int other = base.firstArc(station); other < arc; other++) {
+                    if (base.arcLine(other) == line && base.arcTo(other) == base.arcTo(arc)) return null;
+                }
+            }
+            if (degree == 0 || degree > 2) return null;
+            if (degree == 1 && (!hasEnd || station < start)) {
+                start = station;
+                hasEnd = true;
+            } else if (!hasEnd && (start < 0 || station < start)) {
+                start = station;
+            }
+        }
+        int[] walk = new int[size];
+        int previous = -1;
+        int current = start;
+        for (int i = 0; i < size; i++) {
+            walk[i] = current;
+            int next = -1;
+            for (int arc = base.firstArc(current), end = base.endArc(current); arc < end; arc++) {
+                if (base.arcLine(arc) != line || base.arcTo(arc) == previous) continue;
+                if (next < 0 || (i == 0 && base.arcTo(arc) < next)) next = base.arcTo(arc);
+            }
+            if (i < size - 1 && next < 0) return null;   // 不连通
+            previous = current;
+            current = next;
+        }
+        // 链线走到另一端点后不应再有后继；环线应回到首站
+        if (hasEnd ? current >= 0 : current != start) return null;
+        return walk;
+    }
+
+    private static int lineArc(RoutingGraph base, int from, int to, int line) {
+        for (int arc = base.firstArc(from), end = base.endArc(from); arc < end; arc++) {
+            if (base.arcLine(arc) == line && base.arcTo(arc) == to) return arc;
+        }
+        return -1;
+    }
+
+    // 沿指定方向从 from 到 to 的累计量之差
+    private static double span(double[] cumulative, boolean ring, int from, int to, boolean forward) {
+        if (!ring) return Math.abs(cumulative[to] - cumulative[from]);
+        double total = cumulative[cumulative.length - 1];
+        double d = forward ? cumulative[to] - cumulative[from] : cumulative[from] - cumulative[to];
+        return d < 0 ? d + total : d;
+    }
+
+    // ---------- 偏移量查询 ----------
+
+    public boolean hasOffsets(int line) {
+        return order[line] != null;
+    }
+
+    public boolean isLoop(int line) {
+        return loop[line];
+    }
+
+    // 站点在线路站序中的位置，不在该线路上或线路无偏移量时返回 -1
+    public int position(int line, int station) {
+        int platform = g.platform(station, line);
+        return platform < 0 ? -1 : platformPosition[platform];
+    }
+
+    // 沿 forward 方向（链线为位置增大方向）从 from 到 to 的运行时间、距离与区间数；位置为线路站序中的位置
+    public double runTime(int line, int from, int to, boolean forward) {
+        return span(runTime[line], loop[line], from, to, forward);
+    }
+
+    public double distance(int line, int from, int to, boolean forward) {
+        return span(distance[line], loop[line], from, to, forward);
+    }
+
+    public int hops(int line, int from, int to, boolean forward) {
+        int n = order[line].length;
+        if (!loop[line]) return Math.abs(to - from);
+        int d = forward ? to - from : from - to;
+        return d < 0 ? d + n : d;
+    }
+
+    // 链线方向由位置决定；环线取运行时间较短的方向（相等时取顺行方向）
+    public boolean shorterForward(int line, int from, int to) {
+        if (!loop[line]) return to >= from;
+        return runTime(line, from, to, true) <= runTime(line, from, to, false);
+    }
+
+    // 同一线路上两站之间只乘本线的最短时间（运行时间 + 每区间 stopTime），不在该线路上时为正无穷
+    public double time(int line, int fromStation, int toStation, double stopTime) {
+        int from = position(line, fromStation);
+        int to = position(line, toStation);
+        if (from < 0 || to < 0) return Double.POSITIVE_INFINITY;
+        boolean forward = shorterForward(line, from, to);
+        return runTime(line, from, to, forward) + stopTime * hops(line, from, to, forward);
+    }
+
+    // 按行车顺序追加从 from 到 to 的各区间对应的原始边
+    public void appendRide(int line, int from, int to, boolean forward, List<Edge> out) {
+        RoutingGraph base = g.base();
+        int n = order[line].length;
+        for (int pos = from; pos != to; ) {
+            if (forward) {
+                out.add(base.arcEdge(forwardArc[line][pos]));
+                pos = (pos + 1) % n;
+            } else {
+                pos = (pos - 1 + n) % n;
+                out.add(base.arcEdge(backwardArc[line][pos]));
+            }
+        }
+    }
+
+    public int station(int line, int pos) {
+        return order[line][pos];
+    }
+
+    public int stationCount(int line) {
+        return order[line].length;
+    }
+
+    // ---------- 跳跃弧 ----------
+
+    public boolean isKeyStation(int station) {
+        return keyStation[station];
+    }
+
+    // 非关键站两侧最近的关键站位置（逆行 / 顺行方向）
+    public int previousKey(int line, int pos) {
+        return previousKey[line][pos];
+    }
+
+    public int nextKey(int line, int pos) {
+        return nextKey[line][pos];
+    }
+
+    public int firstJump(int station) {
+        return firstJump[station];
+    }
+
+    public int endJump(int station) {
+        return firstJump[station + 1];
+    }
+
+    public int jumpFrom(int jump) {
+        return jumpFrom[jump];
+    }
+
+    public int jumpTo(int jump) {
+        return jumpTo[jump];
+    }
+
+    public int jumpLine(int jump) {
+        return jumpLine[jump];
+    }
+
+    public double jumpTime(int jump) {
+        return jumpTime[jump];
+    }
+
+    // 按行车顺序追加跳跃弧途经的原始边
+    public void appendJump(int jump, List<Edge> out) {
+        if (jumpArc[jump] >= 0) {
+            out.add(g.base().arcEdge(jumpArc[jump]));
+        } else {
+            appendRide(jumpLine[jump], jumpFromPos[jump], jumpToPos[jump], jumpForward[jump], out);
+        }
+    }
+
+    public int jumpCount() {
+        return jumpTo.length;
+    }
+
+    // 偏移量与跳跃弧占用的内存估计（字节）
+    public long estimatedBytes() {
+        long bytes = (long) platformPosition.length * Integer.BYTES + keyStation.length
+                + (long) firstJump.length * Integer.BYTES + (long) jumpTo.length * (7 * Integer.BYTES + Double.BYTES + 1);
+        for (int line = 0; line < lineCount; line++) {
+            if (order[line] == null) continue;
+            int n = order[line].length;
+            bytes += (long) n * (5 * Integer.BYTES + 2 * Double.BYTES);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,387 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import com.subway.service.diagnostics.SearchPhaseEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 线路连通索引：线路数很少（几十条），线路之间的最少换乘次数和换乘站可以预先算好。
+ * <ul>
+ *   <li>换乘矩阵：线路 a 到线路 b 的最少换乘次数（线路图上的 BFS，两条线路有共同站点即相邻）；</li>
+ *   <li>换乘站：每对相邻线路的共同站点；</li>
+ *   <li>线路内最短时间：有偏移量的线路由 LineOffsets 的前缀和 O(1) 得到，
+ *       不规则线路预先求线路内全源最短路。</li>
+ * </ul>
+ * 最少换乘查询先由矩阵得到换乘次数下界 k，再只沿"剩余换乘次数仍能到达终点线路"的线路链做逐层动态规划，
+ * 每层的状态是 (线路, 上车站)，转移时逐个评估换乘站并取时间最小者。
+ * 目标函数与 LeastTransferSearch 相同（先换乘次数，后乘车时间 + 每次换乘 transferPenalty），
+ * 下界 k 层内找不到方案时（线路自身不连通等情况）返回 null，由调用方回退到展开图搜索。
+ * 不处理临时关闭条件，带关闭条件的查询直接使用展开图搜索。
+ */
+public final class LineTransferIndex {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<LayerStack> LAYERS = ThreadLocal.withInitial(LayerStack::new);
+
+    private final LineExpandedGraph g;
+    private final LineOffsets offsets;
+    private final int lineCount;
+    private final int[] transfers;          // [a * lineCount + b] 最少换乘次数
+    private final int[][] adjacentLines;    // 线路 a 的相邻线路
+    private final int[][] interchanges;     // [a * lineCount + b] 线路 a、b 的共同站点
+    private final int[] platformLocal;      // 站台节点 -> 在所在线路站点列表中的序号，站厅节点为 -1
+    private final int[][] lineStations;     // 线路 a 上的站点编号
+    private final double[][] lineTime;      // [a][i * n + j] 不规则线路 a 上第 i 站到第 j 站的最短运行时间
+    private final int[][] linePred;         // [a][i * n + j] 上述最短路中进入第 j 站的 RoutingGraph 弧
+
+    private LineTransferIndex(LineExpandedGraph g, LineOffsets offsets, int lineCount, int[] transfers,
+                              int[][] adjacentLines, int[][] interchanges, int[] platformLocal, int[][] lineStations,
+                              double[][] lineTime, int[][] linePred) {
+        this.g = g;
+        this.offsets = offsets;
+        this.lineCount = lineCount;
+        this.transfers = transfers;
+        this.adjacentLines = adjacentLines;
+        this.interchanges = interchanges;
+        this.platformLocal = platformLocal;
+        this.lineStations = lineStations;
+        this.lineTime = lineTime;
+        this.linePred = linePred;
+    }
+
+    static LineTransferIndex build(LineExpandedGraph g, LineOffsets offsets) {
+        RoutingGraph base = g.base();
+        int lineCount = base.lineCount();
+        int stationCount = g.stationCount();
+
+        // 1. 每条线路的站点列表与站台节点的线路内序号
+        int[] platformLocal = new int[g.nodeCount()];
+        Arrays.fill(platformLocal, -1);
+        int[] lineSize = new int[lineCount];
+        for (int node = stationCount; node < g.nodeCount(); node++) {
+            platformLocal[node] = lineSize[g.nodeLine(node)]++;
+        }
+        int[][] lineStations = new int[lineCount][];
+        for (int line = 0; line < lineCount; line++) {
+            lineStations[line] = new int[lineSize[line]];
+        }
+        for (int node = stationCount; node < g.nodeCount(); node++) {
+            lineStations[g.nodeLine(node)][platformLocal[node]] = g.nodeStation(node);
+        }
+
+        // 2. 换乘站：同一站点的每对站台线路
+        List<List<Integer>> shared = new ArrayList<>(lineCount * lineCount);
+        for (int i = 0; i < lineCount * lineCount; i++) shared.add(null);
+        for (int s = 0; s < stationCount; s++) {
+            for (int p = g.firstPlatform(s); p < g.endPlatform(s); p++) {
+                for (int q = g.firstPlatform(s); q < g.endPlatform(s); q++) {
+                    if (p == q) continue;
+                    int key = g.nodeLine(p) * lineCount + g.nodeLine(q);
+                    if (shared.get(key) == null) shared.set(key, new ArrayList<>());
+                    shared.get(key).add(s);
+                }
+            }
+        }
+        int[][] interchanges = new int[lineCount * lineCount][];
+        int[][] adjacentLines = new int[lineCount][];
+        for (int a = 0; a < lineCount; a++) {
+            List<Integer> neighbours = new ArrayList<>();
+            for (int b = 0; b < lineCount; b++) {
+                List<Integer> stations = shared.get(a * lineCount + b);
+                if (stations == null) continue;
+                interchanges[a * lineCount + b] = stations.stream().mapToInt(Integer::intValue).toArray();
+                neighbours.add(b);
+            }
+            adjacentLines[a] = neighbours.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // 3. 换乘矩阵：从每条线路出发在线路图上 BFS
+        int[] transfers = new int[lineCount * lineCount];
+        Arrays.fill(transfers, UNREACHABLE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int a = 0; a < lineCount; a++) {
+            transfers[a * lineCount + a] = 0;
+            queue.add(a);
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                for (int next : adjacentLines[current]) {
+                    if (transfers[a * lineCount + next] != UNREACHABLE) continue;
+                    transfers[a * lineCount + next] = transfers[a * lineCount + current] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+
+        // 4. 不规则线路的线路内全源最短路：每条线路几十个站，用 O(n^2) 的 Dijkstra
+        double[][] lineTime = new double[lineCount][];
+        int[][] linePred = new int[lineCount][];
+        for (int line = 0; line < lineCount; line++) {
+            if (offsets.hasOffsets(line)) continue;
+            int n = lineSize[line];
+            int[] platforms = new int[n];
+            for (int i = 0; i < n; i++) {
+                platforms[i] = g.platform(lineStations[line][i], line);
+            }
+            double[] time = new double[n * n];
+            int[] pred = new int[n * n];
+            boolean[] done = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                Arrays.fill(time, i * n, (i + 1) * n, Double.POSITIVE_INFINITY);
+                Arrays.fill(pred, i * n, (i + 1) * n, -1);
+                Arrays.fill(done, false);
+                time[i * n + i] = 0.0;
+                for (int round = 0; round < n; round++) {
+                    int current = -1;
+                    for (int j = 0; j < n; j++) {
+                        if (!done[j] && time[i * n + j] < Double.POSITIVE_INFINITY
+                                && (current < 0 || time[i * n + j] < time[i * n + current])) current = j;
+                    }
+                    if (current < 0) break;
+                    done[current] = true;
+                    int node = platforms[current];
+                    for (int arc = g.firstArc(node), end = g.endArc(node); arc < end; arc++) {
+                        if (g.arcKind(arc) != LineExpandedGraph.RIDE) continue;
+                        int next = platformLocal[g.arcTo(arc)];
+                        double candidate = time[i * n + current] + g.arcTime(arc, 0.0);
+                        if (candidate < time[i * n + next]) {
+                            time[i * n + next] = candidate;
+                            pred[i * n + next] = g.arcOrigin(arc);
+                        }
+                    }
+                }
+            }
+            lineTime[line] = time;
+            linePred[line] = pred;
+        }
+        return new LineTransferIndex(g, offsets, lineCount, transfers, adjacentLines, interchanges, platformLocal,
+                lineStations, lineTime, linePred);
+    }
+
+    // 线路 a 到线路 b 的最少换乘次数，不可达为 UNREACHABLE
+    public int transfers(int lineA, int lineB) {
+        return transfers[lineA * lineCount + lineB];
+    }
+
+    // 线路 a、b 的共同站点编号，不相邻时为空
+    public int[] interchanges(int lineA, int lineB) {
+        int[] stations = interchanges[lineA * lineCount + lineB];
+        return stations == null ? new int[0] : stations.clone();
+    }
+
+    // 索引占用的内存估计（字节）
+    public long estimatedBytes() {
+        long bytes = (long) transfers.length * Integer.BYTES + (long) platformLocal.length * Integer.BYTES;
+        for (int[] stations : interchanges) {
+            if (stations != null) bytes += (long) stations.length * Integer.BYTES;
+        }
+        for (int line = 0; line < lineCount; line++) {
+            bytes += (long) lineStations[line].length * Integer.BYTES + adjacentLines[line].length * Integer.BYTES;
+            if (lineTime[line] != null) {
+                bytes += (long) lineTime[line].length * Double.BYTES + (long) linePred[line].length * Integer.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 最少换乘路径（不含临时关闭条件）。起终点不存在、相同或不连通时返回空列表；
+     * 换乘次数下界内找不到方案时返回 null，调用方应回退到 LeastTransferSearch。
+     */
+    public List<Edge> findPath(String startName, String endName, double transferPenalty) {
+        RoutingGraph base = g.base();
+        int source = base.stationId(startName);
+        int target = base.stationId(endName);
+        if (source < 0 || target < 0 || source == target) return Collections.emptyList();
+
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        // 各线路到终点任一线路的最少换乘次数，及换乘次数下界
+        int[] toTarget = new int[lineCount];
+        Arrays.fill(toTarget, UNREACHABLE);
+        for (int p = g.firstPlatform(target); p < g.endPlatform(target); p++) {
+            int targetLine = g.nodeLine(p);
+            for (int line = 0; line < lineCount; line++) {
+                toTarget[line] = Math.min(toTarget[line], transfers[line * lineCount + targetLine]);
+            }
+        }
+        int bound = UNREACHABLE;
+        for (int p = g.firstPlatform(source); p < g.endPlatform(source); p++) {
+            bound = Math.min(bound, toTarget[g.nodeLine(p)]);
+        }
+        if (bound == UNREACHABLE) {
+            commit(event, source, target, 0, 0);
+            return Collections.emptyList();
+        }
+
+        // 逐层动态规划；layers.get(i) 为换乘 i 次后的状态 (站台节点 = 线路 + 上车站)，各层数组每线程复用
+        LayerStack layers = LAYERS.get();
+        Layer first = layers.begin(0, g.nodeCount());
+        for (int p = g.firstPlatform(source); p < g.endPlatform(source); p++) {
+            if (toTarget[g.nodeLine(p)] <= bound) first.offer(p, 0.0, -1);
+        }
+        int evaluated = first.size;
+        for (int layer = 0; layer < bound; layer++) {
+            Layer current = layers.get(layer);
+            Layer next = layers.begin(layer + 1, g.nodeCount());
+            int remaining = bound - layer - 1;
+            for (int k = 0; k < current.size; k++) {
+                int node = current.nodes[k];
+                int line = g.nodeLine(node);
+                int from = g.nodeStation(node);
+                for (int nextLine : adjacentLines[line]) {
+                    if (toTarget[nextLine] > remaining) continue;
+                    for (int station : interchanges[line * lineCount + nextLine]) {
+                        double ride = rideTime(line, from, station);
+                        if (ride == Double.POSITIVE_INFINITY) continue;
+                        next.offer(g.platform(station, nextLine), current.costs[k] + ride + transferPenalty, k);
+                        evaluated++;
+                    }
+                }
+            }
+        }
+
+        // 最后一层在终点所在线路上乘到终点
+        Layer last = layers.get(bound);
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < last.size; k++) {
+            int node = last.nodes[k];
+            int line = g.nodeLine(node);
+            if (g.platform(target, line) < 0) continue;
+            double cost = last.costs[k] + rideTime(line, g.nodeStation(node), target);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = k;
+            }
+        }
+        if (best < 0) {
+            commit(event, source, target, evaluated, 0);
+            return null;
+        }
+
+        // 回溯各层状态（上车站即上一层的下车站），再按乘车顺序拼接每段线路内的最短路
+        int[] boardNodes = new int[bound + 1];
+        for (int layer = bound, k = best; layer >= 0; layer--) {
+            boardNodes[layer] = layers.get(layer).nodes[k];
+            k = layers.get(layer).parents[k];
+        }
+        List<Edge> path = new ArrayList<>();
+        for (int layer = 0; layer <= bound; layer++) {
+            int alight = layer < bound ? g.nodeStation(boardNodes[layer + 1]) : target;
+            appendRide(path, g.nodeLine(boardNodes[layer]), g.nodeStation(boardNodes[layer]), alight);
+        }
+        commit(event, source, target, evaluated, path.size());
+        return path;
+    }
+
+    // 只乘本线从 fromStation 到 toStation 的最短运行时间
+    private double rideTime(int line, int fromStation, int toStation) {
+        if (offsets.hasOffsets(line)) return offsets.time(line, fromStation, toStation, 0.0);
+        int n = lineStations[line].length;
+        return lineTime[line][local(fromStation, line) * n + local(toStation, line)];
+    }
+
+    // 按乘车顺序追加只乘本线从 fromStation 到 toStation 的各区间
+    private void appendRide(List<Edge> path, int line, int fromStation, int toStation) {
+        if (offsets.hasOffsets(line)) {
+            int from = offsets.position(line, fromStation);
+            int to = offsets.position(line, toStation);
+            offsets.appendRide(line, from, to, offsets.shorterForward(line, from, to), path);
+            return;
+        }
+        int n = lineStations[line].length;
+        int from = local(fromStation, line);
+        RoutingGraph base = g.base();
+        int start = path.size();
+        for (int current = local(toStation, line); current != from; ) {
+            int arc = linePred[line][from * n + current];
+            path.add(base.arcEdge(arc));
+            current = local(base.arcFrom(arc), line);
+        }
+        Collections.reverse(path.subList(start, path.size()));
+    }
+
+    private int local(int station, int line) {
+        return platformLocal[g.platform(station, line)];
+    }
+
+    private void commit(SearchPhaseEvent event, int source, int target, int evaluated, int pathEdges) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.phase = SearchPhaseEvent.LINE_CHAIN;
+        event.sourceId = source;
+        event.targetId = target;
+        event.nodesSettled = evaluated;
+        event.graphNodes = g.nodeCount();
+        event.pathEdges = pathEdges;
+        event.commit();
+    }
+
+    // 每线程复用的各层 DP 状态，与 SearchWorkspace 相同按需扩容、按 epoch 区分本次查询写入的槽位
+    private static final class LayerStack {
+        private final List<Layer> layers = new ArrayList<>();
+
+        // 开始第 index 层（换乘 index 次）的新一轮状态
+        Layer begin(int index, int nodeCount) {
+            while (layers.size() <= index) layers.add(new Layer());
+            Layer layer = layers.get(index);
+            layer.begin(nodeCount);
+            return layer;
+        }
+
+        Layer get(int index) {
+            return layers.get(index);
+        }
+    }
+
+    // 一层 DP 状态：同一站台节点只保留代价最小的一个
+    private static final class Layer {
+        private int[] stamp = new int[0];   // 站台节点 -> 写入 slot 时的 epoch
+        private int[] slot = new int[0];    // 站台节点 -> 状态序号
+        private int epoch;
+        int[] nodes = new int[16];
+        double[] costs = new double[16];
+        int[] parents = new int[16];
+        int size;
+
+        void begin(int nodeCount) {
+            if (stamp.length < nodeCount) {
+                int capacity = Math.max(nodeCount, stamp.length * 2);
+                stamp = new int[capacity];
+                slot = new int[capacity];
+                epoch = 0;
+            }
+            size = 0;
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+        }
+
+        void offer(int node, double cost, int parent) {
+            int index;
+            if (stamp[node] != epoch) {
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size * 2);
+                    costs = Arrays.copyOf(costs, size * 2);
+                    parents = Arrays.copyOf(parents, size * 2);
+                }
+                index = size++;
+                stamp[node] = epoch;
+                slot[node] = index;
+                nodes[index] = node;
+            } else {
+                index = slot[node];
+                if (cost >= costs[index]) return;
+            }
+            costs[index] = cost;
+            parents[index] = parent;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import com.subway.model.Station;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以 int 编号表示站点和线路的不可变路网快照（CSR 邻接表）。
+ * 每次线路增删后由服务层整体重建，查询期间只读，可被多个线程共享。
+ */
+public final class RoutingGraph {
+
+    private final String[] stationNames;
+    private final Map<String, Integer> stationIndex;
+    private final String[] lineIds;
+    private final Map<String, Integer> lineIndex;
+
+    // 站点 s 的出边为 [firstArc[s], firstArc[s + 1])
+    private final int[] firstArc;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final int[] arcLine;
+    private final double[] arcTime;
+    private final double[] arcDistance;
+    private final Edge[] arcEdge;
+    private LineExpandedGraph lineExpanded;
+    private LineOffsets lineOffsets;
+    private LineTransferIndex transferIndex;
+
+    private RoutingGraph(String[] stationNames, Map<String, Integer> stationIndex,
+                         String[] lineIds, Map<String, Integer> lineIndex,
+                         int[] firstArc, int[] arcFrom, int[] arcTo, int[] arcLine,
+                         double[] arcTime, double[] arcDistance, Edge[] arcEdge) {
+        this.stationNames = stationNames;
+        this.stationIndex = stationIndex;
+        this.lineIds = lineIds;
+        this.lineIndex = lineIndex;
+        this.firstArc = firstArc;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcLine = arcLine;
+        this.arcTime = arcTime;
+        this.arcDistance = arcDistance;
+        this.arcEdge = arcEdge;
+    }
+
+    // 由站点集合与边列表编译路网；站点以名称为键，边端点不在站点集合中时同样编号
+    public static RoutingGraph build(Collection<Station> stations, List<Edge> edges) {
+        Map<String, Integer> stationIndex = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Station station : stations) {
+            stationIndex.computeIfAbsent(station.getName(), k -> {
+                names.add(k);
+                return names.size() - 1;
+            });
+        }
+        Map<String, Integer> lineIndex = new HashMap<>();
+        List<String> lines = new ArrayList<>();
+        for (Edge edge : edges) {
+            for (String name : new String[]{edge.getFrom().getName(), edge.getTo().getName()}) {
+                stationIndex.computeIfAbsent(name, k -> {
+                    names.add(k);
+                    return names.size() - 1;
+                });
+            }
+            lineIndex.computeIfAbsent(edge.getLineId(), k -> {
+                lines.add(k);
+                return lines.size() - 1;
+            });
+        }
+
+        int n = names.size();
+        int m = edges.size();
+        int[] firstArc = new int[n + 1];
+        for (Edge edge : edges) {
+            firstArc[stationIndex.get(edge.getFrom().getName()) + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            firstArc[i + 1] += firstArc[i];
+        }
+        int[] cursor = new int[n];
+        System.arraycopy(firstArc, 0, cursor, 0, n);
+        int[] arcFrom = new int[m];
+        int[] arcTo = new int[m];
+        int[] arcLine = new int[m];
+        double[] arcTime = new double[m];
+        double[] arcDistance = new double[m];
+        Edge[] arcEdge = new Edge[m];
+        // 按原始边顺序写入，保证同一站点出边的遍历顺序与旧实现一致
+        for (Edge edge : edges) {
+            int from = stationIndex.get(edge.getFrom().getName());
+            int arc = cursor[from]++;
+            arcFrom[arc] = from;
+            arcTo[arc] = stationIndex.get(edge.getTo().getName());
+            arcLine[arc] = lineIndex.get(edge.getLineId());
+            arcTime[arc] = edge.getTravelTime();
+            arcDistance[arc] = edge.getDistance();
+            arcEdge[arc] = edge;
+        }
+        RoutingGraph graph = new RoutingGraph(names.toArray(new String[0]), stationIndex,
+                lines.toArray(new String[0]), lineIndex,
+                firstArc, arcFrom, arcTo, arcLine, arcTime, arcDistance, arcEdge);
+        graph.lineExpanded = LineExpandedGraph.build(graph);
+        graph.lineOffsets = LineOffsets.build(graph.lineExpanded);
+        graph.transferIndex = LineTransferIndex.build(graph.lineExpanded, graph.lineOffsets);
+        return graph;
+    }
+
+    // 与本快照一同编译的线路展开图，用于最少换乘搜索
+    public LineExpandedGraph lineExpanded() {
+        return lineExpanded;
+    }
+
+    // 与本快照一同编译的每条线路累计距离/时间与跳跃弧
+    public LineOffsets lineOffsets() {
+        return lineOffsets;
+    }
+
+    // 与本快照一同编译的线路换乘索引，用于无关闭条件的最少换乘查询
+    public LineTransferIndex transferIndex() {
+        return transferIndex;
+    }
+
+    public int stationCount() {
+        return stationNames.length;
+    }
+
+    public int arcCount() {
+        return arcTo.length;
+    }
+
+    public int lineCount() {
+        return lineIds.length;
+    }
+
+    // 站点名称 -> 编号，不存在时返回 -1
+    public int stationId(String name) {
+        Integer id = name == null ? null : stationIndex.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String stationName(int station) {
+        return stationNames[station];
+    }
+
+    // 线路编号 -> 下标，不存在时返回 -1
+    public int lineIndex(String lineId) {
+        Integer index = lineId == null ? null : lineIndex.get(lineId);
+        return index == null ? -1 : index;
+    }
+
+    public String lineId(int line) {
+        return lineIds[line];
+    }
+
+    public int firstArc(int station) {
+        return firstArc[station];
+    }
+
+    public int endArc(int station) {
+        return firstArc[station + 1];
+    }
+
+    public int arcFrom(int arc) {
+        return arcFrom[arc];
+    }
+
+    public int arcTo(int arc) {
+        return arcTo[arc];
+    }
+
+    public int arcLine(int arc) {
+        return arcLine[arc];
+    }
+
+    public double arcTime(int arc) {
+        return arcTime[arc];
+    }
+
+    public double arcDistance(int arc) {
+        return arcDistance[arc];
+    }
+
+    public Edge arcEdge(int arc) {
+        return arcEdge[arc];
+    }
+}
@@ -0,0 +1,132 @@
+package com.subway.service.routing;
+
+import com.subway.util.IndexedDaryHeap;
+
+import java.util.Arrays;
+
+/**
+ * 每线程复用的搜索工作区：距离、前驱数组与索引堆。
+ * 通过 epoch 标记区分本次查询写入的标签，开始新查询时无需清空数组。
+ * 另带一层"延后桶"（deferred），供按层推进的字典序搜索暂存下一层的候选标签。
+ */
+public final class SearchWorkspace {
+
+    private static final ThreadLocal<SearchWorkspace> LOCAL = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    private int[] stamp = new int[0];
+    private double[] dist = new double[0];
+    private int[] pred = new int[0];
+    private int[] settledStamp = new int[0];
+    private int[] deferredStamp = new int[0];
+    private double[] deferredDist = new double[0];
+    private int[] deferredPred = new int[0];
+    private int[] deferredNodes = new int[0];
+    private int deferredCount;
+    private final IndexedDaryHeap heap = new IndexedDaryHeap(64);
+    private int epoch;
+
+    private SearchWorkspace() {
+    }
+
+    // 获取当前线程的工作区，并为包含 nodeCount 个节点的新一轮搜索做好准备
+    public static SearchWorkspace acquire(int nodeCount) {
+        SearchWorkspace ws = LOCAL.get();
+        ws.begin(nodeCount);
+        return ws;
+    }
+
+    private void begin(int nodeCount) {
+        if (stamp.length < nodeCount) {
+            int capacity = Math.max(nodeCount, stamp.length * 2);
+            stamp = new int[capacity];
+            dist = new double[capacity];
+            pred = new int[capacity];
+            settledStamp = new int[capacity];
+            deferredStamp = new int[capacity];
+            deferredDist = new double[capacity];
+            deferredPred = new int[capacity];
+            deferredNodes = new int[capacity];
+            epoch = 0;
+        }
+        heap.ensureCapacity(nodeCount);
+        heap.clear();
+        deferredCount = 0;
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(settledStamp, 0);
+            Arrays.fill(deferredStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    public IndexedDaryHeap heap() {
+        return heap;
+    }
+
+    // 节点在本轮搜索中是否已有标签
+    public boolean reached(int node) {
+        return stamp[node] == epoch;
+    }
+
+    public double dist(int node) {
+        return stamp[node] == epoch ? dist[node] : Double.MAX_VALUE;
+    }
+
+    // 前驱弧编号，-1 表示无前驱（起点或未到达）
+    public int pred(int node) {
+        return stamp[node] == epoch ? pred[node] : -1;
+    }
+
+    public void setLabel(int node, double distance, int predArc) {
+        stamp[node] = epoch;
+        dist[node] = distance;
+        pred[node] = predArc;
+    }
+
+    public boolean settled(int node) {
+        return settledStamp[node] == epoch;
+    }
+
+    public void settle(int node) {
+        settledStamp[node] = epoch;
+    }
+
+    // ---------- 延后桶：下一层候选标签 ----------
+
+    // 记录下一层的候选标签，仅在更优时覆盖；返回是否被接受
+    public boolean defer(int node, double distance, int predArc) {
+        if (deferredStamp[node] == epoch) {
+            if (distance >= deferredDist[node]) return false;
+        } else {
+            deferredStamp[node] = epoch;
+            deferredNodes[deferredCount++] = node;
+        }
+        deferredDist[node] = distance;
+        deferredPred[node] = predArc;
+        return true;
+    }
+
+    public int deferredCount() {
+        return deferredCount;
+    }
+
+    public int deferredNode(int index) {
+        return deferredNodes[index];
+    }
+
+    public double deferredDist(int node) {
+        return deferredDist[node];
+    }
+
+    public int deferredPred(int node) {
+        return deferredPred[node];
+    }
+
+    // 取出延后桶后调用，使同一节点可在更后面的层再次被延后
+    public void clearDeferred() {
+        for (int i = 0; i < deferredCount; i++) {
+            deferredStamp[deferredNodes[i]] = 0;
+        }
+        deferredCount = 0;
+    }
+}
@@ -0,0 +1,304 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import com.subway.service.diagnostics.SearchPhaseEvent;
+import com.subway.util.IndexedDaryHeap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于 RoutingGraph 的 Dijkstra 最短时间搜索。
+ * 换乘判定与旧实现一致：到达当前站所用边与出边线路不同时加换乘时间。
+ * 无关闭条件的点对点查询只在关键站之间沿跳跃弧搜索（见 LineOffsets），结果与逐区间搜索相同；
+ * 带关闭线路或区间的查询和一对多搜索仍逐区间搜索。
+ * 带关闭站点的查询需要区分"经过"与"换乘"，改在线路展开图上搜索（见 LeastTransferSearch.findFastestPath）。
+ */
+public final class ShortestPathSearch {
+
+    private ShortestPathSearch() {
+    }
+
+    public static List<Edge> findPath(RoutingGraph graph, String startName, String endName, double transferPenalty) {
+        return findPath(graph, startName, endName, transferPenalty, Closures.NONE);
+    }
+
+    public static List<Edge> findPath(RoutingGraph graph, String startName, String endName, double transferPenalty,
+                                      Closures closures) {
+        if (closures.hasStations()) {
+            return LeastTransferSearch.findFastestPath(graph, startName, endName, transferPenalty, closures);
+        }
+        int source = graph.stationId(startName);
+        int target = graph.stationId(endName);
+        if (source < 0 || target < 0) return Collections.emptyList();
+        if (closures.isEmpty()) return jumpPath(graph, source, target, transferPenalty);
+
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(graph.stationCount());
+        run(graph, ws, source, target, transferPenalty, closures);
+        List<Edge> path = extractPath(graph, ws, target);
+        commit(event, SearchPhaseEvent.STATION_DIJKSTRA, source, target, ws, graph.stationCount(), path.size());
+        return path;
+    }
+
+    /**
+     * 一对多搜索：从 source 出发标记所有可达站点，返回当前线程的工作区。
+     * 返回的标签只在本线程发起下一次搜索前有效。
+     */
+    public static SearchWorkspace searchFrom(RoutingGraph graph, int source, double transferPenalty) {
+        return searchFrom(graph, source, transferPenalty, Closures.NONE);
+    }
+
+    // 带线路 / 区间关闭的一对多搜索（如实时停运）；关闭站点需要展开图，这里不处理
+    public static SearchWorkspace searchFrom(RoutingGraph graph, int source, double transferPenalty,
+                                             Closures closures) {
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(graph.stationCount());
+        run(graph, ws, source, -1, transferPenalty, closures);
+        commit(event, SearchPhaseEvent.ONE_TO_ALL, source, -1, ws, graph.stationCount(), 0);
+        return ws;
+    }
+
+    // 提交搜索事件；JFR 未启用该事件时 shouldCommit() 为 false，不填充字段
+    static void commit(SearchPhaseEvent event, String phase, int source, int target, SearchWorkspace ws,
+                       int graphNodes, int pathEdges) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.phase = phase;
+        event.sourceId = source;
+        event.targetId = target;
+        event.nodesSettled = ws.heap().pollCount();
+        event.graphNodes = graphNodes;
+        event.pathEdges = pathEdges;
+        event.commit();
+    }
+
+    // target 为 -1 时不提前结束，直到所有可达站点出堆
+    private static void run(RoutingGraph graph, SearchWorkspace ws, int source, int target, double transferPenalty,
+                            Closures closures) {
+        boolean open = closures.isEmpty();
+        IndexedDaryHeap heap = ws.heap();
+        ws.setLabel(source, 0.0, -1);
+        heap.insertOrDecrease(source, 0.0);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (current == target) break;
+            double currentDist = ws.dist(current);
+            int predArc = ws.pred(current);
+            int predLine = predArc < 0 ? -1 : graph.arcLine(predArc);
+            for (int arc = graph.firstArc(current), end = graph.endArc(current); arc < end; arc++) {
+                if (!open && !closures.arcOpen(graph, arc)) continue;
+                double transferTime = (predLine >= 0 && predLine != graph.arcLine(arc)) ? transferPenalty : 0;
+                double newDist = currentDist + graph.arcTime(arc) + transferTime;
+                int next = graph.arcTo(arc);
+                if (newDist < ws.dist(next)) {
+                    ws.setLabel(next, newDist, arc);
+                    heap.insertOrDecrease(next, newDist);
+                }
+            }
+        }
+    }
+
+    // ---------- 跳跃弧搜索 ----------
+
+    /*
+     * 非关键站只在一条线路上，旧搜索在其上的标签只是沿线路累加、不会换乘，且不会比两侧关键站之间直达更优，
+     * 因此只保留起终点两个非关键站：起点用虚拟弧接到所在区段两端的关键站（终点在同一区段时直接相连），
+     * 终点由所在区段两端的关键站用虚拟弧接入。换乘判定与 run 相同，按前驱弧所在线路计算。
+     * 前驱编码：>= 0 为跳跃弧，<= -2 为虚拟弧 -2 - k，-1 为无前驱。
+     */
+    private static List<Edge> jumpPath(RoutingGraph graph, int source, int target, double transferPenalty) {
+        LineOffsets offsets = graph.lineOffsets();
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        SearchWorkspace ws = SearchWorkspace.acquire(graph.stationCount());
+        IndexedDaryHeap heap = ws.heap();
+        Segment origin = Segment.of(graph, offsets, source);
+        Segment destination = Segment.of(graph, offsets, target);
+        VirtualArcs virtual = new VirtualArcs(offsets);
+        ws.setLabel(source, 0.0, -1);
+        heap.insertOrDecrease(source, 0.0);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (current == target) break;
+            double currentDist = ws.dist(current);
+            if (current == source && origin != null) {
+                // 起点是非关键站：沿所在线路到区段两端的关键站，终点在同一区段时直接到终点
+                relax(ws, heap, virtual, virtual.add(source, origin.line, origin.pos, origin.previous, false),
+                        currentDist);
+                relax(ws, heap, virtual, virtual.add(source, origin.line, origin.pos, origin.next, true),
+                        currentDist);
+                if (origin.sameSegment(destination)) {
+                    boolean forward = origin.offset(destination.pos) > origin.offset(origin.pos);
+                    relax(ws, heap, virtual, virtual.add(source, origin.line, origin.pos, destination.pos, forward),
+                            currentDist);
+                }
+                continue;
+            }
+            int predArc = ws.pred(current);
+            int predLine = predArc >= 0 ? offsets.jumpLine(predArc) : predArc == -1 ? -1 : virtual.line(-2 - predArc);
+            for (int jump = offsets.firstJump(current), end = offsets.endJump(current); jump < end; jump++) {
+                int line = offsets.jumpLine(jump);
+                double transferTime = (predLine >= 0 && predLine != line) ? transferPenalty : 0;
+                double newDist = currentDist + offsets.jumpTime(jump) + transferTime;
+                int next = offsets.jumpTo(jump);
+                if (newDist < ws.dist(next)) {
+                    ws.setLabel(next, newDist, jump);
+                    heap.insertOrDecrease(next, newDist);
+                }
+            }
+            if (destination != null) {
+                // 终点是非关键站：从所在区段两端的关键站沿线路接入（只有一个关键站的环线两个方向都接入）
+                double transferTime = (predLine >= 0 && predLine != destination.line) ? transferPenalty : 0;
+                int line = destination.line;
+                if (offsets.station(line, destination.previous) == current) {
+                    int k = virtual.add(current, line, destination.previous, destination.pos, true);
+                    relax(ws, heap, virtual, k, currentDist + transferTime);
+                }
+                if (offsets.station(line, destination.next) == current) {
+                    int k = virtual.add(current, line, destination.next, destination.pos, false);
+                    relax(ws, heap, virtual, k, currentDist + transferTime);
+                }
+            }
+        }
+        List<Edge> path = extractJumpPath(offsets, virtual, ws, target);
+        commit(event, SearchPhaseEvent.STATION_JUMP, source, target, ws, graph.stationCount(), path.size());
+        return path;
+    }
+
+    private static void relax(SearchWorkspace ws, IndexedDaryHeap heap, VirtualArcs virtual, int k, double baseDist) {
+        double newDist = baseDist + virtual.time(k);
+        int next = virtual.to(k);
+        if (newDist < ws.dist(next)) {
+            ws.setLabel(next, newDist, -2 - k);
+            heap.insertOrDecrease(next, newDist);
+        }
+    }
+
+    // 沿前驱回溯，按行车顺序展开跳跃弧与虚拟弧途经的原始边
+    private static List<Edge> extractJumpPath(LineOffsets offsets, VirtualArcs virtual, SearchWorkspace ws,
+                                              int target) {
+        int steps = 0;
+        for (int pred = ws.pred(target), station = target; pred != -1; pred = ws.pred(station)) {
+            station = pred >= 0 ? offsets.jumpFrom(pred) : virtual.from(-2 - pred);
+            steps++;
+        }
+        if (steps == 0) return Collections.emptyList();
+        int[] preds = new int[steps];
+        int index = steps;
+        for (int pred = ws.pred(target), station = target; pred != -1; pred = ws.pred(station)) {
+            preds[--index] = pred;
+            station = pred >= 0 ? offsets.jumpFrom(pred) : virtual.from(-2 - pred);
+        }
+        List<Edge> path = new ArrayList<>();
+        for (int pred : preds) {
+            if (pred >= 0) offsets.appendJump(pred, path);
+            else virtual.append(-2 - pred, path);
+        }
+        return path;
+    }
+
+    // 本次查询的虚拟弧：起点最多三条、终点最多两条
+    private static final class VirtualArcs {
+        private final LineOffsets offsets;
+        private final int[] from = new int[5];
+        private final int[] to = new int[5];
+        private final int[] line = new int[5];
+        private final int[] fromPos = new int[5];
+        private final int[] toPos = new int[5];
+        private final boolean[] forward = new boolean[5];
+        private final double[] time = new double[5];
+        private int count;
+
+        VirtualArcs(LineOffsets offsets) {
+            this.offsets = offsets;
+        }
+
+        int add(int fromStation, int line, int fromPos, int toPos, boolean forward) {
+            int k = count++;
+            this.from[k] = fromStation;
+            this.to[k] = offsets.station(line, toPos);
+            this.line[k] = line;
+            this.fromPos[k] = fromPos;
+            this.toPos[k] = toPos;
+            this.forward[k] = forward;
+            this.time[k] = offsets.runTime(line, fromPos, toPos, forward);
+            return k;
+        }
+
+        int from(int k) {
+            return from[k];
+        }
+
+        int to(int k) {
+            return to[k];
+        }
+
+        int line(int k) {
+            return line[k];
+        }
+
+        double time(int k) {
+            return time[k];
+        }
+
+        void append(int k, List<Edge> out) {
+            offsets.appendRide(line[k], fromPos[k], toPos[k], forward[k], out);
+        }
+    }
+
+    // 非关键站所在的线路、位置及区段两端关键站的位置；关键站或不在任何线路上时为 null
+    private static final class Segment {
+        final int line;
+        final int pos;
+        final int previous;
+        final int next;
+        final int size;
+
+        private Segment(int line, int pos, int previous, int next, int size) {
+            this.line = line;
+            this.pos = pos;
+            this.previous = previous;
+            this.next = next;
+            this.size = size;
+        }
+
+        static Segment of(RoutingGraph graph, LineOffsets offsets, int station) {
+            LineExpandedGraph g = graph.lineExpanded();
+            if (offsets.isKeyStation(station) || g.firstPlatform(station) == g.endPlatform(station)) return null;
+            int line = g.nodeLine(g.firstPlatform(station));
+            int pos = offsets.position(line, station);
+            return new Segment(line, pos, offsets.previousKey(line, pos), offsets.nextKey(line, pos),
+                    offsets.stationCount(line));
+        }
+
+        boolean sameSegment(Segment other) {
+            return other != null && other.line == line && other.previous == previous && other.next == next;
+        }
+
+        // 从区段起点关键站顺行到 p 的站数
+        int offset(int p) {
+            return (p - previous + size) % size;
+        }
+    }
+
+    // 沿前驱弧回溯出边列表
+    static List<Edge> extractPath(RoutingGraph graph, SearchWorkspace ws, int target) {
+        int hops = 0;
+        for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(graph.arcFrom(arc))) {
+            hops++;
+        }
+        if (hops == 0) return Collections.emptyList();
+        Edge[] path = new Edge[hops];
+        int index = hops;
+        for (int arc = ws.pred(target); arc >= 0; arc = ws.pred(graph.arcFrom(arc))) {
+            path[--index] = graph.arcEdge(arc);
+        }
+        List<Edge> result = new ArrayList<>(hops);
+        Collections.addAll(result, path);
+        return result;
+    }
+}
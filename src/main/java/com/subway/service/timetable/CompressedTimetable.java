@@ -0,0 +1,206 @@
+package com.subway.service.timetable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压缩存储的全量时刻表： dayType -> lineId -> direction -> stationName -> DepartureSeries。
+ * 直接流式解析 parsed_departure_times.json，不再在堆上保留逐车次的字符串映射。
+ */
+public final class CompressedTimetable {
+
+    // 原始结构中每个发车占用的估算字节数：LinkedHashMap.Entry(40) + 车次号与时刻两个 String(各约 48)
+    private static final long RAW_BYTES_PER_DEPARTURE = 136;
+    // 原始结构中每个站点序列自身的估算开销（LinkedHashMap 对象及桶数组）
+    private static final long RAW_BYTES_PER_SERIES = 120;
+
+    private final Map<String, Map<String, Map<String, Map<String, DepartureSeries>>>> table;
+    private final int seriesCount;
+    private final long departureCount;
+    private final long runCount;
+    private final long exceptionCount;
+    private final long compressedBytes;
+
+    private CompressedTimetable(Map<String, Map<String, Map<String, Map<String, DepartureSeries>>>> table) {
+        this.table = table;
+        int series = 0;
+        long departures = 0, runs = 0, exceptions = 0, bytes = 0;
+        for (Map<String, Map<String, Map<String, DepartureSeries>>> day : table.values()) {
+            for (Map<String, Map<String, DepartureSeries>> line : day.values()) {
+                for (Map<String, DepartureSeries> direction : line.values()) {
+                    for (DepartureSeries s : direction.values()) {
+                        series++;
+                        departures += s.size();
+                        runs += s.runCount();
+                        exceptions += s.exceptionCount();
+                        bytes += s.compressedBytes();
+                    }
+                }
+            }
+        }
+        this.seriesCount = series;
+        this.departureCount = departures;
+        this.runCount = runs;
+        this.exceptionCount = exceptions;
+        this.compressedBytes = bytes;
+    }
+
+    public static CompressedTimetable empty() {
+        return new CompressedTimetable(new HashMap<>());
+    }
+
+    // 解析时刻表 JSON：站点取值可以是 {车次号: "HH:mm"} 对象，也可以是逗号分隔的时刻字符串
+    public static CompressedTimetable parse(InputStream in) throws IOException {
+        Map<String, Map<String, Map<String, Map<String, DepartureSeries>>>> table = new HashMap<>();
+        SeriesBuffer buffer = new SeriesBuffer();
+        try (JsonParser p = new JsonFactory().createParser(in)) {
+            expect(p.nextToken(), JsonToken.START_OBJECT);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String dayType = p.getCurrentName();
+                Map<String, Map<String, Map<String, DepartureSeries>>> day = table.computeIfAbsent(dayType, k -> new HashMap<>());
+                expect(p.nextToken(), JsonToken.START_OBJECT);
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String lineId = p.getCurrentName();
+                    Map<String, Map<String, DepartureSeries>> line = day.computeIfAbsent(lineId, k -> new HashMap<>());
+                    if (p.nextToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String direction = p.getCurrentName();
+                        Map<String, DepartureSeries> stations = line.computeIfAbsent(direction, k -> new HashMap<>());
+                        if (p.nextToken() != JsonToken.START_OBJECT) {
+                            p.skipChildren();
+                            continue;
+                        }
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String stationName = p.getCurrentName();
+                            buffer.clear();
+                            JsonToken value = p.nextToken();
+                            if (value == JsonToken.START_OBJECT) {
+                                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                                    int trainId = parseTrainId(p.getCurrentName());
+                                    p.nextToken();
+                                    buffer.add(parseMinute(p.getValueAsString()), trainId);
+                                }
+                            } else if (value == JsonToken.VALUE_STRING) {
+                                for (String t : p.getText().split(",")) {
+                                    buffer.add(parseMinute(t), -1);
+                                }
+                            } else {
+                                p.skipChildren();
+                                continue;
+                            }
+                            stations.put(stationName, buffer.build());
+                        }
+                    }
+                }
+            }
+        }
+        return new CompressedTimetable(table);
+    }
+
+    // 查找某站某方向的发车序列，不存在返回 null
+    public DepartureSeries series(String dayType, String lineId, String direction, String stationName) {
+        Map<String, Map<String, Map<String, DepartureSeries>>> day = table.get(dayType);
+        if (day == null) return null;
+        Map<String, Map<String, DepartureSeries>> line = day.get(lineId);
+        if (line == null) return null;
+        Map<String, DepartureSeries> stations = line.get(direction);
+        if (stations == null) return null;
+        return stations.get(stationName);
+    }
+
+    public long departureCount() {
+        return departureCount;
+    }
+
+    public long rawBytesEstimate() {
+        return departureCount * RAW_BYTES_PER_DEPARTURE + seriesCount * RAW_BYTES_PER_SERIES;
+    }
+
+    public long compressedBytes() {
+        return compressedBytes;
+    }
+
+    public double compressionRatio() {
+        return compressedBytes == 0 ? 0 : (double) rawBytesEstimate() / compressedBytes;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("series", seriesCount);
+        stats.put("departures", departureCount);
+        stats.put("runs", runCount);
+        stats.put("exceptions", exceptionCount);
+        stats.put("rawBytesEstimate", rawBytesEstimate());
+        stats.put("compressedBytes", compressedBytes);
+        stats.put("compressionRatio", Math.round(compressionRatio() * 10) / 10.0);
+        return stats;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("时刻表格式错误：期望 " + expected + "，实际为 " + actual);
+        }
+    }
+
+    // 车次号一般为 6 位数字，非数字时记为未知
+    private static int parseTrainId(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // "HH:mm" 转为当天分钟数；空串或格式错误返回 -1（构造序列时被跳过）
+    private static int parseMinute(String s) {
+        if (s == null) return -1;
+        s = s.trim();
+        int colon = s.indexOf(':');
+        if (colon <= 0) return -1;
+        try {
+            int hour = Integer.parseInt(s.substring(0, colon));
+            int minute = Integer.parseInt(s.substring(colon + 1));
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) return -1;
+            return hour * 60 + minute;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // 解析单个站点时复用的缓冲区
+    private static final class SeriesBuffer {
+        private int[] minutes = new int[256];
+        private int[] ids = new int[256];
+        private int count;
+
+        void clear() {
+            count = 0;
+        }
+
+        void add(int minute, int trainId) {
+            if (minute < 0) return;
+            if (count == minutes.length) {
+                minutes = Arrays.copyOf(minutes, count * 2);
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            minutes[count] = minute;
+            ids[count] = trainId;
+            count++;
+        }
+
+        DepartureSeries build() {
+            return DepartureSeries.encode(minutes, ids, count);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.subway.service.timetable;
+
+import java.util.Arrays;
+
+/**
+ * 某站某方向一天内的发车序列（按时刻升序，单位为当天分钟数）。
+ * 以"等间隔段"（首班时刻, 间隔, 车次数）加"例外时刻"的形式存储：
+ * 连续 MIN_RUN 个以上等间隔的发车合并为一段，其余发车逐个记为例外。
+ * 车次号按发车顺序另存为 int 数组，用于按车次定位发车时刻。
+ */
+public final class DepartureSeries {
+
+    // 少于该车次数的等间隔片段不值得单独成段
+    static final int MIN_RUN = 3;
+
+    // 每段 4 个 int：首班时刻、间隔、车次数、段内首车在序列中的下标
+    private static final int RUN_STRIDE = 4;
+    // 每个例外 2 个 int：发车时刻、在序列中的下标
+    private static final int EXC_STRIDE = 2;
+
+    private final int[] runs;
+    private final int runCount;
+    private final int[] exceptions;
+    private final int exceptionCount;
+    private final int[] trainIds;     // 按发车顺序排列的车次号，未知为 -1
+    private final int size;
+
+    private DepartureSeries(int[] runs, int runCount, int[] exceptions, int exceptionCount, int[] trainIds) {
+        this.runs = runs;
+        this.runCount = runCount;
+        this.exceptions = exceptions;
+        this.exceptionCount = exceptionCount;
+        this.trainIds = trainIds;
+        this.size = trainIds.length;
+    }
+
+    // 由 (发车分钟, 车次号) 对构造；输入无需有序，长度取 count
+    static DepartureSeries encode(int[] minutes, int[] ids, int count) {
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            // 高位放时刻、低位放下标，排序后同一时刻的车次保持输入顺序
+            packed[i] = ((long) minutes[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] times = new int[count];
+        int[] trainIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = (int) (packed[i] >>> 32);
+            trainIds[i] = ids[(int) packed[i]];
+        }
+
+        int[] runs = new int[RUN_STRIDE * 4];
+        int runCount = 0;
+        int[] exceptions = new int[EXC_STRIDE * 4];
+        int exceptionCount = 0;
+        int i = 0;
+        while (i < count) {
+            int j = i;
+            if (i + 1 < count && times[i + 1] > times[i]) {
+                int headway = times[i + 1] - times[i];
+                j = i + 1;
+                while (j + 1 < count && times[j + 1] - times[j] == headway) j++;
+            }
+            if (j - i + 1 >= MIN_RUN) {
+                if ((runCount + 1) * RUN_STRIDE > runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+                int base = runCount * RUN_STRIDE;
+                runs[base] = times[i];
+                runs[base + 1] = times[i + 1] - times[i];
+                runs[base + 2] = j - i + 1;
+                runs[base + 3] = i;
+                runCount++;
+                i = j + 1;
+            } else {
+                if ((exceptionCount + 1) * EXC_STRIDE > exceptions.length) {
+                    exceptions = Arrays.copyOf(exceptions, exceptions.length * 2);
+                }
+                exceptions[exceptionCount * EXC_STRIDE] = times[i];
+                exceptions[exceptionCount * EXC_STRIDE + 1] = i;
+                exceptionCount++;
+                i++;
+            }
+        }
+        return new DepartureSeries(Arrays.copyOf(runs, runCount * RUN_STRIDE), runCount,
+                Arrays.copyOf(exceptions, exceptionCount * EXC_STRIDE), exceptionCount, trainIds);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int runCount() {
+        return runCount;
+    }
+
+    public int exceptionCount() {
+        return exceptionCount;
+    }
+
+    public int first() {
+        return size == 0 ? -1 : timeAt(0);
+    }
+
+    public int last() {
+        return size == 0 ? -1 : timeAt(size - 1);
+    }
+
+    public int trainIdAt(int index) {
+        return trainIds[index];
+    }
+
+    // 序列中第 index 个发车的时刻
+    public int timeAt(int index) {
+        // 先找首车下标不超过 index 的最后一段
+        int lo = 0, hi = runCount - 1, r = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[mid * RUN_STRIDE + 3] <= index) {
+                r = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (r >= 0) {
+            int base = r * RUN_STRIDE;
+            int offset = index - runs[base + 3];
+            if (offset < runs[base + 2]) return runs[base] + offset * runs[base + 1];
+        }
+        lo = 0;
+        hi = exceptionCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = exceptions[mid * EXC_STRIDE + 1];
+            if (at == index) return exceptions[mid * EXC_STRIDE];
+            if (at < index) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        throw new IndexOutOfBoundsException("departure index " + index + " of " + size);
+    }
+
+    // 车次号对应的发车下标，不存在返回 -1（车次号按发车顺序递增时走二分，否则顺序查找）
+    public int indexOfTrain(int trainId) {
+        if (trainId < 0) return -1;
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (trainIds[mid] == trainId) return mid;
+            if (trainIds[mid] < trainId) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (trainIds[i] == trainId) return i;
+        }
+        return -1;
+    }
+
+    // 第一个时刻 >= minute 的发车下标，没有则返回 size()
+    public int ceilingIndex(int minute) {
+        int best = size;
+        int r = lastRunStartingAtOrBefore(minute);
+        if (r >= 0) {
+            int base = r * RUN_STRIDE;
+            int start = runs[base], headway = runs[base + 1], n = runs[base + 2];
+            int k = (minute - start + headway - 1) / headway;
+            if (k < n) best = runs[base + 3] + k;
+            else if (r + 1 < runCount) best = runs[(r + 1) * RUN_STRIDE + 3];
+        } else if (runCount > 0) {
+            best = runs[3];
+        }
+        int e = firstExceptionAtOrAfter(minute);
+        if (e < exceptionCount) best = Math.min(best, exceptions[e * EXC_STRIDE + 1]);
+        return best;
+    }
+
+    // 最后一个时刻 <= minute 的发车下标，没有则返回 -1
+    public int floorIndex(int minute) {
+        int best = -1;
+        int r = lastRunStartingAtOrBefore(minute);
+        if (r >= 0) {
+            int base = r * RUN_STRIDE;
+            int start = runs[base], headway = runs[base + 1], n = runs[base + 2];
+            int k = Math.min((minute - start) / headway, n - 1);
+            best = runs[base + 3] + k;
+        }
+        int e = firstExceptionAtOrAfter(minute + 1) - 1;
+        if (e >= 0) best = Math.max(best, exceptions[e * EXC_STRIDE + 1]);
+        return best;
+    }
+
+    // 不早于 minute 的下一班发车时刻，没有返回 -1
+    public int nextDeparture(int minute) {
+        int index = ceilingIndex(minute);
+        return index < size ? timeAt(index) : -1;
+    }
+
+    // 不晚于 minute 的上一班发车时刻，没有返回 -1
+    public int prevDeparture(int minute) {
+        int index = floorIndex(minute);
+        return index >= 0 ? timeAt(index) : -1;
+    }
+
+    // 压缩后占用的字节数（数组头按 16 字节估算）
+    long compressedBytes() {
+        return 16L * 3 + 4L * (runs.length + exceptions.length + trainIds.length) + 40;
+    }
+
+    private int lastRunStartingAtOrBefore(int minute) {
+        int lo = 0, hi = runCount - 1, r = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[mid * RUN_STRIDE] <= minute) {
+                r = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return r;
+    }
+
+    private int firstExceptionAtOrAfter(int minute) {
+        int lo = 0, hi = exceptionCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (exceptions[mid * EXC_STRIDE] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,314 @@
+package com.subway.service.warmup;
+
+import com.subway.model.Line;
+import com.subway.model.RouteOptions;
+import com.subway.model.Station;
+import com.subway.service.SubwayService;
+import com.subway.traffic.TrafficRecord;
+import com.subway.traffic.TrafficReplay;
+import com.subway.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * 启动预热：路网加载完成后、就绪探针报告可接收流量之前，重放一批路径查询，让路由代码经 C1/C2 编译进入稳定延迟，
+ * 避免扩容出的新实例用解释执行处理最初几千个真实请求。
+ * Spring Boot 在所有 ApplicationRunner 返回之后才发布 ReadinessState.ACCEPTING_TRAFFIC，
+ * 因此在 run() 中同步预热即可推迟就绪；HTTP 端口此时已打开，负载均衡应以 /api/subway/ready 判断是否引流。
+ * <p>
+ * 查询组合：配置了流量录制文件时按录制顺序循环回放其中的路径查询，否则用固定种子随机生成
+ * （随机起终点、时刻与日期类型，覆盖最短时间 / 最少换乘、按到达时刻、带关闭线路几种情形）。
+ * 按批统计延迟，连续 stable-batches 批的中位数与前一批相差都在 tolerance-percent 以内视为已稳定；
+ * 达到 max-iterations 或 max-duration-ms 时无论是否稳定都结束。
+ * 预热查询绕过路径缓存（RouteOptions.bypassCache），测到的始终是实际搜索的延迟，也不占用真实请求的缓存容量。
+ */
+@Component
+@Lazy(false) // 需要在启动时参与就绪判定
+public class WarmUp implements ApplicationRunner {
+
+    public static final String PENDING = "pending";
+    public static final String DISABLED = "disabled";
+    public static final String RUNNING = "running";
+    public static final String STEADY = "steady";
+    public static final String BUDGET_EXHAUSTED = "budget-exhausted";
+
+    private static final long SEED = 20240601L;
+    private static final String[] DAY_TYPES = {"weekday", "工作日", "双休日"}; // weekday 与接口 dayType 参数的默认值一致
+    private static final int FIRST_MINUTE = 5 * 60 + 30;                     // 随机查询时刻取 05:30 ~ 22:59
+    private static final int LAST_MINUTE = 23 * 60;
+    private static final String SHORTEST = "/path/shortest";
+    private static final String LEAST_TRANSFER = "/path/least-transfer";
+
+    private final SubwayService subwayService;
+    private final boolean enabled;
+    private final String trafficFile;
+    private final long maxDurationMs;
+    private final int maxIterations;
+    private final int minIterations;
+    private final int batchSize;
+    private final int stableBatches;
+    private final double tolerance;
+
+    // ---------- 预热进度（供就绪探针展示） ----------
+    private volatile String status = PENDING;
+    private volatile String source;
+    private volatile long iterations;
+    private volatile long errors;
+    private volatile long elapsedMillis;
+    private final List<long[]> batches = Collections.synchronizedList(new ArrayList<>()); // 每批 {p50, p99}，微秒
+
+    public WarmUp(SubwayService subwayService,
+                  @Value("${subway.warmup.enabled:true}") boolean enabled,
+                  @Value("${subway.warmup.traffic-file:}") String trafficFile,
+                  @Value("${subway.warmup.max-duration-ms:30000}") long maxDurationMs,
+                  @Value("${subway.warmup.max-iterations:20000}") int maxIterations,
+                  @Value("${subway.warmup.min-iterations:2000}") int minIterations,
+                  @Value("${subway.warmup.batch-size:200}") int batchSize,
+                  @Value("${subway.warmup.stable-batches:3}") int stableBatches,
+                  @Value("${subway.warmup.tolerance-percent:10}") double tolerancePercent) {
+        this.subwayService = subwayService;
+        this.enabled = enabled;
+        this.trafficFile = trafficFile == null ? "" : trafficFile.trim();
+        this.maxDurationMs = maxDurationMs;
+        this.maxIterations = maxIterations;
+        this.minIterations = minIterations;
+        this.batchSize = Math.max(1, batchSize);
+        this.stableBatches = Math.max(1, stableBatches);
+        this.tolerance = tolerancePercent / 100.0;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || maxIterations <= 0 || maxDurationMs <= 0) {
+            status = DISABLED;
+            return;
+        }
+        status = RUNNING;
+        QuerySource queries = querySource();
+        if (queries == null) {
+            System.out.println("JIT 预热跳过：路网中没有可用于查询的站点");
+            status = DISABLED;
+            return;
+        }
+        System.out.println("JIT 预热开始：查询来源 " + source + "，预算 " + maxIterations + " 次 / " + maxDurationMs + " ms");
+        long begin = System.nanoTime();
+        long deadline = begin + maxDurationMs * 1_000_000;
+        int stableRun = 0;
+        long previousMedian = -1;
+        boolean steady = false;
+        while (iterations < maxIterations && System.nanoTime() < deadline) {
+            LatencyHistogram batch = new LatencyHistogram();
+            for (int i = 0; i < batchSize && iterations < maxIterations; i++) {
+                Query query = queries.next();
+                long start = System.nanoTime();
+                try {
+                    query.execute(subwayService);
+                } catch (RuntimeException e) {
+                    errors++;
+                }
+                batch.record((System.nanoTime() - start) / 1000);
+                iterations++;
+            }
+            long median = batch.percentile(0.50);
+            batches.add(new long[]{median, batch.percentile(0.99)});
+            elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+            if (previousMedian > 0 && Math.abs(median - previousMedian) <= tolerance * previousMedian) {
+                stableRun++;
+            } else {
+                stableRun = 0;
+            }
+            previousMedian = median;
+            if (iterations >= minIterations && stableRun >= stableBatches) {
+                steady = true;
+                break;
+            }
+        }
+        elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+        status = steady ? STEADY : BUDGET_EXHAUSTED;
+        long[] first = batches.isEmpty() ? new long[2] : batches.get(0);
+        long[] last = batches.isEmpty() ? new long[2] : batches.get(batches.size() - 1);
+        System.out.println("JIT 预热结束（" + (steady ? "延迟已稳定" : "预算用尽，延迟未稳定") + "）：" + iterations
+                + " 次查询，失败 " + errors + "，耗时 " + elapsedMillis + " ms，每批中位延迟 " + first[0] + " us -> "
+                + last[0] + " us，p99 " + first[1] + " us -> " + last[1] + " us");
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", status);
+        report.put("source", source);
+        report.put("iterations", iterations);
+        report.put("errors", errors);
+        report.put("elapsedMillis", elapsedMillis);
+        List<long[]> snapshot;
+        synchronized (batches) {
+            snapshot = new ArrayList<>(batches);
+        }
+        report.put("batchSize", batchSize);
+        report.put("batchMedianMicros", snapshot.stream().map(b -> b[0]).collect(Collectors.toList()));
+        if (!snapshot.isEmpty()) {
+            report.put("firstBatchP99Micros", snapshot.get(0)[1]);
+            report.put("lastBatchP99Micros", snapshot.get(snapshot.size() - 1)[1]);
+        }
+        return report;
+    }
+
+    // 优先使用流量录制文件中的路径查询；文件不可用或其中没有路径查询时随机生成
+    private QuerySource querySource() {
+        if (!trafficFile.isEmpty()) {
+            List<Query> recorded = recordedQueries(Paths.get(trafficFile));
+            if (!recorded.isEmpty()) {
+                source = "traffic-file(" + recorded.size() + ")";
+                return new QuerySource(recorded);
+            }
+        }
+        List<String> stations = subwayService.getAllStations().stream().map(Station::getName).distinct()
+                .collect(Collectors.toList());
+        if (stations.size() < 2) return null;
+        List<String> lines = subwayService.getAllLines().stream().map(Line::getLineId).collect(Collectors.toList());
+        source = "generated";
+        return new QuerySource(stations, lines);
+    }
+
+    private List<Query> recordedQueries(Path file) {
+        List<Query> queries = new ArrayList<>();
+        if (!Files.isRegularFile(file)) {
+            System.out.println("预热流量文件不存在：" + file + "，改用随机查询");
+            return queries;
+        }
+        List<TrafficRecord> records;
+        try {
+            records = TrafficReplay.load(file);
+        } catch (IOException e) {
+            System.out.println("无法读取预热流量文件 " + file + "：" + e.getMessage() + "，改用随机查询");
+            return queries;
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+        LocalTime now = LocalTime.now().withSecond(0).withNano(0);
+        for (TrafficRecord record : records) {
+            boolean leastTransfer = record.getPath().endsWith(LEAST_TRANSFER);
+            if (!leastTransfer && !record.getPath().endsWith(SHORTEST)) continue;
+            Map<String, String> params = record.parameters();
+            String start = params.get("start");
+            String end = params.get("end");
+            if (start == null || end == null) continue;
+            LocalTime time = now;
+            String queryTime = params.get("queryTime");
+            if (queryTime != null && !queryTime.trim().isEmpty()) {
+                try {
+                    time = LocalTime.parse(queryTime.trim(), formatter);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+            }
+            RouteOptions options = new RouteOptions();
+            options.setArriveBy(Boolean.parseBoolean(params.get("arriveBy")));
+            options.setClosedStations(split(params.get("closedStations")));
+            options.setClosedLines(split(params.get("closedLines")));
+            options.setClosedSegments(split(params.get("closedSegments")));
+            String dayType = params.getOrDefault("dayType", DAY_TYPES[0]);
+            queries.add(new Query(leastTransfer, start, end, dayType, time, options));
+        }
+        return queries;
+    }
+
+    // 与接口的列表参数一致：逗号分隔
+    private static List<String> split(String value) {
+        if (value == null || value.trim().isEmpty()) return new ArrayList<>();
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    // 录制的查询按顺序循环回放；否则按固定种子随机生成
+    private static final class QuerySource {
+        private final List<Query> recorded;
+        private final List<String> stations;
+        private final List<String> lines;
+        private final Random random = new Random(SEED);
+        private int cursor;
+
+        QuerySource(List<Query> recorded) {
+            this.recorded = recorded;
+            this.stations = null;
+            this.lines = null;
+        }
+
+        QuerySource(List<String> stations, List<String> lines) {
+            this.recorded = null;
+            this.stations = stations;
+            this.lines = lines;
+        }
+
+        Query next() {
+            if (recorded != null) {
+                Query query = recorded.get(cursor);
+                cursor = (cursor + 1) % recorded.size();
+                return query;
+            }
+            int from = random.nextInt(stations.size());
+            int to = random.nextInt(stations.size() - 1);
+            if (to >= from) to++;
+            int minute = FIRST_MINUTE + random.nextInt(LAST_MINUTE - FIRST_MINUTE);
+            LocalTime time = LocalTime.of(minute / 60, minute % 60);
+            RouteOptions options = new RouteOptions();
+            // 约十分之一按到达时刻查询、十分之一关闭一条线路，其余为普通查询
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                options.setArriveBy(true);
+            } else if (kind == 1 && !lines.isEmpty()) {
+                options.getClosedLines().add(lines.get(random.nextInt(lines.size())));
+            }
+            String dayType = DAY_TYPES[random.nextInt(DAY_TYPES.length)];
+            return new Query(random.nextBoolean(), stations.get(from), stations.get(to), dayType, time, options);
+        }
+    }
+
+    private static final class Query {
+        final boolean leastTransfer;
+        final String start;
+        final String end;
+        final String dayType;
+        final LocalTime time;
+        final RouteOptions options;
+
+        Query(boolean leastTransfer, String start, String end, String dayType, LocalTime time, RouteOptions options) {
+            this.leastTransfer = leastTransfer;
+            this.start = start;
+            this.end = end;
+            this.dayType = dayType;
+            this.time = time;
+            this.options = options;
+            // 录制流量循环回放，走缓存时第二轮起几乎全部命中，测到的只是缓存查找
+            options.setBypassCache(true);
+        }
+
+        // 与接口一致：HH:mm 落在当天日期上
+        void execute(SubwayService service) {
+            LocalDateTime queryTime = LocalDate.now().atTime(time);
+            if (leastTransfer) {
+                service.findLeastTransferPath(start, end, dayType, queryTime, options);
+            } else {
+                service.findShortestTimePath(start, end, dayType, queryTime, options);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.subway.traffic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一条录制的路径查询请求。文件格式：8 字节魔数 SUBTRAF1，随后每条记录依次为
+ * long 时间戳(ms)、UTF 路径、UTF 查询串、short 状态码、int 延迟(us)。
+ * 查询串原样保存（含 start/end/dayType/queryTime 及其他参数），回放时可逐字节重现请求。
+ */
+public class TrafficRecord {
+
+    static final byte[] MAGIC = "SUBTRAF1".getBytes(StandardCharsets.US_ASCII);
+
+    private final long timestampMillis;
+    private final String path;
+    private final String query;
+    private final int status;
+    private final int latencyMicros;
+
+    public TrafficRecord(long timestampMillis, String path, String query, int status, int latencyMicros) {
+        this.timestampMillis = timestampMillis;
+        this.path = path;
+        this.query = query == null ? "" : query;
+        this.status = status;
+        this.latencyMicros = latencyMicros;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    // 解析查询串中的参数（start、end、dayType、queryTime 等），用于查看录制内容
+    public Map<String, String> parameters() {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(timestampMillis);
+        out.writeUTF(path);
+        out.writeUTF(query);
+        out.writeShort(status);
+        out.writeInt(latencyMicros);
+    }
+
+    // 读取下一条记录，文件结束或尾部残缺时返回 null
+    static TrafficRecord readFrom(DataInputStream in) throws IOException {
+        try {
+            long timestamp = in.readLong();
+            String path = in.readUTF();
+            String query = in.readUTF();
+            int status = in.readShort();
+            int latency = in.readInt();
+            return new TrafficRecord(timestamp, path, query, status, latency);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+    }
+
+    static void readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) throw new IOException("不是流量录制文件（魔数不匹配）");
+        }
+    }
+}
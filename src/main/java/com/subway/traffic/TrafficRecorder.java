@@ -0,0 +1,107 @@
+package com.subway.traffic;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 低开销的路径查询流量录制器：请求线程只把记录放入有界队列（满时丢弃并计数），
+ * 由后台线程批量写入本地文件。默认关闭，通过 subway.traffic.record.enabled 开启。
+ */
+@Component
+public class TrafficRecorder {
+
+    private final boolean enabled;
+    private final Path file;
+    private final BlockingQueue<TrafficRecord> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    public TrafficRecorder(@Value("${subway.traffic.record.enabled:false}") boolean enabled,
+                           @Value("${subway.traffic.record.file:traffic/requests.rec}") String file,
+                           @Value("${subway.traffic.record.queue-size:65536}") int queueSize) {
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        writer = new Thread(this::writeLoop, "traffic-recorder");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("流量录制已开启，写入 " + file.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dropped.get() > 0) {
+            System.out.println("流量录制队列已满，丢弃记录 " + dropped.get() + " 条");
+        }
+    }
+
+    // 请求线程调用：只入队，不做 I/O
+    public void record(String path, String query, int status, long latencyNanos) {
+        if (!running) return;
+        TrafficRecord record = new TrafficRecord(System.currentTimeMillis(), path, query, status,
+                (int) Math.min(Integer.MAX_VALUE, latencyNanos / 1000));
+        if (!queue.offer(record)) dropped.incrementAndGet();
+    }
+
+    private void writeLoop() {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024))) {
+                if (fresh) TrafficRecord.writeHeader(out);
+                while (running || !queue.isEmpty()) {
+                    TrafficRecord record = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (record == null) {
+                        out.flush();
+                        continue;
+                    }
+                    record.writeTo(out);
+                    TrafficRecord next;
+                    while ((next = queue.poll()) != null) {
+                        next.writeTo(out);
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("流量录制写入失败，录制停止：" + e.getMessage());
+            running = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
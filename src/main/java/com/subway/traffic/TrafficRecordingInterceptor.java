@@ -0,0 +1,31 @@
+package com.subway.traffic;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// 记录路径查询请求的查询串、状态码与服务端处理耗时
+public class TrafficRecordingInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = TrafficRecordingInterceptor.class.getName() + ".start";
+
+    private final TrafficRecorder recorder;
+
+    public TrafficRecordingInterceptor(TrafficRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) return;
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        recorder.record(request.getRequestURI(), request.getQueryString(), status, System.nanoTime() - (Long) start);
+    }
+}
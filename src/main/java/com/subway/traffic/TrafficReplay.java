@@ -0,0 +1,223 @@
+package com.subway.traffic;
+
+import com.subway.util.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流量回放压测工具：按指定 QPS 与并发把录制的路径查询重新发送到运行中的实例，
+ * 输出 p50/p95/p99/p999 延迟、吞吐与错误率，并可按阈值返回非零退出码供发布前检查使用。
+ * <pre>
+ * java -cp target/classes com.subway.traffic.TrafficReplay \
+ *     --file traffic/requests.rec --base-url http://localhost:8081 \
+ *     --qps 200 --concurrency 32 [--loops 1] [--report replay-report.txt] \
+ *     [--max-p99-ms 50] [--max-error-rate 0.01]
+ * java -cp target/classes com.subway.traffic.TrafficReplay --file traffic/requests.rec --dump
+ * </pre>
+ * qps 为 0 表示不限速，只受并发数约束。错误指请求异常、5xx 或状态码与录制时不一致。
+ */
+public class TrafficReplay {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        if (!options.containsKey("file")) {
+            System.err.println("用法: TrafficReplay --file <录制文件> [--base-url http://localhost:8081] [--qps 100] " +
+                    "[--concurrency 16] [--loops 1] [--report 文件] [--max-p99-ms N] [--max-error-rate R] [--dump]");
+            System.exit(2);
+        }
+        List<TrafficRecord> records = load(Paths.get(options.get("file")));
+        if (options.containsKey("dump")) {
+            for (TrafficRecord record : records) {
+                System.out.println(record.getTimestampMillis() + " " + record.getPath() + " " + record.parameters() +
+                        " status=" + record.getStatus() + " latency=" + record.getLatencyMicros() + "us");
+            }
+            return;
+        }
+        if (records.isEmpty()) {
+            System.err.println("录制文件中没有请求");
+            System.exit(2);
+        }
+
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8081");
+        double qps = Double.parseDouble(options.getOrDefault("qps", "100"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int loops = Integer.parseInt(options.getOrDefault("loops", "1"));
+
+        Result result = replay(records, baseUrl, qps, concurrency, loops);
+        String report = result.report(records, baseUrl, qps, concurrency);
+        System.out.println(report);
+        if (options.containsKey("report")) {
+            Files.write(Paths.get(options.get("report")), report.getBytes(StandardCharsets.UTF_8));
+        }
+
+        boolean failed = false;
+        if (options.containsKey("max-p99-ms")
+                && result.overall.percentile(0.99) / 1000.0 > Double.parseDouble(options.get("max-p99-ms"))) {
+            System.out.println("p99 超过阈值 " + options.get("max-p99-ms") + " ms");
+            failed = true;
+        }
+        if (options.containsKey("max-error-rate")
+                && result.errorRate() > Double.parseDouble(options.get("max-error-rate"))) {
+            System.out.println("错误率超过阈值 " + options.get("max-error-rate"));
+            failed = true;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    public static List<TrafficRecord> load(Path file) throws IOException {
+        List<TrafficRecord> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            TrafficRecord.readHeader(in);
+            TrafficRecord record;
+            while ((record = TrafficRecord.readFrom(in)) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    static Result replay(List<TrafficRecord> records, String baseUrl, double qps, int concurrency, int loops)
+            throws InterruptedException {
+        // 两个线程池都是非守护线程，回放结束后必须关闭，否则 main 打印报告后进程不会退出
+        ExecutorService clientPool = Executors.newFixedThreadPool(Math.max(2, concurrency / 4));
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(clientPool)
+                    .build();
+            return replay(client, records, baseUrl, qps, concurrency, loops, workers);
+        } finally {
+            workers.shutdownNow();
+            clientPool.shutdownNow();
+        }
+    }
+
+    private static Result replay(HttpClient client, List<TrafficRecord> records, String baseUrl, double qps,
+                                 int concurrency, int loops, ExecutorService workers) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        Result result = new Result();
+        long intervalNanos = qps > 0 ? (long) (1_000_000_000L / qps) : 0;
+        long start = System.nanoTime();
+        long sent = 0;
+        for (int loop = 0; loop < loops; loop++) {
+            for (TrafficRecord record : records) {
+                if (intervalNanos > 0) {
+                    long due = start + sent * intervalNanos;
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                inFlight.acquire();
+                sent++;
+                workers.execute(() -> {
+                    try {
+                        send(client, baseUrl, record, result);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        inFlight.acquire(concurrency);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void send(HttpClient client, String baseUrl, TrafficRecord record, Result result) {
+        String url = baseUrl + record.getPath() + (record.getQuery().isEmpty() ? "" : "?" + record.getQuery());
+        long begin = System.nanoTime();
+        boolean error;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            int status = response.statusCode();
+            error = status >= 500 || (record.getStatus() > 0 && status != record.getStatus());
+        } catch (IOException e) {
+            error = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = true;
+        }
+        long micros = (System.nanoTime() - begin) / 1000;
+        result.overall.record(micros);
+        result.byPath.computeIfAbsent(record.getPath(), k -> new LatencyHistogram()).record(micros);
+        if (error) result.errors.incrementAndGet();
+    }
+
+    static class Result {
+        final LatencyHistogram overall = new LatencyHistogram();
+        final Map<String, LatencyHistogram> byPath = Collections.synchronizedMap(new LinkedHashMap<>());
+        final AtomicLong errors = new AtomicLong();
+        long elapsedNanos;
+
+        double errorRate() {
+            long n = overall.count();
+            return n == 0 ? 0 : (double) errors.get() / n;
+        }
+
+        String report(List<TrafficRecord> records, String baseUrl, double qps, int concurrency) {
+            LatencyHistogram recorded = new LatencyHistogram();
+            for (TrafficRecord record : records) {
+                recorded.record(record.getLatencyMicros());
+            }
+            double seconds = elapsedNanos / 1e9;
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+            out.printf(Locale.ROOT, "回放目标: %s  目标 QPS: %s  并发: %d%n", baseUrl, qps > 0 ? qps : "不限", concurrency);
+            out.printf(Locale.ROOT, "请求数: %d  错误: %d (%.3f%%)  耗时: %.2f s  吞吐: %.1f req/s%n",
+                    overall.count(), errors.get(), errorRate() * 100, seconds, overall.count() / seconds);
+            out.println(line("客户端延迟", overall));
+            synchronized (byPath) {
+                for (Map.Entry<String, LatencyHistogram> entry : byPath.entrySet()) {
+                    out.println(line("  " + entry.getKey(), entry.getValue()));
+                }
+            }
+            out.println(line("录制时服务端延迟", recorded));
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+
+        private static String line(String label, LatencyHistogram h) {
+            return String.format(Locale.ROOT, "%s(ms): p50=%.2f p95=%.2f p99=%.2f p999=%.2f max=%.2f mean=%.2f n=%d",
+                    label, h.percentile(0.50) / 1000.0, h.percentile(0.95) / 1000.0, h.percentile(0.99) / 1000.0,
+                    h.percentile(0.999) / 1000.0, h.max() / 1000.0, h.mean() / 1000.0, h.count());
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) continue;
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,147 @@
+package com.subway.util;
+
+import java.util.Arrays;
+
+/**
+ * 以 int 编号为元素、double 为键的索引 d 叉最小堆，支持 decrease-key。
+ * 内部数组可复用：clear() 只重置仍在堆中的元素位置，不会重新分配。
+ */
+public class IndexedDaryHeap {
+
+    private static final int ARITY = 4;
+
+    private int[] heap;        // 堆数组，存放元素编号
+    private int[] position;    // 元素编号 -> 堆中下标，-1 表示不在堆中
+    private double[] keys;     // 元素编号 -> 当前键值
+    private int size;
+    private int polls;
+
+    public IndexedDaryHeap(int capacity) {
+        heap = new int[Math.max(capacity, 1)];
+        position = new int[Math.max(capacity, 1)];
+        keys = new double[Math.max(capacity, 1)];
+        Arrays.fill(position, -1);
+    }
+
+    // 确保可容纳编号为 [0, capacity) 的元素，仅在图规模变化时扩容
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) return;
+        int oldLength = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        position = Arrays.copyOf(position, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        Arrays.fill(position, oldLength, capacity, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    public double key(int node) {
+        return keys[node];
+    }
+
+    // 插入元素，若已在堆中且新键更小则执行 decrease-key；返回键是否被更新
+    public boolean insertOrDecrease(int node, double key) {
+        int pos = position[node];
+        if (pos < 0) {
+            keys[node] = key;
+            heap[size] = node;
+            position[node] = size;
+            siftUp(size++);
+            return true;
+        }
+        if (key < keys[node]) {
+            keys[node] = key;
+            siftUp(pos);
+            return true;
+        }
+        return false;
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    // 弹出键最小的元素编号
+    public int poll() {
+        polls++;
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // 清空堆，仅重置残留元素的位置标记
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        polls = 0;
+    }
+
+    // 上次 clear() 以来弹出的元素数（一次搜索中出堆的节点数）
+    public int pollCount() {
+        return polls;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        double key = keys[node];
+        while (index > 0) {
+            int parentIndex = (index - 1) / ARITY;
+            int parent = heap[parentIndex];
+            if (keys[parent] <= key) break;
+            heap[index] = parent;
+            position[parent] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        double key = keys[node];
+        while (true) {
+            int firstChild = index * ARITY + 1;
+            if (firstChild >= size) break;
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int best = firstChild;
+            double bestKey = keys[heap[firstChild]];
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                double k = keys[heap[c]];
+                if (k < bestKey) {
+                    best = c;
+                    bestKey = k;
+                }
+            }
+            if (bestKey >= key) break;
+            int child = heap[best];
+            heap[index] = child;
+            position[child] = index;
+            index = best;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+}
@@ -0,0 +1,71 @@
+package com.subway.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的对数-线性延迟直方图（单位微秒），相对误差约 1/SUB_BUCKETS。
+ * 每个 2 的幂区间再线性划分为 SUB_BUCKETS 个桶，记录开销为几次位运算加一次原子自增。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int RANGES = 40;   // 覆盖到约 2^40 微秒
+
+    private final AtomicLongArray counts = new AtomicLongArray(RANGES * SUB_BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long value = Math.max(micros, 0);
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public double mean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // 返回分位数 q（0~1）对应的延迟上界，单位微秒
+    public long percentile(double q) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int range = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        if (range >= RANGES) return RANGES * SUB_BUCKETS - 1;
+        int sub = (int) (value >>> range) - SUB_BUCKETS / 2;
+        return range * SUB_BUCKETS / 2 + SUB_BUCKETS / 2 + sub;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int offset = index - SUB_BUCKETS;
+        int range = offset / (SUB_BUCKETS / 2) + 1;
+        int sub = offset % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        return (((long) sub + 1) << range) - 1;
+    }
+}
@@ -0,0 +1,167 @@
+package com.subway.service;
+
+import com.subway.model.PathLeg;
+import com.subway.model.PathResult;
+import com.subway.model.RouteOptions;
+import com.subway.model.Station;
+import com.subway.model.TravelMatrixRow;
+import com.subway.service.cache.RouteCache;
+import com.subway.service.realtime.DisruptionEvent;
+import com.subway.service.realtime.LiveOverlays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 实时停运对路径查询的影响：途中换乘线路停运后应绕行，而不是返回原路径或"无服务"。
+ * 停运窗口从收到消息时开始，查询时刻取其后的下一个 10:00，停运有效期覆盖该时刻。
+ */
+class LiveSuspensionRoutingTest {
+
+    private static final String DAY_TYPE = "工作日";
+    private static final int TTL_MINUTES = 3 * 24 * 60;
+
+    private LiveOverlays overlays;
+    private SubwayServiceImpl service;
+    private LocalDateTime queryTime;
+
+    @BeforeEach
+    void setUp() {
+        overlays = new LiveOverlays(120, 1000);
+        service = new SubwayServiceImpl(null, overlays, new RouteCache(RouteCache.DEFAULT_CAPACITY));
+        queryTime = LocalDate.now().plusDays(1).atTime(LocalTime.of(10, 0));
+    }
+
+    @Test
+    void suspendedMidRouteLineProducesDetour() {
+        Route route = findRouteWithMiddleLeg();
+        PathResult before = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+
+        suspend(route.middle.getLineId(), null);
+        PathResult after = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+        assertNotNull(after, route.start + " -> " + route.end);
+        assertFalse(after.getSegments().isEmpty(), "应绕行而不是返回无服务");
+        assertFalse(usesLine(after, route.middle.getLineId()), "绕行路径不应再乘坐停运线路");
+
+        PathResult leastTransfer = service.findLeastTransferPath(route.start, route.end, DAY_TYPE, queryTime);
+        assertNotNull(leastTransfer);
+        assertFalse(usesLine(leastTransfer, route.middle.getLineId()));
+
+        RouteOptions arriveBy = new RouteOptions();
+        arriveBy.setArriveBy(true);
+        PathResult latest = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime, arriveBy);
+        assertNotNull(latest);
+        assertFalse(usesLine(latest, route.middle.getLineId()));
+
+        // 恢复运营后回到原路径（停运期间的结果未写入缓存）
+        resume(route.middle.getLineId());
+        PathResult resumed = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+        assertEquals(before.getTotalTime(), resumed.getTotalTime());
+        assertTrue(usesLine(resumed, route.middle.getLineId()));
+    }
+
+    @Test
+    void suspendedDirectionClosesOnlyThatDirection() {
+        Route route = findRouteWithMiddleLeg();
+        suspend(route.middle.getLineId(), route.middle.getDirection());
+        PathResult after = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+        assertNotNull(after);
+        for (PathLeg leg : after.getLegs()) {
+            assertFalse(leg.getLineId().equals(route.middle.getLineId())
+                    && route.middle.getDirection().equals(leg.getDirection()), "不应乘坐停运方向");
+        }
+        // 反方向仍可乘坐
+        PathResult reverse = service.findShortestTimePath(
+                route.middle.getStations().get(route.middle.getStations().size() - 1),
+                route.middle.getStations().get(0), DAY_TYPE, queryTime);
+        assertNotNull(reverse);
+        assertTrue(usesLine(reverse, route.middle.getLineId()));
+    }
+
+    @Test
+    void travelMatrixAvoidsSuspendedLine() {
+        Route route = findRouteWithMiddleLeg();
+        List<String> origins = Collections.singletonList(route.start);
+        List<String> destinations = Collections.singletonList(route.end);
+        // 总耗时口径与 findShortestTimePath 一致（首段等车时间取决于绕行后的首段线路，不一定变长）
+        PathResult before = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+        assertEquals(before.getTotalTime(), matrixTime(origins, destinations));
+        suspend(route.middle.getLineId(), null);
+        PathResult after = service.findShortestTimePath(route.start, route.end, DAY_TYPE, queryTime);
+        assertFalse(usesLine(after, route.middle.getLineId()));
+        assertEquals(after.getTotalTime(), matrixTime(origins, destinations));
+    }
+
+    // ---------- 辅助方法 ----------
+
+    // 找一条至少三段、中间段有明确行车方向、且中间线路停运后仍可绕行的路径
+    private Route findRouteWithMiddleLeg() {
+        List<String> names = new ArrayList<>();
+        for (Station station : service.getAllStations()) names.add(station.getName());
+        Collections.sort(names);
+        for (int i = 0; i < names.size(); i += 7) {
+            for (int j = names.size() - 1; j > i; j -= 11) {
+                PathResult result = service.findShortestTimePath(names.get(i), names.get(j), DAY_TYPE, queryTime);
+                if (result == null || result.getLegs() == null || result.getLegs().size() < 3) continue;
+                PathLeg middle = result.getLegs().get(1);
+                if (middle.getDirection() == null) continue;
+                String line = middle.getLineId();
+                if (line.equals(result.getLegs().get(0).getLineId())) continue;
+                if (line.equals(result.getLegs().get(result.getLegs().size() - 1).getLineId())) continue;
+                return new Route(names.get(i), names.get(j), middle);
+            }
+        }
+        fail("数据中没有合适的三段路径");
+        return null;
+    }
+
+    private int matrixTime(List<String> origins, List<String> destinations) {
+        List<TravelMatrixRow> rows = new ArrayList<>();
+        service.prepareTravelMatrix(origins, destinations, DAY_TYPE, queryTime).run(rows::add);
+        return rows.get(0).getTimes()[0];
+    }
+
+    private static boolean usesLine(PathResult result, String lineId) {
+        return result.getSegments().stream().anyMatch(s -> s.getLineId().equals(lineId));
+    }
+
+    private void suspend(String lineId, String direction) {
+        DisruptionEvent event = new DisruptionEvent();
+        event.setType(DisruptionEvent.SUSPEND);
+        event.setLineId(lineId);
+        event.setDirection(direction);
+        event.setTtlMinutes(TTL_MINUTES);
+        overlays.apply(event);
+    }
+
+    private void resume(String lineId) {
+        DisruptionEvent event = new DisruptionEvent();
+        event.setType(DisruptionEvent.RESUME);
+        event.setLineId(lineId);
+        overlays.apply(event);
+    }
+
+    private static final class Route {
+        final String start;
+        final String end;
+        final PathLeg middle;
+
+        Route(String start, String end, PathLeg middle) {
+            this.start = start;
+            this.end = end;
+            this.middle = middle;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.subway.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTest {
+
+    @Test
+    void ranksPairsByCount() {
+        HeavyHitters hitters = new HeavyHitters(true, 10, 0);
+        record(hitters, "A", "B", 5);
+        record(hitters, "C", "D", 9);
+        record(hitters, "E", "F", 2);
+
+        List<HeavyHitters.HotPair> top = hitters.top(10);
+        assertEquals(3, top.size());
+        assertEquals("C", top.get(0).getStart());
+        assertEquals("A", top.get(1).getStart());
+        assertEquals("E", top.get(2).getStart());
+        assertEquals(9, top.get(0).getCount());
+        assertEquals(5, top.get(1).getCount());
+        assertEquals(2, top.get(2).getCount());
+        assertEquals(2, hitters.top(2).size());
+    }
+
+    @Test
+    void keepsOnlyTopKAndEvictsTheLowest() {
+        HeavyHitters hitters = new HeavyHitters(true, 2, 0);
+        record(hitters, "A", "B", 3);
+        record(hitters, "C", "D", 1);
+        // 新组合估计值超过当前最低者时替换之
+        record(hitters, "E", "F", 2);
+
+        List<HeavyHitters.HotPair> top = hitters.top(10);
+        assertEquals(2, top.size());
+        assertEquals("A", top.get(0).getStart());
+        assertEquals("E", top.get(1).getStart());
+        assertEquals(2, hitters.stats().get("tracked"));
+    }
+
+    @Test
+    void recordsEnginesPerPair() {
+        HeavyHitters hitters = new HeavyHitters(true, 10, 0);
+        hitters.record("shortest", "A", "B", "workday");
+        hitters.record("least-transfer", "A", "B", "workday");
+        hitters.record("shortest", "A", "B", "weekend");
+
+        List<HeavyHitters.HotPair> top = hitters.top(10);
+        assertEquals(2, top.size());
+        HeavyHitters.HotPair workday = top.get(0);
+        assertEquals("workday", workday.getDayType());
+        assertEquals(List.of("shortest", "least-transfer"), workday.getEngines());
+    }
+
+    @Test
+    void olderRequestsDecay() throws InterruptedException {
+        // 半衰期 30ms：等待 300ms 后旧计数约衰减为原来的 1/1000
+        HeavyHitters hitters = new HeavyHitters(true, 10, 0.0005);
+        record(hitters, "A", "B", 20);
+        Thread.sleep(300);
+        record(hitters, "C", "D", 2);
+
+        List<HeavyHitters.HotPair> top = hitters.top(10);
+        assertEquals("C", top.get(0).getStart());
+        assertEquals("A", top.get(1).getStart());
+        assertTrue(top.get(1).getCount() < 1, "旧计数应已衰减: " + top.get(1).getCount());
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        HeavyHitters hitters = new HeavyHitters(false, 10, 0);
+        record(hitters, "A", "B", 3);
+        assertTrue(hitters.top(10).isEmpty());
+        assertEquals(0L, hitters.stats().get("recorded"));
+    }
+
+    private static void record(HeavyHitters hitters, String start, String end, int times) {
+        for (int i = 0; i < times; i++) {
+            hitters.record("shortest", start, end, "workday");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.subway.service.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineEditJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversNetEditsAfterRestart() {
+        LineEditJournal journal = open(1000);
+        journal.append(add("新线A"));
+        journal.append(add("新线B"));
+        journal.append(LineEditRecord.delete("新线A"));
+        long last = journal.append(LineEditRecord.delete("1号线"));
+        journal.awaitDurable(last);
+        journal.close();
+
+        LineEditJournal reopened = open(1000);
+        assertEquals(List.of("DELETE 1号线", "ADD 新线B"), describe(reopened.currentEdits()));
+        reopened.close();
+    }
+
+    @Test
+    void truncatesTornTailAndKeepsAppending() throws IOException {
+        LineEditJournal journal = open(1000);
+        journal.awaitDurable(journal.append(add("新线A")));
+        journal.close();
+        Path segment = files("journal-").get(0);
+        long intact = Files.size(segment);
+        // 模拟崩溃时只写了一半的帧：完整帧头 + 不完整的载荷
+        Files.write(segment, new byte[]{0, 0, 0, 64, 1, 2, 3, 4, '{', '"'}, StandardOpenOption.APPEND);
+
+        LineEditJournal recovered = open(1000);
+        assertEquals(intact, Files.size(segment));
+        assertEquals(List.of("ADD 新线A"), describe(recovered.currentEdits()));
+        recovered.awaitDurable(recovered.append(add("新线B")));
+        recovered.close();
+
+        LineEditJournal reopened = open(1000);
+        assertEquals(List.of("ADD 新线A", "ADD 新线B"), describe(reopened.currentEdits()));
+        reopened.close();
+    }
+
+    @Test
+    void compactionWritesSnapshotAndDropsCoveredSegments() throws IOException {
+        LineEditJournal journal = open(3);
+        long last = -1;
+        for (int i = 0; i < 7; i++) {
+            last = journal.append(add("新线" + i));
+        }
+        last = journal.append(LineEditRecord.delete("新线0"));
+        journal.awaitDurable(last);
+        journal.close();
+
+        // 第 6 条记录触发第二次压缩：只剩覆盖到序号 6 的快照与从序号 7 开始的分段
+        assertEquals(1, files("snapshot-").size());
+        assertTrue(files("snapshot-").get(0).getFileName().toString().contains("00000000000000000006"));
+        List<Path> segments = files("journal-");
+        assertEquals(1, segments.size());
+        assertTrue(segments.get(0).getFileName().toString().contains("00000000000000000007"));
+
+        LineEditJournal reopened = open(3);
+        assertEquals(List.of("ADD 新线1", "ADD 新线2", "ADD 新线3", "ADD 新线4", "ADD 新线5", "ADD 新线6"),
+                describe(reopened.currentEdits()));
+        reopened.close();
+    }
+
+    private LineEditJournal open(int snapshotEvery) {
+        LineEditJournal journal = new LineEditJournal(true, dir.toString(), 0, snapshotEvery);
+        journal.recover();
+        return journal;
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static LineEditRecord add(String lineId) {
+        return LineEditRecord.add(lineId, List.of("甲", "乙"), List.of(1.5), 35);
+    }
+
+    private static List<String> describe(List<LineEditRecord> records) {
+        return records.stream().map(r -> r.getOp() + " " + r.getLineId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,205 @@
+package com.subway.service.partition;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.subway.dto.LegCostRequestDTO;
+import com.subway.model.PathResult;
+import com.subway.service.SubwayServiceImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分区路由与整网搜索对比：把类路径数据导出为 4 个区域，用进程内 HTTP 服务模拟分区节点的
+ * /partition/costs 与 /partition/path 接口，协调器的总时间应与整网展开图搜索（findPartitionLegPath）一致。
+ */
+class PartitionCoordinatorTest {
+
+    // 与 Spring 的默认配置一致：PathResult 中的 LocalTime 序列化为 "HH:mm:ss" 字符串
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static final String DAY_TYPE = "工作日";
+    private static final String QUERY_TIME = "10:00";
+
+    @TempDir
+    static Path dir;
+
+    private static PartitionPlan plan;
+    private static SubwayServiceImpl whole;
+    private static final Map<String, SubwayServiceImpl> regions = new HashMap<>();
+    private static final AtomicInteger costRequests = new AtomicInteger();
+    private static HttpServer server;
+    private static PartitionCoordinator coordinator;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        PartitionExport.main(new String[]{"--regions", "4", "--out", dir.toString()});
+        Path planFile = dir.resolve("partition-plan.json");
+        plan = MAPPER.readValue(planFile.toFile(), PartitionPlan.class);
+        whole = new SubwayServiceImpl();
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            regions.put(region.getId(), SubwayServiceImpl.fromDirectory(dir.resolve(region.getId()), region.getId(), 0));
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/subway/networks/", PartitionCoordinatorTest::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        StringBuilder nodes = new StringBuilder();
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            if (nodes.length() > 0) nodes.append(',');
+            nodes.append(region.getId()).append('=').append(url);
+        }
+        coordinator = new PartitionCoordinator(planFile.toString(), nodes.toString(), 5000, 0);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (server != null) server.stop(0);
+    }
+
+    @Test
+    void planCoversEveryLineOnce() {
+        Set<String> lines = new HashSet<>();
+        Map<String, Integer> stationRegions = new HashMap<>();
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            for (String line : region.getLines()) assertTrue(lines.add(line), "线路重复分配: " + line);
+            for (String station : region.getStations()) stationRegions.merge(station, 1, Integer::sum);
+        }
+        assertEquals(4, plan.getRegions().size());
+        for (Map.Entry<String, Integer> entry : stationRegions.entrySet()) {
+            assertEquals(entry.getValue() > 1, plan.getBoundaryStations().contains(entry.getKey()), entry.getKey());
+        }
+    }
+
+    @Test
+    void matchesWholeNetworkSearch() {
+        List<String> stations = new ArrayList<>();
+        for (PartitionPlan.Region region : plan.getRegions()) {
+            for (String station : region.getStations()) {
+                if (!stations.contains(station)) stations.add(station);
+            }
+        }
+        LocalTime time = LocalTime.parse(QUERY_TIME);
+        LocalDateTime queryTime = LocalDateTime.now().withHour(time.getHour()).withMinute(time.getMinute())
+                .withSecond(0).withNano(0);
+        Random random = new Random(7);
+        int compared = 0;
+        for (int i = 0; i < 150; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String end = stations.get(random.nextInt(stations.size()));
+            if (start.equals(end)) continue;
+            PathResult expected = whole.findPartitionLegPath(start, end, DAY_TYPE, queryTime);
+            PathResult actual = coordinator.shortestPath(start, end, DAY_TYPE, QUERY_TIME);
+            String pair = start + " -> " + end;
+            if (expected == null) {
+                assertNull(actual, pair);
+                continue;
+            }
+            assertNotNull(actual, pair);
+            assertEquals(expected.getTotalTime(), actual.getTotalTime(), pair);
+            compared++;
+        }
+        assertTrue(compared > 100, "有效对比数过少: " + compared);
+    }
+
+    @Test
+    void overlayIsFetchedOnceUntilInvalidated() {
+        String start = plan.getBoundaryStations().get(0);
+        String end = plan.getBoundaryStations().get(plan.getBoundaryStations().size() - 1);
+        coordinator.invalidateOverlay();
+        int before = costRequests.get();
+        coordinator.shortestPath(start, end, DAY_TYPE, QUERY_TIME);
+        int fetched = costRequests.get() - before;
+        // 起终点都是边界站：只有构建覆盖图时请求代价，每个区域一次
+        assertEquals(plan.getRegions().size(), fetched);
+        coordinator.shortestPath(end, start, DAY_TYPE, QUERY_TIME);
+        assertEquals(before + fetched, costRequests.get());
+        coordinator.invalidateOverlay();
+        coordinator.shortestPath(start, end, DAY_TYPE, QUERY_TIME);
+        assertEquals(before + 2 * fetched, costRequests.get());
+    }
+
+    // ---------- 模拟分区节点 ----------
+
+    // 与 SubwayController 的 /networks/{区域}/partition/costs 和 /partition/path 返回相同结构
+    private static void handle(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().split("/");   // ["", api, subway, networks, 区域, partition, 操作]
+        SubwayServiceImpl service = regions.get(parts[4]);
+        Object body;
+        int status = 200;
+        if (service == null) {
+            status = 400;
+            body = errorBody("路网不存在: " + parts[4]);
+        } else if ("costs".equals(parts[6])) {
+            costRequests.incrementAndGet();
+            LegCostRequestDTO request = MAPPER.readValue(exchange.getRequestBody(), LegCostRequestDTO.class);
+            body = service.legCosts(request.getSources(), request.getTargets());
+        } else {
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            LocalTime time = LocalTime.parse(query.get("queryTime"));
+            LocalDateTime queryTime = LocalDateTime.now().withHour(time.getHour()).withMinute(time.getMinute())
+                    .withSecond(0).withNano(0);
+            PathResult result = service.findPartitionLegPath(query.get("start"), query.get("end"),
+                    query.get("dayType"), queryTime);
+            if (result == null) {
+                status = 400;
+                body = errorBody("无法找到路径：站点不存在或无有效路线");
+            } else {
+                Map<String, Object> response = new HashMap<>();
+                response.put("path", result);
+                response.put("waitingTime", result.getLegs() == null || result.getLegs().isEmpty()
+                        ? 0 : result.getLegs().get(0).getDepartOffset());
+                body = response;
+            }
+        }
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> errorBody(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> query = new LinkedHashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+}
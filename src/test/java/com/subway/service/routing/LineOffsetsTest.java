@@ -0,0 +1,57 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineOffsetsTest {
+
+    private static final double PENALTY = 5;
+
+    @Test
+    void jumpPathMatchesStationSearch() {
+        RoutingGraph graph = RoutingGraphFixture.graph();
+        List<String> names = RoutingGraphFixture.stationNames();
+        Random random = new Random(11);
+        for (int s = 0; s < 40; s++) {
+            String start = names.get(random.nextInt(names.size()));
+            // 一对多搜索的工作区会被下一次搜索复用，先取出全部距离
+            SearchWorkspace ws = ShortestPathSearch.searchFrom(graph, graph.stationId(start), PENALTY);
+            double[] expected = new double[graph.stationCount()];
+            for (int t = 0; t < expected.length; t++) {
+                expected[t] = ws.reached(t) ? ws.dist(t) : Double.POSITIVE_INFINITY;
+            }
+            for (int t = 0; t < expected.length; t++) {
+                String end = graph.stationName(t);
+                if (end.equals(start)) continue;
+                List<Edge> path = ShortestPathSearch.findPath(graph, start, end, PENALTY);
+                String pair = start + " -> " + end;
+                if (expected[t] == Double.POSITIVE_INFINITY) {
+                    assertTrue(path.isEmpty(), pair);
+                    continue;
+                }
+                assertTrue(RoutingGraphFixture.connects(path, start, end), pair);
+                assertEquals(expected[t], RoutingGraphFixture.cost(path, PENALTY), 1e-6, pair);
+            }
+        }
+    }
+
+    @Test
+    void keyStationsIncludeEveryInterchange() {
+        RoutingGraph graph = RoutingGraphFixture.graph();
+        LineOffsets offsets = graph.lineOffsets();
+        LineExpandedGraph expanded = graph.lineExpanded();
+        for (int station = 0; station < graph.stationCount(); station++) {
+            if (expanded.endPlatform(station) - expanded.firstPlatform(station) > 1) {
+                assertTrue(offsets.isKeyStation(station), graph.stationName(station));
+            }
+        }
+        assertFalse(offsets.jumpCount() == 0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.subway.service.routing;
+
+import com.subway.model.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineTransferIndexTest {
+
+    private static final double PENALTY = 5;
+
+    @Test
+    void matchesExpandedGraphSearchOnRandomPairs() {
+        RoutingGraph graph = RoutingGraphFixture.graph();
+        List<String> names = RoutingGraphFixture.stationNames();
+        Random random = new Random(7);
+        int answered = 0;
+        for (int i = 0; i < 2000; i++) {
+            String start = names.get(random.nextInt(names.size()));
+            String end = names.get(random.nextInt(names.size()));
+            if (start.equals(end)) continue;
+            List<Edge> indexed = graph.transferIndex().findPath(start, end, PENALTY);
+            List<Edge> expected = LeastTransferSearch.findPath(graph, start, end, PENALTY);
+            if (indexed == null) continue;   // 下界内无解，调用方回退到展开图搜索
+            answered++;
+            String pair = start + " -> " + end;
+            assertEquals(expected.isEmpty(), indexed.isEmpty(), pair);
+            if (expected.isEmpty()) continue;
+            assertTrue(RoutingGraphFixture.connects(indexed, start, end), pair);
+            assertEquals(RoutingGraphFixture.transfers(expected), RoutingGraphFixture.transfers(indexed), pair);
+            assertEquals(RoutingGraphFixture.cost(expected, PENALTY), RoutingGraphFixture.cost(indexed, PENALTY),
+                    1e-6, pair);
+        }
+        assertTrue(answered > 1000, "索引应能回答大多数查询: " + answered);
+    }
+
+    @Test
+    void transferMatrixIsSymmetricWithZeroDiagonal() {
+        RoutingGraph graph = RoutingGraphFixture.graph();
+        LineTransferIndex index = graph.transferIndex();
+        for (int a = 0; a < graph.lineCount(); a++) {
+            assertEquals(0, index.transfers(a, a));
+            for (int b = 0; b < graph.lineCount(); b++) {
+                assertEquals(index.transfers(a, b), index.transfers(b, a));
+            }
+        }
+    }
+
+    @Test
+    void unknownOrSameStationReturnsEmpty() {
+        RoutingGraph graph = RoutingGraphFixture.graph();
+        String station = RoutingGraphFixture.stationNames().get(0);
+        List<Edge> same = graph.transferIndex().findPath(station, station, PENALTY);
+        assertNotNull(same);
+        assertTrue(same.isEmpty());
+        assertTrue(graph.transferIndex().findPath(station, "不存在的站", PENALTY).isEmpty());
+    }
+}
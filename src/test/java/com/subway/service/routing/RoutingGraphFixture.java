@@ -0,0 +1,117 @@
+package com.subway.service.routing;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subway.model.Edge;
+import com.subway.model.Station;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 测试用路网：按 SubwayServiceImpl.loadNetwork 的方式读取 classpath 下的线路与站间距离数据，
+ * 只构造 RoutingGraph 所需的站点和双向边。
+ */
+final class RoutingGraphFixture {
+
+    static final double SPEED = 40.0; // km/h
+
+    private static RoutingGraph graph;
+    private static List<String> stationNames;
+
+    private RoutingGraphFixture() {
+    }
+
+    static synchronized RoutingGraph graph() {
+        if (graph == null) load();
+        return graph;
+    }
+
+    static synchronized List<String> stationNames() {
+        if (graph == null) load();
+        return stationNames;
+    }
+
+    // 路径代价：乘车时间之和 + 每次换线 transferPenalty
+    static double cost(List<Edge> path, double transferPenalty) {
+        double cost = 0;
+        for (int i = 0; i < path.size(); i++) {
+            cost += path.get(i).getTravelTime();
+            if (i > 0 && !path.get(i).getLineId().equals(path.get(i - 1).getLineId())) cost += transferPenalty;
+        }
+        return cost;
+    }
+
+    static int transfers(List<Edge> path) {
+        int transfers = 0;
+        for (int i = 1; i < path.size(); i++) {
+            if (!path.get(i).getLineId().equals(path.get(i - 1).getLineId())) transfers++;
+        }
+        return transfers;
+    }
+
+    // 路径首尾相接且起终点正确
+    static boolean connects(List<Edge> path, String start, String end) {
+        if (path.isEmpty()) return false;
+        if (!path.get(0).getFrom().getName().equals(start)) return false;
+        if (!path.get(path.size() - 1).getTo().getName().equals(end)) return false;
+        for (int i = 1; i < path.size(); i++) {
+            if (!path.get(i).getFrom().getName().equals(path.get(i - 1).getTo().getName())) return false;
+        }
+        return true;
+    }
+
+    private static void load() {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Station> stations = new LinkedHashMap<>();
+        List<Edge> edges = new ArrayList<>();
+        try (InputStream linesStream = new ClassPathResource("data/subway_lines_final.json").getInputStream();
+             InputStream distancesStream = new ClassPathResource("data/station_distance_final.json").getInputStream()) {
+            List<String> lineIds = mapper.readValue(linesStream, new TypeReference<List<String>>() {});
+            Map<String, List<Map<String, Object>>> distanceMap = mapper.readValue(distancesStream,
+                    new TypeReference<Map<String, List<Map<String, Object>>>>() {});
+            for (String lineId : lineIds) {
+                List<Map<String, Object>> distances = distanceMap.get(lineId);
+                if (distances == null) continue;
+                for (Map<String, Object> dist : distances) {
+                    Station from = station(stations, (String) dist.get("startStation"), lineId);
+                    Station to = station(stations, (String) dist.get("endStation"), lineId);
+                    double distance = ((Number) dist.get("distance")).doubleValue() / 1000.0;
+                    edges.add(edge(from, to, lineId, distance));
+                    edges.add(edge(to, from, lineId, distance));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        graph = RoutingGraph.build(stations.values(), edges);
+        stationNames = new ArrayList<>(stations.keySet());
+    }
+
+    private static Station station(Map<String, Station> stations, String name, String lineId) {
+        Station station = stations.computeIfAbsent(name, k -> {
+            Station created = new Station();
+            created.setName(name);
+            return created;
+        });
+        if (!station.getLineIds().contains(lineId)) station.getLineIds().add(lineId);
+        station.setIsTransfer(station.getLineIds().size() > 1);
+        return station;
+    }
+
+    private static Edge edge(Station from, Station to, String lineId, double distance) {
+        Edge edge = new Edge();
+        edge.setFrom(from);
+        edge.setTo(to);
+        edge.setLineId(lineId);
+        edge.setDistance(distance);
+        edge.setTravelTime(distance / SPEED * 60);
+        return edge;
+    }
+}
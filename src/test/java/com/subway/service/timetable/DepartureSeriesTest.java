@@ -0,0 +1,100 @@
+package com.subway.service.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DepartureSeriesTest {
+
+    @Test
+    void compressesRegularHeadwaysIntoRuns() {
+        int[] minutes = {300, 306, 312, 318, 324, 331, 400, 410, 420, 430};
+        DepartureSeries series = DepartureSeries.encode(minutes, ids(minutes.length), minutes.length);
+        assertEquals(2, series.runCount());
+        assertEquals(1, series.exceptionCount());
+        for (int i = 0; i < minutes.length; i++) {
+            assertEquals(minutes[i], series.timeAt(i));
+        }
+    }
+
+    // 随机时刻表（等间隔段、例外与同一分钟的重复发车混合）上与逐个扫描的结果对照
+    @Test
+    void nextAndPrevDepartureMatchBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[] minutes = randomTimetable(random);
+            DepartureSeries series = DepartureSeries.encode(minutes, ids(minutes.length), minutes.length);
+            int[] sorted = minutes.clone();
+            Arrays.sort(sorted);
+            assertEquals(sorted.length, series.size());
+            for (int minute = -5; minute <= 1445; minute++) {
+                assertEquals(bruteNext(sorted, minute), series.nextDeparture(minute), "next " + minute);
+                assertEquals(brutePrev(sorted, minute), series.prevDeparture(minute), "prev " + minute);
+            }
+        }
+    }
+
+    @Test
+    void keepsTrainIdsInDepartureOrder() {
+        int[] minutes = {420, 360, 380, 400, 365};
+        int[] trains = {5, 1, 3, 4, 2};
+        DepartureSeries series = DepartureSeries.encode(minutes, trains, minutes.length);
+        for (int i = 0; i < minutes.length; i++) {
+            assertEquals(i + 1, series.trainIdAt(i));
+            assertEquals(i, series.indexOfTrain(i + 1));
+        }
+        assertEquals(-1, series.indexOfTrain(99));
+    }
+
+    @Test
+    void emptySeriesHasNoDepartures() {
+        DepartureSeries series = DepartureSeries.encode(new int[0], new int[0], 0);
+        assertTrue(series.isEmpty());
+        assertEquals(-1, series.nextDeparture(600));
+        assertEquals(-1, series.prevDeparture(600));
+    }
+
+    private static int[] randomTimetable(Random random) {
+        int[] minutes = new int[random.nextInt(120)];
+        int t = 300 + random.nextInt(60);
+        int headway = 2 + random.nextInt(8);
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = Math.min(t, 1439);
+            int kind = random.nextInt(10);
+            if (kind == 0) headway = 2 + random.nextInt(8);
+            t += kind == 1 ? 0 : kind == 2 ? 1 + random.nextInt(20) : headway;
+        }
+        // 打乱顺序，encode 不要求输入有序
+        for (int i = minutes.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = minutes[i];
+            minutes[i] = minutes[j];
+            minutes[j] = tmp;
+        }
+        return minutes;
+    }
+
+    private static int bruteNext(int[] sorted, int minute) {
+        for (int t : sorted) {
+            if (t >= minute) return t;
+        }
+        return -1;
+    }
+
+    private static int brutePrev(int[] sorted, int minute) {
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            if (sorted[i] <= minute) return sorted[i];
+        }
+        return -1;
+    }
+
+    private static int[] ids(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = i;
+        return ids;
+    }
+}
@@ -0,0 +1,101 @@
+package com.subway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedDaryHeapTest {
+
+    @Test
+    void pollsInKeyOrder() {
+        IndexedDaryHeap heap = new IndexedDaryHeap(16);
+        double[] keys = {5, 3, 9, 1, 7, 2, 8, 6, 4, 0};
+        for (int node = 0; node < keys.length; node++) {
+            heap.insertOrDecrease(node, keys[node]);
+        }
+        double previous = -1;
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            int node = heap.poll();
+            assertEquals(keys[node], key);
+            assertTrue(key >= previous);
+            previous = key;
+        }
+        assertEquals(keys.length, heap.pollCount());
+    }
+
+    @Test
+    void decreaseKeyMovesNodeUpAndIgnoresLargerKeys() {
+        IndexedDaryHeap heap = new IndexedDaryHeap(8);
+        for (int node = 0; node < 8; node++) {
+            heap.insertOrDecrease(node, 10 + node);
+        }
+        assertTrue(heap.insertOrDecrease(7, 1));
+        assertFalse(heap.insertOrDecrease(3, 50));
+        assertEquals(13, heap.key(3));
+        assertEquals(7, heap.poll());
+        assertEquals(0, heap.poll());
+    }
+
+    // 与按 (键, 编号) 排序的朴素实现对照：随机插入、decrease-key 与弹出交错进行
+    @Test
+    void matchesNaiveQueueUnderRandomOperations() {
+        Random random = new Random(42);
+        int n = 500;
+        IndexedDaryHeap heap = new IndexedDaryHeap(n);
+        double[] naive = new double[n];
+        Arrays.fill(naive, Double.NaN);
+        for (int step = 0; step < 20_000; step++) {
+            int node = random.nextInt(n);
+            if (random.nextInt(4) > 0) {
+                double key = random.nextInt(1000);
+                boolean expected = Double.isNaN(naive[node]) || key < naive[node];
+                assertEquals(expected, heap.insertOrDecrease(node, key));
+                if (expected) naive[node] = key;
+            } else if (!heap.isEmpty()) {
+                double min = Double.MAX_VALUE;
+                for (double key : naive) {
+                    if (!Double.isNaN(key)) min = Math.min(min, key);
+                }
+                int polled = heap.poll();
+                assertEquals(min, naive[polled]);
+                naive[polled] = Double.NaN;
+            }
+            assertEquals(countPresent(naive), heap.size());
+        }
+    }
+
+    @Test
+    void clearAndEnsureCapacityKeepHeapReusable() {
+        IndexedDaryHeap heap = new IndexedDaryHeap(4);
+        heap.insertOrDecrease(1, 3);
+        heap.insertOrDecrease(2, 1);
+        heap.poll();
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(1));
+        assertEquals(0, heap.pollCount());
+
+        heap.ensureCapacity(100);
+        List<Integer> order = new ArrayList<>();
+        heap.insertOrDecrease(99, 2);
+        heap.insertOrDecrease(1, 1);
+        while (!heap.isEmpty()) order.add(heap.poll());
+        assertEquals(List.of(1, 99), order);
+    }
+
+    private static int countPresent(double[] keys) {
+        int count = 0;
+        for (double key : keys) {
+            if (!Double.isNaN(key)) count++;
+        }
+        return count;
+    }
+}
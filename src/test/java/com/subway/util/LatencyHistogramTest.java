@@ -0,0 +1,55 @@
+package com.subway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 1; v <= 50; v++) histogram.record(v);
+        assertEquals(50, histogram.count());
+        assertEquals(25, histogram.percentile(0.5));
+        assertEquals(50, histogram.percentile(1.0));
+        assertEquals(1, histogram.percentile(0));
+        assertEquals(25.5, histogram.mean(), 1e-9);
+        assertEquals(50, histogram.max());
+    }
+
+    @Test
+    void percentilesMatchSortedSamplesWithinPrecision() {
+        Random random = new Random(42);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            // 对数均匀分布，覆盖几十微秒到几秒
+            samples[i] = (long) Math.exp(3 + random.nextDouble() * 12);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        for (double q : new double[]{0.01, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999, 1.0}) {
+            long exact = samples[(int) Math.ceil(q * samples.length) - 1];
+            long estimate = histogram.percentile(q);
+            // 返回桶上界：不低于真实分位数，相对误差不超过 1/32
+            assertTrue(estimate >= exact, "q=" + q + " exact=" + exact + " estimate=" + estimate);
+            assertTrue(estimate <= exact + exact / 32 + 1, "q=" + q + " exact=" + exact + " estimate=" + estimate);
+        }
+        assertEquals(samples[samples.length - 1], histogram.percentile(1.0));
+    }
+
+    @Test
+    void emptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.mean());
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(0, histogram.max());
+    }
+}